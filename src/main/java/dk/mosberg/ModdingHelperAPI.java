@@ -2,6 +2,10 @@ package dk.mosberg;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import dk.mosberg.util.BlockSearchHelper;
+import dk.mosberg.util.CacheHelper;
+import dk.mosberg.util.RedstoneHelper;
+import dk.mosberg.util.TickHelper;
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.loader.api.FabricLoader;
 
@@ -15,6 +19,11 @@ public final class ModdingHelperAPI implements ModInitializer {
 
 	@Override
 	public void onInitialize() {
+		TickHelper.initializeEventListeners();
+		CacheHelper.initializeEventListeners();
+		CacheHelper.registerStatsCommand();
+		BlockSearchHelper.initializeEventListeners();
+		RedstoneHelper.initializeEventListeners();
 		LOGGER.info("Modding Helper API initialized (version: {})", getModVersion());
 	}
 
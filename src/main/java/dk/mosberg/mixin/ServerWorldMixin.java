@@ -0,0 +1,27 @@
+package dk.mosberg.mixin;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import dk.mosberg.util.BlockSearchHelper;
+import dk.mosberg.util.RedstoneHelper;
+import net.minecraft.block.BlockState;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Reports server-side block state changes to {@link BlockSearchHelper.BlockIndex} and
+ * {@link RedstoneHelper.RedstoneNetwork}. Hooks the same callback vanilla uses to keep its
+ * point-of-interest storage in sync.
+ */
+@Mixin(ServerWorld.class)
+public abstract class ServerWorldMixin {
+    @Inject(method = "onBlockStateChanged", at = @At("HEAD"))
+    private void moddinghelperapi$onBlockStateChanged(BlockPos pos, BlockState oldState,
+            BlockState newState, CallbackInfo ci) {
+        BlockSearchHelper.onBlockStateChanged((ServerWorld) (Object) this, pos, oldState,
+                newState);
+        RedstoneHelper.onBlockStateChanged((ServerWorld) (Object) this, pos, oldState, newState);
+    }
+}
@@ -1,22 +1,72 @@
 package dk.mosberg.util;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerChunkEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerWorldEvents;
 import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.world.Heightmap;
 import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.PalettedContainer;
+import net.minecraft.world.chunk.WorldChunk;
+import net.minecraft.world.chunk.light.LightingProvider;
 
 /**
  * Utility for searching blocks in the world. Provides methods for finding blocks within specific
  * areas and ranges.
  *
  * <p>
+ * Searches walk the area one 16³ {@link ChunkSection} at a time instead of calling
+ * {@code world.getBlockState} per position. A section whose palette cannot contain the target
+ * block is skipped without reading any of its 4096 states, and the remaining sections are read
+ * straight from their block state container, so each chunk is looked up once per search rather
+ * than once per voxel. Positions above or below the world's build limits are never matched.
+ * Searches that take a {@link LoadedOnly} never load chunks and report the ones they skipped.
+ *
+ * <p>
  * Example usage:
  *
  * <pre>
  * List&lt;BlockPos&gt; diamonds = BlockSearchHelper.findInRadius(world, center, 16, Blocks.DIAMOND_ORE);
  * BlockPos nearest = BlockSearchHelper.findNearest(world, center, 32, Blocks.DIAMOND_ORE);
+ *
+ * // One allocation-free pass over several targets
+ * var ores = BlockSearchHelper.matchingAny(Blocks.IRON_ORE, Blocks.DEEPSLATE_IRON_ORE);
+ * BlockSearchHelper.visitInRadius(world, center, 32, ores, (pos, state) -&gt; {
+ *     veins.add(pos.asLong());
+ *     return true;
+ * });
  * </pre>
  */
 public final class BlockSearchHelper {
@@ -34,21 +84,30 @@ public final class BlockSearchHelper {
     @NotNull
     public static List<BlockPos> findInRadius(@NotNull World world, @NotNull BlockPos center,
             int radius, @NotNull Block block) {
-        List<BlockPos> results = new ArrayList<>();
-
-        for (int x = -radius; x <= radius; x++) {
-            for (int y = -radius; y <= radius; y++) {
-                for (int z = -radius; z <= radius; z++) {
-                    if (x * x + y * y + z * z <= radius * radius) {
-                        BlockPos pos = center.add(x, y, z);
-                        if (world.getBlockState(pos).getBlock() == block) {
-                            results.add(pos);
-                        }
-                    }
-                }
-            }
-        }
+        return findInRadius(world, center, radius, block, null);
+    }
 
+    /**
+     * Finds all blocks of a specific type within a spherical radius, optionally reading only
+     * chunks that are already loaded.
+     *
+     * @param world the world to search in
+     * @param center the center position
+     * @param radius the search radius
+     * @param block the block type to find
+     * @param loadedOnly records the unloaded chunks that were skipped, or null to load chunks as
+     *        needed
+     * @return list of matching block positions
+     * @see LoadedOnly
+     */
+    @NotNull
+    public static List<BlockPos> findInRadius(@NotNull World world, @NotNull BlockPos center,
+            int radius, @NotNull Block block, @Nullable LoadedOnly loadedOnly) {
+        List<BlockPos> results = new ArrayList<>();
+        scanSphere(world, center, radius, matching(block), loadedOnly, (x, y, z, state) -> {
+            results.add(new BlockPos(x, y, z));
+            return true;
+        });
         return results;
     }
 
@@ -64,31 +123,36 @@ public final class BlockSearchHelper {
     @NotNull
     public static List<BlockPos> findInBox(@NotNull World world, @NotNull BlockPos from,
             @NotNull BlockPos to, @NotNull Block block) {
-        List<BlockPos> results = new ArrayList<>();
-
-        int minX = Math.min(from.getX(), to.getX());
-        int maxX = Math.max(from.getX(), to.getX());
-        int minY = Math.min(from.getY(), to.getY());
-        int maxY = Math.max(from.getY(), to.getY());
-        int minZ = Math.min(from.getZ(), to.getZ());
-        int maxZ = Math.max(from.getZ(), to.getZ());
-
-        for (int x = minX; x <= maxX; x++) {
-            for (int y = minY; y <= maxY; y++) {
-                for (int z = minZ; z <= maxZ; z++) {
-                    BlockPos pos = new BlockPos(x, y, z);
-                    if (world.getBlockState(pos).getBlock() == block) {
-                        results.add(pos);
-                    }
-                }
-            }
-        }
+        return findInBox(world, from, to, block, null);
+    }
 
+    /**
+     * Finds all blocks within a cubic area, optionally reading only chunks that are already
+     * loaded.
+     *
+     * @param world the world to search in
+     * @param from the starting corner
+     * @param to the ending corner
+     * @param block the block type to find
+     * @param loadedOnly records the unloaded chunks that were skipped, or null to load chunks as
+     *        needed
+     * @return list of matching block positions
+     * @see LoadedOnly
+     */
+    @NotNull
+    public static List<BlockPos> findInBox(@NotNull World world, @NotNull BlockPos from,
+            @NotNull BlockPos to, @NotNull Block block, @Nullable LoadedOnly loadedOnly) {
+        List<BlockPos> results = new ArrayList<>();
+        scanBox(world, from, to, matching(block), loadedOnly, (x, y, z, state) -> {
+            results.add(new BlockPos(x, y, z));
+            return true;
+        });
         return results;
     }
 
     /**
-     * Finds the nearest block of a specific type within a radius.
+     * Finds the nearest block of a specific type within a radius, searching outward from the
+     * center and stopping at the first match.
      *
      * @param world the world to search in
      * @param center the center position
@@ -96,28 +160,10 @@ public final class BlockSearchHelper {
      * @param block the block type to find
      * @return the nearest matching position, or null if none found
      */
-    @NotNull
+    @Nullable
     public static BlockPos findNearest(@NotNull World world, @NotNull BlockPos center, int radius,
             @NotNull Block block) {
-        BlockPos nearest = null;
-        double nearestDistSq = Double.MAX_VALUE;
-
-        for (int x = -radius; x <= radius; x++) {
-            for (int y = -radius; y <= radius; y++) {
-                for (int z = -radius; z <= radius; z++) {
-                    int distSq = x * x + y * y + z * z;
-                    if (distSq <= radius * radius && distSq < nearestDistSq) {
-                        BlockPos pos = center.add(x, y, z);
-                        if (world.getBlockState(pos).getBlock() == block) {
-                            nearest = pos;
-                            nearestDistSq = distSq;
-                        }
-                    }
-                }
-            }
-        }
-
-        return nearest;
+        return findNearest(world, center, radius, matching(block));
     }
 
     /**
@@ -131,22 +177,7 @@ public final class BlockSearchHelper {
      */
     public static int countInRadius(@NotNull World world, @NotNull BlockPos center, int radius,
             @NotNull Block block) {
-        int count = 0;
-
-        for (int x = -radius; x <= radius; x++) {
-            for (int y = -radius; y <= radius; y++) {
-                for (int z = -radius; z <= radius; z++) {
-                    if (x * x + y * y + z * z <= radius * radius) {
-                        BlockPos pos = center.add(x, y, z);
-                        if (world.getBlockState(pos).getBlock() == block) {
-                            count++;
-                        }
-                    }
-                }
-            }
-        }
-
-        return count;
+        return countInRadius(world, center, radius, matching(block));
     }
 
     /**
@@ -160,25 +191,18 @@ public final class BlockSearchHelper {
      */
     public static boolean existsInRadius(@NotNull World world, @NotNull BlockPos center, int radius,
             @NotNull Block block) {
-        for (int x = -radius; x <= radius; x++) {
-            for (int y = -radius; y <= radius; y++) {
-                for (int z = -radius; z <= radius; z++) {
-                    if (x * x + y * y + z * z <= radius * radius) {
-                        BlockPos pos = center.add(x, y, z);
-                        if (world.getBlockState(pos).getBlock() == block) {
-                            return true;
-                        }
-                    }
-                }
-            }
-        }
-
-        return false;
+        return !scanSphere(world, center, radius, matching(block), null,
+                (x, y, z, state) -> false);
     }
 
     /**
      * Replaces all blocks of one type with another within a radius.
      *
+     * <p>
+     * On a server world this uses the bulk-edit engine described at
+     * {@link #replaceInRadius(ServerWorld, BlockPos, int, Predicate, BlockState, LoadedOnly)};
+     * elsewhere each block is set through {@code World.setBlockState}.
+     *
      * @param world the world to modify
      * @param center the center position
      * @param radius the search radius
@@ -188,22 +212,2311 @@ public final class BlockSearchHelper {
      */
     public static int replaceInRadius(@NotNull World world, @NotNull BlockPos center, int radius,
             @NotNull Block from, @NotNull Block to) {
-        int count = 0;
-
-        for (int x = -radius; x <= radius; x++) {
-            for (int y = -radius; y <= radius; y++) {
-                for (int z = -radius; z <= radius; z++) {
-                    if (x * x + y * y + z * z <= radius * radius) {
-                        BlockPos pos = center.add(x, y, z);
-                        if (world.getBlockState(pos).getBlock() == from) {
-                            world.setBlockState(pos, to.getDefaultState());
-                            count++;
-                        }
-                    }
+        if (world instanceof ServerWorld serverWorld) {
+            return replaceInRadius(serverWorld, center, radius, matching(from),
+                    to.getDefaultState(), null);
+        }
+        List<BlockPos> matches = findInRadius(world, center, radius, from);
+        BlockState state = to.getDefaultState();
+        for (BlockPos pos : matches) {
+            world.setBlockState(pos, state);
+        }
+        return matches.size();
+    }
+
+    // ═════════════════════════════════════════════════════════════════════════════════
+    // Streaming visitors and packed results
+    // ═════════════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Receives matching blocks from a streaming search.
+     *
+     * <p>
+     * The position is a single {@link BlockPos.Mutable} reused for every call; copy it with
+     * {@link BlockPos#toImmutable()} or {@link BlockPos#asLong()} if it must outlive the call.
+     */
+    @FunctionalInterface
+    public interface BlockVisitor {
+        /**
+         * Visits one matching block.
+         *
+         * @param pos the block position, only valid during this call
+         * @param state the block state at that position
+         * @return true to keep searching, false to stop
+         */
+        boolean visit(@NotNull BlockPos.Mutable pos, @NotNull BlockState state);
+    }
+
+    /**
+     * Creates a matcher for any of the given blocks, so one pass can look for several targets.
+     *
+     * @param blocks the blocks to match
+     * @return a predicate matching states of any of the blocks
+     */
+    @NotNull
+    public static Predicate<BlockState> matchingAny(@NotNull Block... blocks) {
+        return matchingAny(Arrays.asList(blocks));
+    }
+
+    /**
+     * Creates a matcher for any block in a collection, compared by identity.
+     *
+     * @param blocks the blocks to match
+     * @return a predicate matching states of any of the blocks
+     */
+    @NotNull
+    public static Predicate<BlockState> matchingAny(@NotNull Collection<Block> blocks) {
+        if (blocks.size() == 1) {
+            return matching(blocks.iterator().next());
+        }
+        Set<Block> targets = new ReferenceOpenHashSet<>(blocks);
+        return state -> targets.contains(state.getBlock());
+    }
+
+    /**
+     * Streams every matching block within a spherical radius to a visitor without allocating a
+     * position per block.
+     *
+     * @param world the world to search in
+     * @param center the center position
+     * @param radius the search radius
+     * @param matcher selects the block states to visit
+     * @param visitor receives each match and can stop the search
+     * @return true if the search completed, false if the visitor stopped it
+     */
+    public static boolean visitInRadius(@NotNull World world, @NotNull BlockPos center,
+            int radius, @NotNull Predicate<BlockState> matcher, @NotNull BlockVisitor visitor) {
+        return visitInRadius(world, center, radius, matcher, visitor, null);
+    }
+
+    /**
+     * Streams every matching block within a spherical radius to a visitor, optionally reading
+     * only chunks that are already loaded.
+     *
+     * @param world the world to search in
+     * @param center the center position
+     * @param radius the search radius
+     * @param matcher selects the block states to visit
+     * @param visitor receives each match and can stop the search
+     * @param loadedOnly records the unloaded chunks that were skipped, or null to load chunks as
+     *        needed
+     * @return true if the search completed, false if the visitor stopped it
+     * @see LoadedOnly
+     */
+    public static boolean visitInRadius(@NotNull World world, @NotNull BlockPos center,
+            int radius, @NotNull Predicate<BlockState> matcher, @NotNull BlockVisitor visitor,
+            @Nullable LoadedOnly loadedOnly) {
+        var cursor = new BlockPos.Mutable();
+        return scanSphere(world, center, radius, matcher, loadedOnly,
+                (x, y, z, state) -> visitor.visit(cursor.set(x, y, z), state));
+    }
+
+    /**
+     * Streams every matching block within a cubic area to a visitor without allocating a position
+     * per block.
+     *
+     * @param world the world to search in
+     * @param from the starting corner
+     * @param to the ending corner
+     * @param matcher selects the block states to visit
+     * @param visitor receives each match and can stop the search
+     * @return true if the search completed, false if the visitor stopped it
+     */
+    public static boolean visitInBox(@NotNull World world, @NotNull BlockPos from,
+            @NotNull BlockPos to, @NotNull Predicate<BlockState> matcher,
+            @NotNull BlockVisitor visitor) {
+        return visitInBox(world, from, to, matcher, visitor, null);
+    }
+
+    /**
+     * Streams every matching block within a cubic area to a visitor, optionally reading only
+     * chunks that are already loaded.
+     *
+     * @param world the world to search in
+     * @param from the starting corner
+     * @param to the ending corner
+     * @param matcher selects the block states to visit
+     * @param visitor receives each match and can stop the search
+     * @param loadedOnly records the unloaded chunks that were skipped, or null to load chunks as
+     *        needed
+     * @return true if the search completed, false if the visitor stopped it
+     * @see LoadedOnly
+     */
+    public static boolean visitInBox(@NotNull World world, @NotNull BlockPos from,
+            @NotNull BlockPos to, @NotNull Predicate<BlockState> matcher,
+            @NotNull BlockVisitor visitor, @Nullable LoadedOnly loadedOnly) {
+        var cursor = new BlockPos.Mutable();
+        return scanBox(world, from, to, matcher, loadedOnly,
+                (x, y, z, state) -> visitor.visit(cursor.set(x, y, z), state));
+    }
+
+    /**
+     * Finds all matching blocks within a spherical radius as packed {@link BlockPos#asLong()}
+     * values. Unpack with {@link BlockPos#fromLong} or {@code BlockPos.Mutable.set(long)}.
+     *
+     * @param world the world to search in
+     * @param center the center position
+     * @param radius the search radius
+     * @param matcher selects the block states to find
+     * @return the packed positions of every match
+     */
+    @NotNull
+    public static LongArrayList findInRadiusPacked(@NotNull World world,
+            @NotNull BlockPos center, int radius, @NotNull Predicate<BlockState> matcher) {
+        return findInRadiusPacked(world, center, radius, matcher, new LongArrayList());
+    }
+
+    /**
+     * Appends the packed positions of all matching blocks within a spherical radius to an
+     * existing list, so a caller scanning repeatedly can reuse one buffer.
+     *
+     * @param world the world to search in
+     * @param center the center position
+     * @param radius the search radius
+     * @param matcher selects the block states to find
+     * @param results the list to append to
+     * @return {@code results}
+     */
+    @NotNull
+    public static LongArrayList findInRadiusPacked(@NotNull World world,
+            @NotNull BlockPos center, int radius, @NotNull Predicate<BlockState> matcher,
+            @NotNull LongArrayList results) {
+        return findInRadiusPacked(world, center, radius, matcher, results, null);
+    }
+
+    /**
+     * Appends the packed positions of all matching blocks within a spherical radius to an
+     * existing list, optionally reading only chunks that are already loaded.
+     *
+     * @param world the world to search in
+     * @param center the center position
+     * @param radius the search radius
+     * @param matcher selects the block states to find
+     * @param results the list to append to
+     * @param loadedOnly records the unloaded chunks that were skipped, or null to load chunks as
+     *        needed
+     * @return {@code results}
+     * @see LoadedOnly
+     */
+    @NotNull
+    public static LongArrayList findInRadiusPacked(@NotNull World world,
+            @NotNull BlockPos center, int radius, @NotNull Predicate<BlockState> matcher,
+            @NotNull LongArrayList results, @Nullable LoadedOnly loadedOnly) {
+        scanSphere(world, center, radius, matcher, loadedOnly, (x, y, z, state) -> {
+            results.add(BlockPos.asLong(x, y, z));
+            return true;
+        });
+        return results;
+    }
+
+    /**
+     * Finds all matching blocks within a cubic area as packed {@link BlockPos#asLong()} values.
+     *
+     * @param world the world to search in
+     * @param from the starting corner
+     * @param to the ending corner
+     * @param matcher selects the block states to find
+     * @return the packed positions of every match
+     */
+    @NotNull
+    public static LongArrayList findInBoxPacked(@NotNull World world, @NotNull BlockPos from,
+            @NotNull BlockPos to, @NotNull Predicate<BlockState> matcher) {
+        return findInBoxPacked(world, from, to, matcher, new LongArrayList());
+    }
+
+    /**
+     * Appends the packed positions of all matching blocks within a cubic area to an existing
+     * list.
+     *
+     * @param world the world to search in
+     * @param from the starting corner
+     * @param to the ending corner
+     * @param matcher selects the block states to find
+     * @param results the list to append to
+     * @return {@code results}
+     */
+    @NotNull
+    public static LongArrayList findInBoxPacked(@NotNull World world, @NotNull BlockPos from,
+            @NotNull BlockPos to, @NotNull Predicate<BlockState> matcher,
+            @NotNull LongArrayList results) {
+        return findInBoxPacked(world, from, to, matcher, results, null);
+    }
+
+    /**
+     * Appends the packed positions of all matching blocks within a cubic area to an existing
+     * list, optionally reading only chunks that are already loaded.
+     *
+     * @param world the world to search in
+     * @param from the starting corner
+     * @param to the ending corner
+     * @param matcher selects the block states to find
+     * @param results the list to append to
+     * @param loadedOnly records the unloaded chunks that were skipped, or null to load chunks as
+     *        needed
+     * @return {@code results}
+     * @see LoadedOnly
+     */
+    @NotNull
+    public static LongArrayList findInBoxPacked(@NotNull World world, @NotNull BlockPos from,
+            @NotNull BlockPos to, @NotNull Predicate<BlockState> matcher,
+            @NotNull LongArrayList results, @Nullable LoadedOnly loadedOnly) {
+        scanBox(world, from, to, matcher, loadedOnly, (x, y, z, state) -> {
+            results.add(BlockPos.asLong(x, y, z));
+            return true;
+        });
+        return results;
+    }
+
+    /**
+     * Counts matching blocks within a spherical radius.
+     *
+     * @param world the world to search in
+     * @param center the center position
+     * @param radius the search radius
+     * @param matcher selects the block states to count
+     * @return the number of matching blocks
+     */
+    public static int countInRadius(@NotNull World world, @NotNull BlockPos center, int radius,
+            @NotNull Predicate<BlockState> matcher) {
+        return countInRadius(world, center, radius, matcher, null);
+    }
+
+    /**
+     * Counts matching blocks within a spherical radius, optionally reading only chunks that are
+     * already loaded.
+     *
+     * @param world the world to search in
+     * @param center the center position
+     * @param radius the search radius
+     * @param matcher selects the block states to count
+     * @param loadedOnly records the unloaded chunks that were skipped, or null to load chunks as
+     *        needed
+     * @return the number of matching blocks
+     * @see LoadedOnly
+     */
+    public static int countInRadius(@NotNull World world, @NotNull BlockPos center, int radius,
+            @NotNull Predicate<BlockState> matcher, @Nullable LoadedOnly loadedOnly) {
+        int[] count = {0};
+        scanSphere(world, center, radius, matcher, loadedOnly, (x, y, z, state) -> {
+            count[0]++;
+            return true;
+        });
+        return count[0];
+    }
+
+    // ═════════════════════════════════════════════════════════════════════════════════
+    // Nearest-first search
+    // ═════════════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Largest radius served by the precomputed shell table. Wider searches check this radius
+     * nearest-first and fall back to a section scan for the rest.
+     */
+    public static final int MAX_SPIRAL_RADIUS = 32;
+
+    /**
+     * Finds the nearest block matching a predicate within a radius.
+     *
+     * <p>
+     * Positions are visited in order of increasing distance from {@code center}, so the search
+     * returns at the first match instead of scanning the whole sphere; a block right next to the
+     * center costs a handful of lookups. Sections whose palette cannot match are skipped as in
+     * the other searches. When several blocks are equally near, any one of them may be returned.
+     *
+     * @param world the world to search in
+     * @param center the center position
+     * @param radius the search radius
+     * @param matcher selects the block states to find
+     * @return the nearest matching position, or null if none found
+     */
+    @Nullable
+    public static BlockPos findNearest(@NotNull World world, @NotNull BlockPos center, int radius,
+            @NotNull Predicate<BlockState> matcher) {
+        return findNearest(world, center, radius, matcher, null);
+    }
+
+    /**
+     * Finds the nearest block matching a predicate within a radius, optionally reading only
+     * chunks that are already loaded. In loaded-only mode the result is the nearest match among
+     * loaded chunks; a nearer one may sit in a chunk reported as skipped.
+     *
+     * @param world the world to search in
+     * @param center the center position
+     * @param radius the search radius
+     * @param matcher selects the block states to find
+     * @param loadedOnly records the unloaded chunks that were skipped, or null to load chunks as
+     *        needed
+     * @return the nearest matching position, or null if none found
+     * @see LoadedOnly
+     */
+    @Nullable
+    public static BlockPos findNearest(@NotNull World world, @NotNull BlockPos center, int radius,
+            @NotNull Predicate<BlockState> matcher, @Nullable LoadedOnly loadedOnly) {
+        var nearest = findKNearest(world, center, radius, matcher, 1, loadedOnly);
+        return nearest.isEmpty() ? null : nearest.get(0);
+    }
+
+    /**
+     * Finds up to {@code k} matching blocks nearest to a center, nearest first.
+     *
+     * <p>
+     * Visits positions in order of increasing distance like
+     * {@link #findNearest(World, BlockPos, int, Predicate)} and stops once {@code k} matches are
+     * found. Ties at the boundary distance are broken arbitrarily.
+     *
+     * @param world the world to search in
+     * @param center the center position
+     * @param radius the search radius
+     * @param matcher selects the block states to find
+     * @param k the maximum number of positions to return
+     * @return the nearest matching positions in order of increasing distance
+     */
+    @NotNull
+    public static List<BlockPos> findKNearest(@NotNull World world, @NotNull BlockPos center,
+            int radius, @NotNull Predicate<BlockState> matcher, int k) {
+        return findKNearest(world, center, radius, matcher, k, null);
+    }
+
+    /**
+     * Finds up to {@code k} matching blocks nearest to a center, optionally reading only chunks
+     * that are already loaded.
+     *
+     * @param world the world to search in
+     * @param center the center position
+     * @param radius the search radius
+     * @param matcher selects the block states to find
+     * @param k the maximum number of positions to return
+     * @param loadedOnly records the unloaded chunks that were skipped, or null to load chunks as
+     *        needed
+     * @return the nearest matching positions in order of increasing distance
+     * @see LoadedOnly
+     */
+    @NotNull
+    public static List<BlockPos> findKNearest(@NotNull World world, @NotNull BlockPos center,
+            int radius, @NotNull Predicate<BlockState> matcher, int k,
+            @Nullable LoadedOnly loadedOnly) {
+        List<BlockPos> results = new ArrayList<>();
+        if (k <= 0 || radius < 0) {
+            return results;
+        }
+        int spiralRadius = Math.min(radius, MAX_SPIRAL_RADIUS);
+        var sections = new SectionLookup(world, center, spiralRadius, matcher, loadedOnly);
+        int[] offsets = SpiralTable.OFFSETS;
+        int end = SpiralTable.SHELL_END[spiralRadius];
+        for (int i = 0; i < end; i++) {
+            int offset = offsets[i];
+            int x = center.getX() + SpiralTable.offsetX(offset);
+            int y = center.getY() + SpiralTable.offsetY(offset);
+            int z = center.getZ() + SpiralTable.offsetZ(offset);
+            BlockState state = sections.getCandidate(x, y, z);
+            if (state != null && matcher.test(state)) {
+                results.add(new BlockPos(x, y, z));
+                if (results.size() == k) {
+                    return results;
                 }
             }
         }
+        if (radius > spiralRadius) {
+            results.addAll(scanNearest(world, center, radius, (long) spiralRadius * spiralRadius,
+                    matcher, k - results.size(), loadedOnly));
+        }
+        return results;
+    }
+
+    /**
+     * Finds the nearest matches beyond {@code excludedRadiusSq} with a full section scan, keeping
+     * the best {@code k} in a bounded heap.
+     */
+    private static List<BlockPos> scanNearest(World world, BlockPos center, int radius,
+            long excludedRadiusSq, Predicate<BlockState> matcher, int k,
+            @Nullable LoadedOnly loadedOnly) {
+        Comparator<BlockPos> byDistance = Comparator.comparingDouble(center::getSquaredDistance);
+        PriorityQueue<BlockPos> farthestFirst = new PriorityQueue<>(byDistance.reversed());
+        scanSphere(world, center, radius, matcher, loadedOnly, (x, y, z, state) -> {
+            long dx = x - center.getX();
+            long dy = y - center.getY();
+            long dz = z - center.getZ();
+            long distSq = dx * dx + dy * dy + dz * dz;
+            if (distSq <= excludedRadiusSq) {
+                return true;
+            }
+            if (farthestFirst.size() < k) {
+                farthestFirst.add(new BlockPos(x, y, z));
+            } else if (distSq < center.getSquaredDistance(farthestFirst.peek())) {
+                farthestFirst.poll();
+                farthestFirst.add(new BlockPos(x, y, z));
+            }
+            return true;
+        });
+        List<BlockPos> nearest = new ArrayList<>(farthestFirst);
+        nearest.sort(byDistance);
+        return nearest;
+    }
 
-        return count;
+    /**
+     * Every offset within {@link #MAX_SPIRAL_RADIUS} of the origin, sorted by squared distance,
+     * with each coordinate packed into a byte of an {@code int}. {@code SHELL_END[r]} is the
+     * number of offsets within radius {@code r}, so one table serves every smaller radius.
+     */
+    static final class SpiralTable {
+        static final int[] OFFSETS;
+        static final int[] SHELL_END = new int[MAX_SPIRAL_RADIUS + 1];
+
+        static {
+            int radius = MAX_SPIRAL_RADIUS;
+            int maxDistSq = radius * radius;
+            // Counting sort by squared distance keeps equal shells in a fixed x-y-z order
+            int[] start = new int[maxDistSq + 2];
+            for (int x = -radius; x <= radius; x++) {
+                for (int y = -radius; y <= radius; y++) {
+                    for (int z = -radius; z <= radius; z++) {
+                        int distSq = x * x + y * y + z * z;
+                        if (distSq <= maxDistSq) {
+                            start[distSq + 1]++;
+                        }
+                    }
+                }
+            }
+            for (int i = 1; i < start.length; i++) {
+                start[i] += start[i - 1];
+            }
+            for (int r = 0; r <= radius; r++) {
+                SHELL_END[r] = start[r * r + 1];
+            }
+            OFFSETS = new int[start[maxDistSq + 1]];
+            for (int x = -radius; x <= radius; x++) {
+                for (int y = -radius; y <= radius; y++) {
+                    for (int z = -radius; z <= radius; z++) {
+                        int distSq = x * x + y * y + z * z;
+                        if (distSq <= maxDistSq) {
+                            OFFSETS[start[distSq]++] = (x & 0xFF) << 16 | (y & 0xFF) << 8
+                                    | (z & 0xFF);
+                        }
+                    }
+                }
+            }
+        }
+
+        private SpiralTable() {}
+
+        static int offsetX(int offset) {
+            return (byte) (offset >> 16);
+        }
+
+        static int offsetY(int offset) {
+            return (byte) (offset >> 8);
+        }
+
+        static int offsetZ(int offset) {
+            return (byte) offset;
+        }
+    }
+
+    /**
+     * Resolves positions to chunk sections for a search around one center, fetching each chunk
+     * at most once and remembering which sections' palettes were ruled out, so visiting positions
+     * out of storage order costs no more than an array lookup per voxel.
+     */
+    private static final class SectionLookup {
+        private static final byte UNKNOWN = 0;
+        private static final byte CANDIDATE = 1;
+        private static final byte SKIPPED = 2;
+
+        private final World world;
+        private final Predicate<BlockState> matcher;
+        @Nullable
+        private final LoadedOnly loadedOnly;
+        private final int minChunkX;
+        private final int minChunkZ;
+        private final int minSectionY;
+        private final int sizeX;
+        private final int sizeY;
+        private final int sizeZ;
+        private final int minY;
+        private final int maxY;
+        private final ChunkSection[] sections;
+        private final byte[] status;
+
+        SectionLookup(World world, BlockPos center, int radius, Predicate<BlockState> matcher,
+                @Nullable LoadedOnly loadedOnly) {
+            this.world = world;
+            this.matcher = matcher;
+            this.loadedOnly = loadedOnly;
+            this.minY = Math.max(center.getY() - radius, world.getBottomY());
+            this.maxY = Math.min(center.getY() + radius, world.getTopYInclusive());
+            this.minChunkX = (center.getX() - radius) >> 4;
+            this.minChunkZ = (center.getZ() - radius) >> 4;
+            this.minSectionY = minY >> 4;
+            this.sizeX = ((center.getX() + radius) >> 4) - minChunkX + 1;
+            this.sizeZ = ((center.getZ() + radius) >> 4) - minChunkZ + 1;
+            this.sizeY = Math.max(0, (maxY >> 4) - minSectionY + 1);
+            this.sections = new ChunkSection[sizeX * sizeY * sizeZ];
+            this.status = new byte[sections.length];
+        }
+
+        /**
+         * Gets the state at a position, or null if the position is outside the world's height,
+         * its section cannot contain a match, or its chunk was skipped as unloaded.
+         */
+        @Nullable
+        BlockState getCandidate(int x, int y, int z) {
+            if (y < minY || y > maxY) {
+                return null;
+            }
+            int index = (((x >> 4) - minChunkX) * sizeZ + ((z >> 4) - minChunkZ)) * sizeY
+                    + ((y >> 4) - minSectionY);
+            if (status[index] == UNKNOWN) {
+                load(x >> 4, z >> 4, index - ((y >> 4) - minSectionY));
+            }
+            if (status[index] == SKIPPED) {
+                return null;
+            }
+            return sections[index].getBlockState(x & 15, y & 15, z & 15);
+        }
+
+        /**
+         * Fetches a chunk once and classifies every section of its column in range.
+         */
+        private void load(int chunkX, int chunkZ, int columnIndex) {
+            Chunk chunk = getChunk(world, chunkX, chunkZ, loadedOnly);
+            if (chunk == null) {
+                Arrays.fill(status, columnIndex, columnIndex + sizeY, SKIPPED);
+                return;
+            }
+            ChunkSection[] chunkSections = chunk.getSectionArray();
+            for (int i = 0; i < sizeY; i++) {
+                ChunkSection section = chunkSections[world.sectionCoordToIndex(minSectionY + i)];
+                sections[columnIndex + i] = section;
+                status[columnIndex + i] = section.hasAny(matcher) ? CANDIDATE : SKIPPED;
+            }
+        }
+    }
+
+    // ═════════════════════════════════════════════════════════════════════════════════
+    // Flood fill
+    // ═════════════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Which neighbours count as connected in a flood fill.
+     */
+    public enum Neighborhood {
+        /** The 6 blocks sharing a face. */
+        FACES(faceOffsets()),
+        /** All 26 blocks sharing a face, edge or corner. */
+        CUBE(cubeOffsets());
+
+        private final int[] offsets;
+
+        Neighborhood(int[] offsets) {
+            this.offsets = offsets;
+        }
+
+        private static int[] faceOffsets() {
+            return new int[] {-1, 0, 0, 1, 0, 0, 0, -1, 0, 0, 1, 0, 0, 0, -1, 0, 0, 1};
+        }
+
+        private static int[] cubeOffsets() {
+            int[] offsets = new int[26 * 3];
+            int i = 0;
+            for (int x = -1; x <= 1; x++) {
+                for (int y = -1; y <= 1; y++) {
+                    for (int z = -1; z <= 1; z++) {
+                        if (x != 0 || y != 0 || z != 0) {
+                            offsets[i++] = x;
+                            offsets[i++] = y;
+                            offsets[i++] = z;
+                        }
+                    }
+                }
+            }
+            return offsets;
+        }
+    }
+
+    /**
+     * Collects the blocks connected to {@code start} through face-adjacent matching blocks, such
+     * as an ore vein.
+     *
+     * @param world the world to search in
+     * @param start the position to fill from
+     * @param matcher selects the block states that belong to the component
+     * @param maxSize the maximum number of positions to collect
+     * @return the packed positions of the component, nearest steps first
+     * @see #floodFill(World, BlockPos, Predicate, Neighborhood, int, int, LoadedOnly)
+     */
+    @NotNull
+    public static LongArrayList floodFill(@NotNull World world, @NotNull BlockPos start,
+            @NotNull Predicate<BlockState> matcher, int maxSize) {
+        return floodFill(world, start, matcher, Neighborhood.FACES, maxSize, Integer.MAX_VALUE,
+                null);
+    }
+
+    /**
+     * Collects the connected component of matching blocks containing {@code start}, for vein
+     * miners, tree fellers, fluid bodies and the like.
+     *
+     * <p>
+     * The fill runs breadth-first, so positions come out in order of increasing step count from
+     * {@code start}, and it stops once {@code maxSize} positions are collected. Positions farther
+     * than {@code maxDistance} (straight-line) from {@code start} are treated as not matching.
+     * Visited positions are tracked in a bitset over the reachable box when the distance cap
+     * keeps it small, and in a packed-long hash set otherwise; sections whose palette cannot
+     * match are rejected without reading them.
+     *
+     * @param world the world to search in
+     * @param start the position to fill from
+     * @param matcher selects the block states that belong to the component
+     * @param neighborhood which neighbours count as connected
+     * @param maxSize the maximum number of positions to collect
+     * @param maxDistance the maximum distance from {@code start}, or {@link Integer#MAX_VALUE}
+     *        for no limit
+     * @param loadedOnly records the unloaded chunks that were skipped, or null to load chunks as
+     *        needed
+     * @return the packed positions of the component, or an empty list if {@code start} does not
+     *         match
+     */
+    @NotNull
+    public static LongArrayList floodFill(@NotNull World world, @NotNull BlockPos start,
+            @NotNull Predicate<BlockState> matcher, @NotNull Neighborhood neighborhood,
+            int maxSize, int maxDistance, @Nullable LoadedOnly loadedOnly) {
+        var component = new LongArrayList();
+        if (maxSize <= 0 || maxDistance < 0) {
+            return component;
+        }
+        var sections = new ColumnCache(world, matcher, loadedOnly);
+        var visited = new VisitedSet(start, maxDistance);
+        long maxDistanceSq = (long) maxDistance * maxDistance;
+        int[] offsets = neighborhood.offsets;
+        visited.add(start.getX(), start.getY(), start.getZ());
+        BlockState startState = sections.getCandidate(start.getX(), start.getY(), start.getZ());
+        if (startState == null || !matcher.test(startState)) {
+            return component;
+        }
+        // The component doubles as the breadth-first queue
+        component.add(start.asLong());
+        for (int head = 0; head < component.size() && component.size() < maxSize; head++) {
+            long packed = component.getLong(head);
+            int x = BlockPos.unpackLongX(packed);
+            int y = BlockPos.unpackLongY(packed);
+            int z = BlockPos.unpackLongZ(packed);
+            for (int i = 0; i < offsets.length; i += 3) {
+                int nx = x + offsets[i];
+                int ny = y + offsets[i + 1];
+                int nz = z + offsets[i + 2];
+                long dx = nx - start.getX();
+                long dy = ny - start.getY();
+                long dz = nz - start.getZ();
+                if (dx * dx + dy * dy + dz * dz > maxDistanceSq || !visited.add(nx, ny, nz)) {
+                    continue;
+                }
+                BlockState state = sections.getCandidate(nx, ny, nz);
+                if (state != null && matcher.test(state)) {
+                    component.add(BlockPos.asLong(nx, ny, nz));
+                    if (component.size() == maxSize) {
+                        return component;
+                    }
+                }
+            }
+        }
+        return component;
+    }
+
+    /**
+     * Resolves positions to chunk sections for a search with no fixed bounds, fetching each chunk
+     * column once and dropping sections whose palette cannot match.
+     */
+    private static final class ColumnCache {
+        private static final ChunkSection[] UNAVAILABLE = new ChunkSection[0];
+
+        private final World world;
+        private final Predicate<BlockState> matcher;
+        @Nullable
+        private final LoadedOnly loadedOnly;
+        private final Long2ObjectOpenHashMap<ChunkSection[]> columns =
+                new Long2ObjectOpenHashMap<>();
+        private long lastKey;
+        @Nullable
+        private ChunkSection[] lastColumn;
+
+        ColumnCache(World world, Predicate<BlockState> matcher, @Nullable LoadedOnly loadedOnly) {
+            this.world = world;
+            this.matcher = matcher;
+            this.loadedOnly = loadedOnly;
+        }
+
+        /**
+         * Gets the state at a position, or null if the position is outside the world's height,
+         * its section cannot contain a match, or its chunk was skipped as unloaded.
+         */
+        @Nullable
+        BlockState getCandidate(int x, int y, int z) {
+            if (y < world.getBottomY() || y > world.getTopYInclusive()) {
+                return null;
+            }
+            long key = ChunkPos.toLong(x >> 4, z >> 4);
+            ChunkSection[] column = lastColumn;
+            if (column == null || key != lastKey) {
+                column = columns.get(key);
+                if (column == null) {
+                    column = load(x >> 4, z >> 4);
+                    columns.put(key, column);
+                }
+                lastKey = key;
+                lastColumn = column;
+            }
+            if (column == UNAVAILABLE) {
+                return null;
+            }
+            ChunkSection section = column[world.sectionCoordToIndex(y >> 4)];
+            return section == null ? null : section.getBlockState(x & 15, y & 15, z & 15);
+        }
+
+        private ChunkSection[] load(int chunkX, int chunkZ) {
+            Chunk chunk = getChunk(world, chunkX, chunkZ, loadedOnly);
+            if (chunk == null) {
+                return UNAVAILABLE;
+            }
+            ChunkSection[] sections = chunk.getSectionArray();
+            ChunkSection[] candidates = new ChunkSection[sections.length];
+            for (int i = 0; i < sections.length; i++) {
+                if (sections[i].hasAny(matcher)) {
+                    candidates[i] = sections[i];
+                }
+            }
+            return candidates;
+        }
+    }
+
+    /**
+     * Visited positions of a flood fill: a bitset over the box within {@code maxDistance} of the
+     * start when that box is small enough, otherwise a hash set of packed positions.
+     */
+    static final class VisitedSet {
+        private static final int MAX_BITSET_SPAN = 64;
+
+        private final int originX;
+        private final int originY;
+        private final int originZ;
+        private final int span;
+        @Nullable
+        private final long[] bits;
+        @Nullable
+        private final LongOpenHashSet hashed;
+
+        VisitedSet(BlockPos start, int maxDistance) {
+            if (maxDistance < MAX_BITSET_SPAN / 2) {
+                this.span = 2 * maxDistance + 1;
+                this.originX = start.getX() - maxDistance;
+                this.originY = start.getY() - maxDistance;
+                this.originZ = start.getZ() - maxDistance;
+                this.bits = new long[(span * span * span + 63) >>> 6];
+                this.hashed = null;
+            } else {
+                this.span = 0;
+                this.originX = 0;
+                this.originY = 0;
+                this.originZ = 0;
+                this.bits = null;
+                this.hashed = new LongOpenHashSet();
+            }
+        }
+
+        /**
+         * Marks a position visited. Positions must lie within {@code maxDistance} of the start.
+         *
+         * @return true if the position was not visited before
+         */
+        boolean add(int x, int y, int z) {
+            if (bits == null) {
+                return hashed.add(BlockPos.asLong(x, y, z));
+            }
+            int index = ((x - originX) * span + (y - originY)) * span + (z - originZ);
+            long mask = 1L << index;
+            long word = bits[index >>> 6];
+            if ((word & mask) != 0) {
+                return false;
+            }
+            bits[index >>> 6] = word | mask;
+            return true;
+        }
+    }
+
+    // ═════════════════════════════════════════════════════════════════════════════════
+    // Loaded-only searches
+    // ═════════════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Search mode that reads only chunks that are already loaded and records the ones it skipped.
+     *
+     * <p>
+     * By default a search fetches every chunk it touches, which on a server synchronously loads
+     * or even generates chunks at the edge of loaded terrain and can stall the tick for seconds.
+     * Passing a {@code LoadedOnly} to a search instead treats unloaded chunks as empty and adds
+     * their positions here, so the caller can retry once they load. An instance may be reused
+     * across several searches to collect their skipped chunks together; {@link #clear()} resets
+     * it.
+     *
+     * <pre>
+     * var loadedOnly = new BlockSearchHelper.LoadedOnly();
+     * List&lt;BlockPos&gt; chests = BlockSearchHelper.findInRadius(world, center, 64, Blocks.CHEST,
+     *         loadedOnly);
+     * if (loadedOnly.hasSkipped()) {
+     *     pending.addAll(loadedOnly.getSkippedChunks());
+     * }
+     * </pre>
+     */
+    public static final class LoadedOnly {
+        private final LongOpenHashSet skipped = new LongOpenHashSet();
+
+        /**
+         * Checks whether any search skipped an unloaded chunk.
+         *
+         * @return true if at least one chunk was skipped
+         */
+        public boolean hasSkipped() {
+            return !skipped.isEmpty();
+        }
+
+        /**
+         * Gets the number of distinct chunks skipped.
+         *
+         * @return the skipped chunk count
+         */
+        public int getSkippedCount() {
+            return skipped.size();
+        }
+
+        /**
+         * Checks whether a chunk was skipped.
+         *
+         * @param chunkPos the chunk position
+         * @return true if the chunk was skipped as unloaded
+         */
+        public boolean wasSkipped(@NotNull ChunkPos chunkPos) {
+            return skipped.contains(chunkPos.toLong());
+        }
+
+        /**
+         * Gets the chunks skipped because they were not loaded.
+         *
+         * @return the skipped chunk positions, in no particular order
+         */
+        @NotNull
+        public List<ChunkPos> getSkippedChunks() {
+            List<ChunkPos> chunks = new ArrayList<>(skipped.size());
+            LongIterator iterator = skipped.iterator();
+            while (iterator.hasNext()) {
+                chunks.add(new ChunkPos(iterator.nextLong()));
+            }
+            return chunks;
+        }
+
+        /**
+         * Forgets every skipped chunk so this instance can be reused.
+         */
+        public void clear() {
+            skipped.clear();
+        }
+
+        /**
+         * Checks whether a chunk is loaded, recording it as skipped if not.
+         */
+        boolean isLoaded(World world, int chunkX, int chunkZ) {
+            if (world.getChunkManager().isChunkLoaded(chunkX, chunkZ)) {
+                return true;
+            }
+            skip(chunkX, chunkZ);
+            return false;
+        }
+
+        void skip(int chunkX, int chunkZ) {
+            skipped.add(ChunkPos.toLong(chunkX, chunkZ));
+        }
+    }
+
+    // ═════════════════════════════════════════════════════════════════════════════════
+    // Tick-budgeted search jobs
+    // ═════════════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Runs large searches a slice at a time across server ticks so that no single tick overruns.
+     *
+     * <p>
+     * Each submitted search becomes a job that remembers where it stopped, at chunk-section
+     * granularity, and resumes from there on the next tick. Every tick the scheduler spends at
+     * most its nanosecond budget (a job always gets at least one section so it keeps moving),
+     * dividing the time evenly between queued jobs and rotating which job goes first, so one wide
+     * scan cannot starve the others. The returned future completes on the server thread when the
+     * job finishes. Jobs can be cancelled through their future, and jobs in a world are cancelled
+     * when that world unloads.
+     *
+     * <p>
+     * Submit jobs and call {@link #tick()} from the server thread only. Blocks changed while a job
+     * is running are seen only if the job has not yet passed their section.
+     *
+     * <pre>
+     * static final SearchScheduler SEARCHES =
+     *         new BlockSearchHelper.SearchScheduler(2_000_000).bindToServerTicks();
+     *
+     * SEARCHES.findInRadius(world, center, 128, BlockSearchHelper.matchingAny(Blocks.CHEST), null)
+     *         .thenAccept(chests -&gt; LogHelper.info(LOGGER, "Found {} chests", chests.size()));
+     * </pre>
+     */
+    public static final class SearchScheduler {
+        private final ArrayDeque<SearchJob<?>> jobs = new ArrayDeque<>();
+        private volatile long budgetNanos;
+        @Nullable
+        private TickHelper.Binding tickBinding;
+
+        /**
+         * Creates a scheduler.
+         *
+         * @param budgetNanos the time to spend on jobs per tick, in nanoseconds
+         * @throws IllegalArgumentException if the budget is not positive
+         */
+        public SearchScheduler(long budgetNanos) {
+            setBudgetNanos(budgetNanos);
+        }
+
+        /**
+         * Gets the time spent on jobs per tick.
+         *
+         * @return the budget in nanoseconds
+         */
+        public long getBudgetNanos() {
+            return budgetNanos;
+        }
+
+        /**
+         * Sets the time spent on jobs per tick, taking effect from the next tick.
+         *
+         * @param budgetNanos the budget in nanoseconds
+         * @throws IllegalArgumentException if the budget is not positive
+         */
+        public void setBudgetNanos(long budgetNanos) {
+            if (budgetNanos <= 0) {
+                throw new IllegalArgumentException("budgetNanos must be positive: " + budgetNanos);
+            }
+            this.budgetNanos = budgetNanos;
+        }
+
+        /**
+         * Queues a search for every matching block within a spherical radius.
+         *
+         * @param world the world to search in
+         * @param center the center position
+         * @param radius the search radius
+         * @param matcher selects the block states to find
+         * @param loadedOnly records the unloaded chunks that were skipped, or null to load chunks
+         *        as needed
+         * @return a future of the packed positions of every match
+         */
+        @NotNull
+        public CompletableFuture<LongArrayList> findInRadius(@NotNull ServerWorld world,
+                @NotNull BlockPos center, int radius, @NotNull Predicate<BlockState> matcher,
+                @Nullable LoadedOnly loadedOnly) {
+            var results = new LongArrayList();
+            return submit(world, sphereCursor(world, center, radius, matcher, loadedOnly),
+                    (x, y, z, state) -> {
+                        results.add(BlockPos.asLong(x, y, z));
+                        return true;
+                    }, completed -> results);
+        }
+
+        /**
+         * Queues a search for every matching block within a cubic area.
+         *
+         * @param world the world to search in
+         * @param from the starting corner
+         * @param to the ending corner
+         * @param matcher selects the block states to find
+         * @param loadedOnly records the unloaded chunks that were skipped, or null to load chunks
+         *        as needed
+         * @return a future of the packed positions of every match
+         */
+        @NotNull
+        public CompletableFuture<LongArrayList> findInBox(@NotNull ServerWorld world,
+                @NotNull BlockPos from, @NotNull BlockPos to,
+                @NotNull Predicate<BlockState> matcher, @Nullable LoadedOnly loadedOnly) {
+            var results = new LongArrayList();
+            return submit(world, boxCursor(world, from, to, matcher, loadedOnly),
+                    (x, y, z, state) -> {
+                        results.add(BlockPos.asLong(x, y, z));
+                        return true;
+                    }, completed -> results);
+        }
+
+        /**
+         * Queues a count of matching blocks within a spherical radius.
+         *
+         * @param world the world to search in
+         * @param center the center position
+         * @param radius the search radius
+         * @param matcher selects the block states to count
+         * @param loadedOnly records the unloaded chunks that were skipped, or null to load chunks
+         *        as needed
+         * @return a future of the number of matching blocks
+         */
+        @NotNull
+        public CompletableFuture<Integer> countInRadius(@NotNull ServerWorld world,
+                @NotNull BlockPos center, int radius, @NotNull Predicate<BlockState> matcher,
+                @Nullable LoadedOnly loadedOnly) {
+            int[] count = {0};
+            return submit(world, sphereCursor(world, center, radius, matcher, loadedOnly),
+                    (x, y, z, state) -> {
+                        count[0]++;
+                        return true;
+                    }, completed -> count[0]);
+        }
+
+        /**
+         * Queues a streaming search within a spherical radius. The visitor runs on the server
+         * thread, spread over as many ticks as the search takes.
+         *
+         * @param world the world to search in
+         * @param center the center position
+         * @param radius the search radius
+         * @param matcher selects the block states to visit
+         * @param visitor receives each match and can stop the search
+         * @param loadedOnly records the unloaded chunks that were skipped, or null to load chunks
+         *        as needed
+         * @return a future of true if the search completed, false if the visitor stopped it
+         */
+        @NotNull
+        public CompletableFuture<Boolean> visitInRadius(@NotNull ServerWorld world,
+                @NotNull BlockPos center, int radius, @NotNull Predicate<BlockState> matcher,
+                @NotNull BlockVisitor visitor, @Nullable LoadedOnly loadedOnly) {
+            var cursor = new BlockPos.Mutable();
+            return submit(world, sphereCursor(world, center, radius, matcher, loadedOnly),
+                    (x, y, z, state) -> visitor.visit(cursor.set(x, y, z), state),
+                    completed -> completed);
+        }
+
+        /**
+         * Queues a bulk replacement within a spherical radius, done a slice per tick with the
+         * same direct-to-section engine as {@link BlockSearchHelper#replaceInBox}. Lighting,
+         * neighbour updates and client sync for each slice are applied at the end of that slice,
+         * so players see the edit progress.
+         *
+         * @param world the world to modify
+         * @param center the center position
+         * @param radius the search radius
+         * @param matcher selects the block states to replace
+         * @param replacement the state to place
+         * @param loadedOnly records the unloaded chunks that were skipped, or null to load chunks
+         *        as needed
+         * @return a future of the number of blocks replaced
+         */
+        @NotNull
+        public CompletableFuture<Integer> replaceInRadius(@NotNull ServerWorld world,
+                @NotNull BlockPos center, int radius, @NotNull Predicate<BlockState> matcher,
+                @NotNull BlockState replacement, @Nullable LoadedOnly loadedOnly) {
+            var edit = new BulkEdit(world, replacement, loadedOnly);
+            return submit(world, sphereCursor(world, center, radius, matcher, loadedOnly), edit,
+                    edit::flush, completed -> edit.count);
+        }
+
+        /**
+         * Queues a bulk replacement within a cubic area, done a slice per tick as described for
+         * {@link #replaceInRadius}.
+         *
+         * @param world the world to modify
+         * @param from the starting corner
+         * @param to the ending corner
+         * @param matcher selects the block states to replace
+         * @param replacement the state to place
+         * @param loadedOnly records the unloaded chunks that were skipped, or null to load chunks
+         *        as needed
+         * @return a future of the number of blocks replaced
+         */
+        @NotNull
+        public CompletableFuture<Integer> replaceInBox(@NotNull ServerWorld world,
+                @NotNull BlockPos from, @NotNull BlockPos to,
+                @NotNull Predicate<BlockState> matcher, @NotNull BlockState replacement,
+                @Nullable LoadedOnly loadedOnly) {
+            var edit = new BulkEdit(world, replacement, loadedOnly);
+            return submit(world, boxCursor(world, from, to, matcher, loadedOnly), edit,
+                    edit::flush, completed -> edit.count);
+        }
+
+        /**
+         * Gets the number of jobs still queued.
+         *
+         * @return the pending job count
+         */
+        public int getPendingCount() {
+            return jobs.size();
+        }
+
+        /**
+         * Cancels every queued job in a world.
+         *
+         * @param world the world
+         * @return the number of jobs cancelled
+         */
+        public int cancelAll(@NotNull ServerWorld world) {
+            int cancelled = 0;
+            Iterator<SearchJob<?>> iterator = jobs.iterator();
+            while (iterator.hasNext()) {
+                SearchJob<?> job = iterator.next();
+                if (job.world == world) {
+                    iterator.remove();
+                    job.future.cancel(false);
+                    cancelled++;
+                }
+            }
+            return cancelled;
+        }
+
+        /**
+         * Cancels every queued job.
+         *
+         * @return the number of jobs cancelled
+         */
+        public int cancelAll() {
+            int cancelled = jobs.size();
+            SearchJob<?> job;
+            while ((job = jobs.poll()) != null) {
+                job.future.cancel(false);
+            }
+            return cancelled;
+        }
+
+        /**
+         * Advances queued jobs for up to one tick's budget.
+         */
+        public void tick() {
+            long deadline = System.nanoTime() + budgetNanos;
+            while (!jobs.isEmpty()) {
+                long now = System.nanoTime();
+                if (now >= deadline) {
+                    break;
+                }
+                long slice = (deadline - now) / jobs.size();
+                SearchJob<?> job = jobs.poll();
+                if (job.run(now + slice)) {
+                    jobs.add(job);
+                }
+            }
+        }
+
+        /**
+         * Advances jobs at the end of every server tick and cancels a world's jobs when it
+         * unloads, until {@link #stop()}. Binding a stopped scheduler again resumes it.
+         *
+         * @return this scheduler
+         */
+        @NotNull
+        public synchronized SearchScheduler bindToServerTicks() {
+            if (tickBinding == null) {
+                tickBinding = TickHelper.bindToServerTicks(this::tick, this::cancelAll);
+            }
+            return this;
+        }
+
+        /**
+         * Stops tick-driven processing and cancels every queued job.
+         */
+        public synchronized void stop() {
+            if (tickBinding != null) {
+                tickBinding.unbind();
+                tickBinding = null;
+            }
+            cancelAll();
+        }
+
+        private <R> CompletableFuture<R> submit(ServerWorld world, ScanCursor cursor, Sink sink,
+                Function<Boolean, R> finisher) {
+            return submit(world, cursor, sink, null, finisher);
+        }
+
+        private <R> CompletableFuture<R> submit(ServerWorld world, ScanCursor cursor, Sink sink,
+                @Nullable Runnable afterSlice, Function<Boolean, R> finisher) {
+            var job = new SearchJob<>(world, cursor, sink, afterSlice, finisher);
+            jobs.add(job);
+            return job.future;
+        }
+
+        /**
+         * A queued search: its saved cursor, where matches go, what to do after each slice, and
+         * how to build the result.
+         */
+        private static final class SearchJob<R> {
+            private final ServerWorld world;
+            private final ScanCursor cursor;
+            private final SectionVisitor visitor;
+            @Nullable
+            private final Runnable afterSlice;
+            private final Function<Boolean, R> finisher;
+            private final CompletableFuture<R> future = new CompletableFuture<>();
+
+            SearchJob(ServerWorld world, ScanCursor cursor, Sink sink,
+                    @Nullable Runnable afterSlice, Function<Boolean, R> finisher) {
+                this.world = world;
+                this.cursor = cursor;
+                this.visitor = cursor.scanning(sink);
+                this.afterSlice = afterSlice;
+                this.finisher = finisher;
+            }
+
+            /**
+             * Scans sections until the job finishes or {@code until} passes.
+             *
+             * @return true if the job still has work left
+             */
+            boolean run(long until) {
+                if (future.isDone()) {
+                    return false;
+                }
+                try {
+                    boolean stopped = false;
+                    do {
+                        if (!cursor.isDone() && !cursor.step(visitor)) {
+                            stopped = true;
+                        }
+                    } while (!cursor.isDone() && System.nanoTime() < until);
+                    cursor.releaseColumn();
+                    if (afterSlice != null) {
+                        afterSlice.run();
+                    }
+                    if (cursor.isDone()) {
+                        future.complete(finisher.apply(!stopped));
+                        return false;
+                    }
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                    return false;
+                }
+                return true;
+            }
+        }
+    }
+
+    // ═════════════════════════════════════════════════════════════════════════════════
+    // Parallel scanning
+    // ═════════════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Finds all matching blocks within a cubic area using worker threads.
+     *
+     * <p>
+     * On the calling thread, which must be the server thread, every chunk section in the area
+     * whose palette can hold a match is copied; sections that cannot match are neither copied
+     * nor read. Each copy is then scanned as its own task on {@code pool}, and the combined
+     * result is handed back to the server thread, where the returned future completes. The
+     * copies are private to the search, so the world can keep changing meanwhile; the result
+     * reflects the world at the time of the call. {@code matcher} runs on worker threads and
+     * must be thread-safe.
+     *
+     * <pre>
+     * var diamonds =
+     *         BlockSearchHelper.matchingAny(Blocks.DIAMOND_ORE, Blocks.DEEPSLATE_DIAMOND_ORE);
+     * BlockSearchHelper.countInBoxParallel(world, new BlockPos(-512, -64, -512),
+     *         new BlockPos(511, 16, 511), diamonds, new BlockSearchHelper.LoadedOnly(),
+     *         ForkJoinPool.commonPool())
+     *         .thenAccept(count -&gt; LogHelper.info(LOGGER, "{} diamond ores", count));
+     * </pre>
+     *
+     * @param world the world to search in
+     * @param from the starting corner
+     * @param to the ending corner
+     * @param matcher selects the block states to find
+     * @param loadedOnly records the unloaded chunks that were skipped, or null to load chunks as
+     *        needed
+     * @param pool the pool to scan sections on
+     * @return a future of the packed positions of every match, completed on the server thread
+     */
+    @NotNull
+    public static CompletableFuture<LongArrayList> findInBoxParallel(@NotNull ServerWorld world,
+            @NotNull BlockPos from, @NotNull BlockPos to, @NotNull Predicate<BlockState> matcher,
+            @Nullable LoadedOnly loadedOnly, @NotNull ForkJoinPool pool) {
+        return scanParallel(world, boxCursor(world, from, to, matcher, loadedOnly), true, pool,
+                BlockSearchHelper::mergeFound);
+    }
+
+    /**
+     * Counts matching blocks within a cubic area using worker threads, as described for
+     * {@link #findInBoxParallel}.
+     *
+     * @param world the world to search in
+     * @param from the starting corner
+     * @param to the ending corner
+     * @param matcher selects the block states to count
+     * @param loadedOnly records the unloaded chunks that were skipped, or null to load chunks as
+     *        needed
+     * @param pool the pool to scan sections on
+     * @return a future of the number of matching blocks, completed on the server thread
+     */
+    @NotNull
+    public static CompletableFuture<Integer> countInBoxParallel(@NotNull ServerWorld world,
+            @NotNull BlockPos from, @NotNull BlockPos to, @NotNull Predicate<BlockState> matcher,
+            @Nullable LoadedOnly loadedOnly, @NotNull ForkJoinPool pool) {
+        return scanParallel(world, boxCursor(world, from, to, matcher, loadedOnly), false, pool,
+                BlockSearchHelper::mergeCount);
+    }
+
+    /**
+     * Finds all matching blocks within a spherical radius using worker threads, as described for
+     * {@link #findInBoxParallel}.
+     *
+     * @param world the world to search in
+     * @param center the center position
+     * @param radius the search radius
+     * @param matcher selects the block states to find
+     * @param loadedOnly records the unloaded chunks that were skipped, or null to load chunks as
+     *        needed
+     * @param pool the pool to scan sections on
+     * @return a future of the packed positions of every match, completed on the server thread
+     */
+    @NotNull
+    public static CompletableFuture<LongArrayList> findInRadiusParallel(
+            @NotNull ServerWorld world, @NotNull BlockPos center, int radius,
+            @NotNull Predicate<BlockState> matcher, @Nullable LoadedOnly loadedOnly,
+            @NotNull ForkJoinPool pool) {
+        return scanParallel(world, sphereCursor(world, center, radius, matcher, loadedOnly), true,
+                pool, BlockSearchHelper::mergeFound);
+    }
+
+    /**
+     * Counts matching blocks within a spherical radius using worker threads, as described for
+     * {@link #findInBoxParallel}.
+     *
+     * @param world the world to search in
+     * @param center the center position
+     * @param radius the search radius
+     * @param matcher selects the block states to count
+     * @param loadedOnly records the unloaded chunks that were skipped, or null to load chunks as
+     *        needed
+     * @param pool the pool to scan sections on
+     * @return a future of the number of matching blocks, completed on the server thread
+     */
+    @NotNull
+    public static CompletableFuture<Integer> countInRadiusParallel(@NotNull ServerWorld world,
+            @NotNull BlockPos center, int radius, @NotNull Predicate<BlockState> matcher,
+            @Nullable LoadedOnly loadedOnly, @NotNull ForkJoinPool pool) {
+        return scanParallel(world, sphereCursor(world, center, radius, matcher, loadedOnly), false,
+                pool, BlockSearchHelper::mergeCount);
+    }
+
+    /**
+     * Snapshots the candidate sections of a scan on the calling thread, scans them in parallel
+     * and completes the returned future on the server thread.
+     */
+    private static <R> CompletableFuture<R> scanParallel(ServerWorld world, ScanCursor cursor,
+            boolean collect, ForkJoinPool pool, Function<List<SectionTask>, R> combiner) {
+        List<SectionTask> tasks = new ArrayList<>();
+        cursor.run((states, minX, minY, minZ, maxX, maxY, maxZ) -> {
+            tasks.add(new SectionTask(states.copy(), minX, minY, minZ, maxX, maxY, maxZ,
+                    cursor.center, cursor.radiusSq, cursor.matcher, collect));
+            return true;
+        });
+        var result = new CompletableFuture<R>();
+        CompletableFuture.supplyAsync(() -> {
+            ForkJoinTask.invokeAll(tasks);
+            return combiner.apply(tasks);
+        }, pool).whenComplete((value, error) -> world.getServer().execute(() -> {
+            if (error == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(
+                        error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause()
+                                : error);
+            }
+        }));
+        return result;
+    }
+
+    private static LongArrayList mergeFound(List<SectionTask> tasks) {
+        int total = 0;
+        for (SectionTask task : tasks) {
+            total += task.count;
+        }
+        var merged = new LongArrayList(total);
+        for (SectionTask task : tasks) {
+            merged.addAll(task.found);
+        }
+        return merged;
+    }
+
+    private static Integer mergeCount(List<SectionTask> tasks) {
+        int total = 0;
+        for (SectionTask task : tasks) {
+            total += task.count;
+        }
+        return total;
+    }
+
+    /**
+     * Scans one copied section on a worker thread.
+     */
+    private static final class SectionTask extends RecursiveAction {
+        private final PalettedContainer<BlockState> states;
+        private final int minX;
+        private final int minY;
+        private final int minZ;
+        private final int maxX;
+        private final int maxY;
+        private final int maxZ;
+        @Nullable
+        private final BlockPos center;
+        private final long radiusSq;
+        private final Predicate<BlockState> matcher;
+        @Nullable
+        private final LongArrayList found;
+        private int count;
+
+        SectionTask(PalettedContainer<BlockState> states, int minX, int minY, int minZ, int maxX,
+                int maxY, int maxZ, @Nullable BlockPos center, long radiusSq,
+                Predicate<BlockState> matcher, boolean collect) {
+            this.states = states;
+            this.minX = minX;
+            this.minY = minY;
+            this.minZ = minZ;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.maxZ = maxZ;
+            this.center = center;
+            this.radiusSq = radiusSq;
+            this.matcher = matcher;
+            this.found = collect ? new LongArrayList() : null;
+        }
+
+        @Override
+        protected void compute() {
+            scanSection(states, minX, minY, minZ, maxX, maxY, maxZ, center, radiusSq, matcher,
+                    (x, y, z, state) -> {
+                        count++;
+                        if (found != null) {
+                            found.add(BlockPos.asLong(x, y, z));
+                        }
+                        return true;
+                    });
+        }
+    }
+
+    // ═════════════════════════════════════════════════════════════════════════════════
+    // Bulk replacement
+    // ═════════════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Replaces every matching block within a spherical radius, writing straight into chunk
+     * sections.
+     *
+     * <p>
+     * Setting blocks one by one through {@code World.setBlockState} runs neighbour updates,
+     * lighting and a client sync per block, which stalls the server for large edits. This engine
+     * instead writes each state into its section and keeps heightmaps, the chunk's save flag and
+     * point-of-interest and {@link BlockIndex} bookkeeping current, then afterwards:
+     * <ul>
+     * <li>queues light checks for the changed positions with the lighting engine, which works
+     * through them after the tick instead of inline;</li>
+     * <li>notifies each unchanged neighbour of the edited region once, rather than once per
+     * adjacent change; and</li>
+     * <li>marks the changes for sync, so each affected section reaches watching clients as one
+     * delta packet.</li>
+     * </ul>
+     * Blocks are placed as-is: {@code onBlockAdded}/{@code onStateReplaced} callbacks and shape
+     * updates do not run. Positions where the old or new state has a block entity go through
+     * {@code World.setBlockState} so block entities are created and removed properly. For edits
+     * too large for one tick, use {@link SearchScheduler#replaceInRadius}.
+     *
+     * @param world the world to modify
+     * @param center the center position
+     * @param radius the search radius
+     * @param matcher selects the block states to replace
+     * @param replacement the state to place
+     * @param loadedOnly records the unloaded chunks that were skipped, or null to load chunks as
+     *        needed
+     * @return the number of blocks replaced
+     */
+    public static int replaceInRadius(@NotNull ServerWorld world, @NotNull BlockPos center,
+            int radius, @NotNull Predicate<BlockState> matcher, @NotNull BlockState replacement,
+            @Nullable LoadedOnly loadedOnly) {
+        var edit = new BulkEdit(world, replacement, loadedOnly);
+        scanSphere(world, center, radius, matcher, loadedOnly, edit);
+        edit.flush();
+        return edit.count;
+    }
+
+    /**
+     * Replaces every matching block within a cubic area, writing straight into chunk sections
+     * as described for
+     * {@link #replaceInRadius(ServerWorld, BlockPos, int, Predicate, BlockState, LoadedOnly)}.
+     *
+     * @param world the world to modify
+     * @param from the starting corner
+     * @param to the ending corner
+     * @param matcher selects the block states to replace
+     * @param replacement the state to place
+     * @param loadedOnly records the unloaded chunks that were skipped, or null to load chunks as
+     *        needed
+     * @return the number of blocks replaced
+     */
+    public static int replaceInBox(@NotNull ServerWorld world, @NotNull BlockPos from,
+            @NotNull BlockPos to, @NotNull Predicate<BlockState> matcher,
+            @NotNull BlockState replacement, @Nullable LoadedOnly loadedOnly) {
+        var edit = new BulkEdit(world, replacement, loadedOnly);
+        scanBox(world, from, to, matcher, loadedOnly, edit);
+        edit.flush();
+        return edit.count;
+    }
+
+    /**
+     * Writes one replacement state into chunk sections as a scan reports matches, and applies
+     * the deferred lighting, neighbour and sync work on {@link #flush()}. In loaded-only mode,
+     * matches in chunks that have unloaded since the scan read them are skipped, not reloaded.
+     */
+    private static final class BulkEdit implements Sink {
+        private final ServerWorld world;
+        private final BlockState replacement;
+        @Nullable
+        private final LoadedOnly loadedOnly;
+        private final BlockPos.Mutable cursor = new BlockPos.Mutable();
+        private final LongArrayList changed = new LongArrayList();
+        private final LongArrayList lightChecks = new LongArrayList();
+        private final LongArrayList emptinessChanges = new LongArrayList();
+        @Nullable
+        private Chunk chunk;
+        private int count;
+
+        BulkEdit(ServerWorld world, BlockState replacement, @Nullable LoadedOnly loadedOnly) {
+            this.world = world;
+            this.replacement = replacement;
+            this.loadedOnly = loadedOnly;
+        }
+
+        @Override
+        public boolean accept(int x, int y, int z, BlockState state) {
+            if (state == replacement) {
+                return true;
+            }
+            Chunk target = chunk;
+            if (target == null || target.getPos().x != x >> 4 || target.getPos().z != z >> 4) {
+                target = getChunk(world, x >> 4, z >> 4, loadedOnly);
+                if (target == null) {
+                    return true;
+                }
+                target.markNeedsSaving();
+                chunk = target;
+            }
+            count++;
+            cursor.set(x, y, z);
+            if (state.hasBlockEntity() || replacement.hasBlockEntity()) {
+                world.setBlockState(cursor, replacement);
+                return true;
+            }
+            ChunkSection section = target.getSection(world.sectionCoordToIndex(y >> 4));
+            boolean wasEmpty = section.isEmpty();
+            section.setBlockState(x & 15, y & 15, z & 15, replacement);
+            if (wasEmpty != section.isEmpty()) {
+                emptinessChanges.add(cursor.asLong());
+            }
+            for (Map.Entry<Heightmap.Type, Heightmap> heightmap : target.getHeightmaps()) {
+                heightmap.getValue().trackUpdate(x & 15, y, z & 15, replacement);
+            }
+            if (LightingProvider.needsLightUpdate(state, replacement)) {
+                target.getChunkSkyLight().refreshSurfaceY(target, x & 15, y, z & 15);
+                lightChecks.add(cursor.asLong());
+            }
+            // Updates points of interest, and BlockIndex through ServerWorldMixin
+            world.onBlockStateChanged(cursor, state, replacement);
+            changed.add(cursor.asLong());
+            return true;
+        }
+
+        /**
+         * Applies the deferred work for everything written since the last flush.
+         */
+        void flush() {
+            var chunkManager = world.getChunkManager();
+            LightingProvider lighting = chunkManager.getLightingProvider();
+            for (int i = 0; i < emptinessChanges.size(); i++) {
+                cursor.set(emptinessChanges.getLong(i));
+                lighting.setSectionStatus(cursor, world.getChunk(cursor)
+                        .getSection(world.getSectionIndex(cursor.getY())).isEmpty());
+            }
+            for (int i = 0; i < lightChecks.size(); i++) {
+                lighting.checkBlock(cursor.set(lightChecks.getLong(i)));
+            }
+            var edited = new LongOpenHashSet(changed);
+            var notified = new LongOpenHashSet();
+            Block source = replacement.getBlock();
+            for (int i = 0; i < changed.size(); i++) {
+                long packed = changed.getLong(i);
+                chunkManager.markForUpdate(cursor.set(packed));
+                for (Direction direction : Direction.values()) {
+                    long neighbor = BlockPos.offset(packed, direction);
+                    if (!edited.contains(neighbor) && notified.add(neighbor)) {
+                        world.updateNeighbor(cursor.set(neighbor), source, null);
+                    }
+                }
+            }
+            changed.clear();
+            lightChecks.clear();
+            emptinessChanges.clear();
+            chunk = null;
+        }
+    }
+
+    // ═════════════════════════════════════════════════════════════════════════════════
+    // Block index
+    // ═════════════════════════════════════════════════════════════════════════════════
+
+    private static final Object INDEX_LOCK = new Object();
+    private static volatile BlockIndex[] indexes = new BlockIndex[0];
+
+    /**
+     * Keeps the positions of chosen block types in every loaded chunk of every server world, so
+     * repeated queries for them cost O(matches) instead of O(volume).
+     *
+     * <p>
+     * A chunk's matching positions are collected once when it loads (sections whose palette
+     * cannot match are skipped) and then kept current from every block change made through
+     * {@code World.setBlockState}; they are dropped when the chunk or its world unloads. Chunks
+     * that were already loaded when the index was created are indexed on first query. Only loaded
+     * chunks are covered: queries never load chunks and never report blocks in unloaded ones.
+     * Use from the server thread.
+     *
+     * <pre>
+     * static final BlockIndex SPAWNERS = BlockSearchHelper.BlockIndex.track(Blocks.SPAWNER);
+     * List&lt;BlockPos&gt; nearby = SPAWNERS.findInRadius(world, player.getBlockPos(), 48);
+     * </pre>
+     */
+    public static final class BlockIndex {
+        private final Predicate<BlockState> matcher;
+        private final Map<ServerWorld, WorldIndex> worlds = new HashMap<>();
+
+        private BlockIndex(Predicate<BlockState> matcher) {
+            this.matcher = matcher;
+        }
+
+        /**
+         * Creates and registers an index of the given blocks.
+         *
+         * @param blocks the blocks to track
+         * @return a new index, live until {@link #close()}
+         */
+        @NotNull
+        public static BlockIndex track(@NotNull Block... blocks) {
+            return track(matchingAny(blocks));
+        }
+
+        /**
+         * Creates and registers an index of every block state matching a predicate. The predicate
+         * must be cheap and must depend only on the state.
+         *
+         * @param matcher selects the block states to track
+         * @return a new index, live until {@link #close()}
+         */
+        @NotNull
+        public static BlockIndex track(@NotNull Predicate<BlockState> matcher) {
+            var index = new BlockIndex(Objects.requireNonNull(matcher));
+            synchronized (INDEX_LOCK) {
+                BlockIndex[] current = indexes;
+                BlockIndex[] updated = Arrays.copyOf(current, current.length + 1);
+                updated[current.length] = index;
+                indexes = updated;
+            }
+            return index;
+        }
+
+        /**
+         * Stops maintaining this index and releases its data.
+         */
+        public void close() {
+            synchronized (INDEX_LOCK) {
+                indexes = Arrays.stream(indexes).filter(index -> index != this)
+                        .toArray(BlockIndex[]::new);
+            }
+            worlds.clear();
+        }
+
+        /**
+         * Finds all indexed blocks within a spherical radius.
+         *
+         * @param world the world to search in
+         * @param center the center position
+         * @param radius the search radius
+         * @return list of matching block positions
+         */
+        @NotNull
+        public List<BlockPos> findInRadius(@NotNull ServerWorld world, @NotNull BlockPos center,
+                int radius) {
+            var packed = findInRadiusPacked(world, center, radius, new LongArrayList());
+            List<BlockPos> results = new ArrayList<>(packed.size());
+            for (int i = 0; i < packed.size(); i++) {
+                results.add(BlockPos.fromLong(packed.getLong(i)));
+            }
+            return results;
+        }
+
+        /**
+         * Appends the packed positions of all indexed blocks within a spherical radius.
+         *
+         * @param world the world to search in
+         * @param center the center position
+         * @param radius the search radius
+         * @param results the list to append to
+         * @return {@code results}
+         */
+        @NotNull
+        public LongArrayList findInRadiusPacked(@NotNull ServerWorld world,
+                @NotNull BlockPos center, int radius, @NotNull LongArrayList results) {
+            forEachInRadius(world, center, radius, (packed, distSq) -> results.add(packed));
+            return results;
+        }
+
+        /**
+         * Finds all indexed blocks within a cubic area.
+         *
+         * @param world the world to search in
+         * @param from the starting corner
+         * @param to the ending corner
+         * @return list of matching block positions
+         */
+        @NotNull
+        public List<BlockPos> findInBox(@NotNull ServerWorld world, @NotNull BlockPos from,
+                @NotNull BlockPos to) {
+            int minX = Math.min(from.getX(), to.getX());
+            int minY = Math.min(from.getY(), to.getY());
+            int minZ = Math.min(from.getZ(), to.getZ());
+            int maxX = Math.max(from.getX(), to.getX());
+            int maxY = Math.max(from.getY(), to.getY());
+            int maxZ = Math.max(from.getZ(), to.getZ());
+            List<BlockPos> results = new ArrayList<>();
+            for (int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+                for (int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++) {
+                    LongOpenHashSet positions = positions(world, chunkX, chunkZ);
+                    if (positions == null) {
+                        continue;
+                    }
+                    LongIterator iterator = positions.iterator();
+                    while (iterator.hasNext()) {
+                        long packed = iterator.nextLong();
+                        int x = BlockPos.unpackLongX(packed);
+                        int y = BlockPos.unpackLongY(packed);
+                        int z = BlockPos.unpackLongZ(packed);
+                        if (x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ
+                                && z <= maxZ) {
+                            results.add(new BlockPos(x, y, z));
+                        }
+                    }
+                }
+            }
+            return results;
+        }
+
+        /**
+         * Finds the nearest indexed block within a radius.
+         *
+         * @param world the world to search in
+         * @param center the center position
+         * @param radius the search radius
+         * @return the nearest matching position, or null if none found
+         */
+        @Nullable
+        public BlockPos findNearest(@NotNull ServerWorld world, @NotNull BlockPos center,
+                int radius) {
+            long[] nearest = {0, Long.MAX_VALUE};
+            forEachInRadius(world, center, radius, (packed, distSq) -> {
+                if (distSq < nearest[1]) {
+                    nearest[0] = packed;
+                    nearest[1] = distSq;
+                }
+            });
+            return nearest[1] == Long.MAX_VALUE ? null : BlockPos.fromLong(nearest[0]);
+        }
+
+        /**
+         * Counts indexed blocks within a radius.
+         *
+         * @param world the world to search in
+         * @param center the center position
+         * @param radius the search radius
+         * @return the number of matching blocks
+         */
+        public int countInRadius(@NotNull ServerWorld world, @NotNull BlockPos center,
+                int radius) {
+            int[] count = {0};
+            forEachInRadius(world, center, radius, (packed, distSq) -> count[0]++);
+            return count[0];
+        }
+
+        /**
+         * Checks whether a position holds an indexed block.
+         *
+         * @param world the world
+         * @param pos the position
+         * @return true if the position is indexed
+         */
+        public boolean contains(@NotNull ServerWorld world, @NotNull BlockPos pos) {
+            LongOpenHashSet positions = positions(world, pos.getX() >> 4, pos.getZ() >> 4);
+            return positions != null && positions.contains(pos.asLong());
+        }
+
+        /**
+         * Gets the number of indexed blocks across a world's indexed chunks.
+         *
+         * @param world the world
+         * @return the number of indexed positions
+         */
+        public int size(@NotNull ServerWorld world) {
+            WorldIndex index = worlds.get(world);
+            if (index == null) {
+                return 0;
+            }
+            int size = 0;
+            for (LongOpenHashSet positions : index.chunks.values()) {
+                size += positions.size();
+            }
+            return size;
+        }
+
+        private void forEachInRadius(ServerWorld world, BlockPos center, int radius,
+                IndexedSink sink) {
+            if (radius < 0) {
+                return;
+            }
+            long radiusSq = (long) radius * radius;
+            int maxChunkX = (center.getX() + radius) >> 4;
+            int maxChunkZ = (center.getZ() + radius) >> 4;
+            for (int chunkX = (center.getX() - radius) >> 4; chunkX <= maxChunkX; chunkX++) {
+                for (int chunkZ = (center.getZ() - radius) >> 4; chunkZ <= maxChunkZ; chunkZ++) {
+                    if (columnDistanceSq(center, chunkX, chunkZ) > radiusSq) {
+                        continue;
+                    }
+                    LongOpenHashSet positions = positions(world, chunkX, chunkZ);
+                    if (positions == null) {
+                        continue;
+                    }
+                    LongIterator iterator = positions.iterator();
+                    while (iterator.hasNext()) {
+                        long packed = iterator.nextLong();
+                        long dx = BlockPos.unpackLongX(packed) - center.getX();
+                        long dy = BlockPos.unpackLongY(packed) - center.getY();
+                        long dz = BlockPos.unpackLongZ(packed) - center.getZ();
+                        long distSq = dx * dx + dy * dy + dz * dz;
+                        if (distSq <= radiusSq) {
+                            sink.accept(packed, distSq);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Gets a loaded chunk's indexed positions, indexing it first if it loaded before this
+         * index existed. Returns null for unloaded chunks and chunks without matches.
+         */
+        @Nullable
+        private LongOpenHashSet positions(ServerWorld world, int chunkX, int chunkZ) {
+            WorldIndex index = worlds.computeIfAbsent(world, key -> new WorldIndex());
+            long chunkPos = ChunkPos.toLong(chunkX, chunkZ);
+            if (!index.indexed.contains(chunkPos)) {
+                WorldChunk chunk = world.getChunkManager().getWorldChunk(chunkX, chunkZ);
+                if (chunk == null) {
+                    return null;
+                }
+                indexChunk(world, chunk);
+            }
+            return index.chunks.get(chunkPos);
+        }
+
+        private void indexChunk(ServerWorld world, WorldChunk chunk) {
+            ChunkPos chunkPos = chunk.getPos();
+            LongOpenHashSet positions = null;
+            ChunkSection[] sections = chunk.getSectionArray();
+            for (int i = 0; i < sections.length; i++) {
+                ChunkSection section = sections[i];
+                if (!section.hasAny(matcher)) {
+                    continue;
+                }
+                int baseX = chunkPos.getStartX();
+                int baseY = chunk.sectionIndexToCoord(i) << 4;
+                int baseZ = chunkPos.getStartZ();
+                for (int y = 0; y < 16; y++) {
+                    for (int z = 0; z < 16; z++) {
+                        for (int x = 0; x < 16; x++) {
+                            if (matcher.test(section.getBlockState(x, y, z))) {
+                                if (positions == null) {
+                                    positions = new LongOpenHashSet();
+                                }
+                                positions.add(BlockPos.asLong(baseX + x, baseY + y, baseZ + z));
+                            }
+                        }
+                    }
+                }
+            }
+            indexChunk(world, chunkPos.toLong(), positions);
+        }
+
+        /**
+         * Records a chunk as indexed with the given matching positions, replacing what was known
+         * about it. Tests call this directly, as they cannot create chunks.
+         */
+        void indexChunk(ServerWorld world, long chunkPos, @Nullable LongOpenHashSet positions) {
+            WorldIndex index = worlds.computeIfAbsent(world, key -> new WorldIndex());
+            index.indexed.add(chunkPos);
+            if (positions == null || positions.isEmpty()) {
+                index.chunks.remove(chunkPos);
+            } else {
+                index.chunks.put(chunkPos, positions);
+            }
+        }
+
+        private void unloadChunk(ServerWorld world, long chunkPos) {
+            WorldIndex index = worlds.get(world);
+            if (index != null) {
+                index.indexed.remove(chunkPos);
+                index.chunks.remove(chunkPos);
+            }
+        }
+
+        private void update(ServerWorld world, BlockPos pos, BlockState oldState,
+                BlockState newState) {
+            boolean wasIndexed = matcher.test(oldState);
+            boolean isIndexed = matcher.test(newState);
+            if (wasIndexed == isIndexed) {
+                return;
+            }
+            WorldIndex index = worlds.get(world);
+            long chunkPos = ChunkPos.toLong(pos.getX() >> 4, pos.getZ() >> 4);
+            if (index == null || !index.indexed.contains(chunkPos)) {
+                return;
+            }
+            if (isIndexed) {
+                index.chunks.computeIfAbsent(chunkPos, k -> new LongOpenHashSet())
+                        .add(pos.asLong());
+            } else {
+                LongOpenHashSet positions = index.chunks.get(chunkPos);
+                if (positions != null && positions.remove(pos.asLong()) && positions.isEmpty()) {
+                    index.chunks.remove(chunkPos);
+                }
+            }
+        }
+
+        /**
+         * One world's indexed chunks, and their matching positions when there are any.
+         */
+        private static final class WorldIndex {
+            private final LongOpenHashSet indexed = new LongOpenHashSet();
+            private final Long2ObjectOpenHashMap<LongOpenHashSet> chunks =
+                    new Long2ObjectOpenHashMap<>();
+        }
+
+        /**
+         * Receives an indexed position with its squared distance from the query center.
+         */
+        @FunctionalInterface
+        private interface IndexedSink {
+            void accept(long packed, long distSq);
+        }
+    }
+
+    /**
+     * Hooks {@link BlockIndex} maintenance into Fabric's chunk and world lifecycle events.
+     *
+     * <p>
+     * Called once by the mod initializer.
+     */
+    public static void initializeEventListeners() {
+        ServerChunkEvents.CHUNK_LOAD.register((world, chunk) -> {
+            for (BlockIndex index : indexes) {
+                index.indexChunk(world, chunk);
+            }
+        });
+        ServerChunkEvents.CHUNK_UNLOAD.register((world, chunk) -> {
+            long chunkPos = chunk.getPos().toLong();
+            for (BlockIndex index : indexes) {
+                index.unloadChunk(world, chunkPos);
+            }
+        });
+        ServerWorldEvents.UNLOAD.register((server, world) -> {
+            for (BlockIndex index : indexes) {
+                index.worlds.remove(world);
+            }
+        });
+    }
+
+    /**
+     * Updates every {@link BlockIndex} after a block state change. Called for each change made
+     * through {@code World.setBlockState} on the server; code that writes chunk sections directly
+     * must call it too.
+     *
+     * @param world the world the block changed in
+     * @param pos the changed position
+     * @param oldState the state before the change
+     * @param newState the state after the change
+     */
+    public static void onBlockStateChanged(@NotNull ServerWorld world, @NotNull BlockPos pos,
+            @NotNull BlockState oldState, @NotNull BlockState newState) {
+        BlockIndex[] current = indexes;
+        for (BlockIndex index : current) {
+            index.update(world, pos, oldState, newState);
+        }
+    }
+
+    // ═════════════════════════════════════════════════════════════════════════════════
+    // Section scanning
+    // ═════════════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Receives matching positions from a section scan.
+     */
+    @FunctionalInterface
+    interface Sink {
+        /**
+         * Accepts one matching position.
+         *
+         * @return false to stop the scan
+         */
+        boolean accept(int x, int y, int z, BlockState state);
+    }
+
+    private static Predicate<BlockState> matching(Block block) {
+        return state -> state.isOf(block);
+    }
+
+    private static boolean scanBox(World world, BlockPos from, BlockPos to,
+            Predicate<BlockState> matcher, @Nullable LoadedOnly loadedOnly, Sink sink) {
+        var cursor = boxCursor(world, from, to, matcher, loadedOnly);
+        return cursor.run(cursor.scanning(sink));
+    }
+
+    private static boolean scanSphere(World world, BlockPos center, int radius,
+            Predicate<BlockState> matcher, @Nullable LoadedOnly loadedOnly, Sink sink) {
+        var cursor = sphereCursor(world, center, radius, matcher, loadedOnly);
+        return cursor.run(cursor.scanning(sink));
+    }
+
+    private static ScanCursor boxCursor(World world, BlockPos from, BlockPos to,
+            Predicate<BlockState> matcher, @Nullable LoadedOnly loadedOnly) {
+        return new ScanCursor(world, Math.min(from.getX(), to.getX()),
+                Math.min(from.getY(), to.getY()), Math.min(from.getZ(), to.getZ()),
+                Math.max(from.getX(), to.getX()), Math.max(from.getY(), to.getY()),
+                Math.max(from.getZ(), to.getZ()), null, 0, matcher, loadedOnly);
+    }
+
+    private static ScanCursor sphereCursor(World world, BlockPos center, int radius,
+            Predicate<BlockState> matcher, @Nullable LoadedOnly loadedOnly) {
+        // A negative radius gives an empty box, which the cursor finishes immediately
+        return new ScanCursor(world, center.getX() - radius, center.getY() - radius,
+                center.getZ() - radius, center.getX() + radius, center.getY() + radius,
+                center.getZ() + radius, center, (long) radius * radius, matcher, loadedOnly);
+    }
+
+    /**
+     * Gets a chunk, loading it if needed, or in loaded-only mode gets it only if already loaded
+     * and otherwise records it as skipped and returns null.
+     */
+    @Nullable
+    static Chunk getChunk(World world, int chunkX, int chunkZ,
+            @Nullable LoadedOnly loadedOnly) {
+        if (loadedOnly == null) {
+            return world.getChunk(chunkX, chunkZ);
+        }
+        WorldChunk chunk = world.getChunkManager().getWorldChunk(chunkX, chunkZ);
+        if (chunk == null) {
+            loadedOnly.skip(chunkX, chunkZ);
+        }
+        return chunk;
+    }
+
+    /**
+     * Receives each chunk section of a scan that can hold a match, with the part of the scanned
+     * box that falls inside it.
+     */
+    @FunctionalInterface
+    private interface SectionVisitor {
+        /**
+         * Visits one section.
+         *
+         * @return false to stop the scan
+         */
+        boolean visit(PalettedContainer<BlockState> states, int minX, int minY, int minZ,
+                int maxX, int maxY, int maxZ);
+    }
+
+    /**
+     * Walks the chunk sections covering a box (and, when {@code center} is given, the sphere of
+     * {@code radiusSq} around it), one section per {@link #step}, so a scan can be run to the end
+     * at once or resumed across ticks.
+     *
+     * <p>
+     * Sections whose palette holds no matching state are skipped outright. Inside a section,
+     * positions are read in the container's own y-z-x storage order, and for sphere scans each
+     * x-row is clipped to the sphere up front rather than testing every voxel. Chunk columns
+     * lying wholly outside the sphere are never fetched.
+     */
+    private static final class ScanCursor {
+        private final World world;
+        private final int minX;
+        private final int minY;
+        private final int minZ;
+        private final int maxX;
+        private final int maxY;
+        private final int maxZ;
+        @Nullable
+        private final BlockPos center;
+        private final long radiusSq;
+        private final Predicate<BlockState> matcher;
+        @Nullable
+        private final LoadedOnly loadedOnly;
+        private int chunkX;
+        private int chunkZ;
+        private int sectionY;
+        @Nullable
+        private ChunkSection[] column;
+        private boolean done;
+
+        ScanCursor(World world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                @Nullable BlockPos center, long radiusSq, Predicate<BlockState> matcher,
+                @Nullable LoadedOnly loadedOnly) {
+            this.world = world;
+            this.minX = minX;
+            this.minY = Math.max(minY, world.getBottomY());
+            this.minZ = minZ;
+            this.maxX = maxX;
+            this.maxY = Math.min(maxY, world.getTopYInclusive());
+            this.maxZ = maxZ;
+            this.center = center;
+            this.radiusSq = radiusSq;
+            this.matcher = matcher;
+            this.loadedOnly = loadedOnly;
+            this.chunkX = minX >> 4;
+            this.chunkZ = minZ >> 4;
+            this.sectionY = this.minY >> 4;
+            this.done = minX > maxX || this.minY > this.maxY || minZ > maxZ;
+        }
+
+        boolean isDone() {
+            return done;
+        }
+
+        /**
+         * Creates a section visitor that passes every matching position in range to a sink.
+         */
+        SectionVisitor scanning(Sink sink) {
+            return (states, fromX, fromY, fromZ, toX, toY, toZ) -> scanSection(states, fromX,
+                    fromY, fromZ, toX, toY, toZ, center, radiusSq, matcher, sink);
+        }
+
+        /**
+         * Runs the scan to the end.
+         *
+         * @return false if the visitor stopped the scan early
+         */
+        boolean run(SectionVisitor visitor) {
+            while (!done) {
+                if (!step(visitor)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Visits the next section if it can hold a match, or moves past a chunk column that is
+         * out of range or skipped.
+         *
+         * @return false if the visitor stopped the scan, which also finishes the cursor
+         */
+        boolean step(SectionVisitor visitor) {
+            if (done) {
+                return true;
+            }
+            if (column == null) {
+                Chunk chunk = center != null && columnDistanceSq(center, chunkX, chunkZ) > radiusSq
+                        ? null
+                        : getChunk(world, chunkX, chunkZ, loadedOnly);
+                if (chunk == null) {
+                    nextColumn();
+                    return true;
+                }
+                column = chunk.getSectionArray();
+            }
+            ChunkSection section = column[world.sectionCoordToIndex(sectionY)];
+            boolean keepGoing = !section.hasAny(matcher)
+                    || visitor.visit(section.getBlockStateContainer(), Math.max(minX, chunkX << 4),
+                            Math.max(minY, sectionY << 4), Math.max(minZ, chunkZ << 4),
+                            Math.min(maxX, (chunkX << 4) + 15),
+                            Math.min(maxY, (sectionY << 4) + 15),
+                            Math.min(maxZ, (chunkZ << 4) + 15));
+            if (++sectionY > maxY >> 4) {
+                nextColumn();
+            }
+            if (!keepGoing) {
+                done = true;
+            }
+            return keepGoing;
+        }
+
+        /**
+         * Drops the cached chunk column, so the next step fetches it again. Called between slices
+         * of a resumed scan, since the chunk may unload in between.
+         */
+        void releaseColumn() {
+            column = null;
+        }
+
+        private void nextColumn() {
+            column = null;
+            sectionY = minY >> 4;
+            if (++chunkZ > maxZ >> 4) {
+                chunkZ = minZ >> 4;
+                if (++chunkX > maxX >> 4) {
+                    done = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the squared horizontal distance from a center to the nearest block of a chunk column.
+     */
+    private static long columnDistanceSq(BlockPos center, int chunkX, int chunkZ) {
+        long edgeX = Math.max(0, Math.max((chunkX << 4) - center.getX(),
+                center.getX() - ((chunkX << 4) + 15)));
+        long edgeZ = Math.max(0, Math.max((chunkZ << 4) - center.getZ(),
+                center.getZ() - ((chunkZ << 4) + 15)));
+        return edgeX * edgeX + edgeZ * edgeZ;
+    }
+
+    /**
+     * Scans the blocks of one section between two corners, given as block coordinates inside
+     * the section. With a center, only the part of each x row within the radius is read.
+     *
+     * @param center the sphere's center, or null to scan the whole box
+     * @param radiusSq the sphere's squared radius, ignored without a center
+     * @return false if the sink stopped the scan
+     */
+    static boolean scanSection(PalettedContainer<BlockState> states, int minX, int minY,
+            int minZ, int maxX, int maxY, int maxZ, @Nullable BlockPos center, long radiusSq,
+            Predicate<BlockState> matcher, Sink sink) {
+        for (int y = minY; y <= maxY; y++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                int fromX = minX;
+                int toX = maxX;
+                if (center != null) {
+                    long dy = y - center.getY();
+                    long dz = z - center.getZ();
+                    long remaining = radiusSq - dy * dy - dz * dz;
+                    if (remaining < 0) {
+                        continue;
+                    }
+                    int span = (int) Math.sqrt(remaining);
+                    fromX = Math.max(fromX, center.getX() - span);
+                    toX = Math.min(toX, center.getX() + span);
+                }
+                for (int x = fromX; x <= toX; x++) {
+                    BlockState state = states.get(x & 15, y & 15, z & 15);
+                    if (matcher.test(state) && !sink.accept(x, y, z, state)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
     }
 }
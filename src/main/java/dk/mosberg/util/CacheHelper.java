@@ -1,12 +1,70 @@
 package dk.mosberg.util;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.LongFunction;
 import java.util.function.Supplier;
+import java.util.zip.CRC32C;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerBlockEntityEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerEntityEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerWorldEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.entity.Entity;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtSizeTracker;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.text.Text;
 
 /**
  * Utility for simple caching operations. Provides methods for caching values with time-based
@@ -25,243 +83,3456 @@ import org.jetbrains.annotations.Nullable;
  *
  * // After 5 seconds, value expires
  * </pre>
+ *
+ * <p>
+ * Expired entries are also reclaimed without being read when a cache is registered with an
+ * {@link ExpirationSweeper}:
+ *
+ * <pre>
+ * var sweeper = new CacheHelper.ExpirationSweeper().bindToServerTicks(20); // once per second
+ * var positions = sweeper.register(new CacheHelper.TimedCache&lt;BlockPos, Integer&gt;(30_000));
+ * </pre>
  */
 public final class CacheHelper {
+    private static final Object NULL_VALUE = new Object();
+    private static final Set<UnloadListener> UNLOAD_LISTENERS =
+            Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    private static final ConcurrentMap<String, WeakReference<InstrumentedCache>> REGISTRY =
+            new ConcurrentHashMap<>();
+
     private CacheHelper() {}
 
     /**
-     * A simple timed cache that expires entries after a specified duration.
+     * An immutable cached value paired with its absolute expiry time. Also serves as the node of
+     * the owning cache's {@link TimerWheel}.
+     */
+    private static final class CacheEntry<K, V> {
+        final K key;
+        @Nullable
+        final V value;
+        final long expiryTime;
+        @Nullable
+        CacheEntry<K, V> prev;
+        @Nullable
+        CacheEntry<K, V> next;
+
+        CacheEntry(K key, @Nullable V value, long expiryTime) {
+            this.key = key;
+            this.value = value;
+            this.expiryTime = expiryTime;
+        }
+
+        boolean isExpired() {
+            return isExpired(System.currentTimeMillis());
+        }
+
+        boolean isExpired(long now) {
+            return now > expiryTime;
+        }
+    }
+
+    /**
+     * A hierarchical timing wheel that schedules cache entries by expiry time.
+     *
+     * <p>
+     * Each level is a ring of buckets whose width grows with the level (about 1 second, 1 minute,
+     * 1 hour and 1.5 days, plus an overflow bucket). Scheduling and descheduling are O(1) linked
+     * list operations; {@link #advance} only visits the buckets the clock has moved past, pushing
+     * entries down to finer levels as they get close to expiring, so reclamation is amortized O(1)
+     * per entry. Not thread-safe; callers synchronize externally.
+     */
+    private static final class TimerWheel<K, V> {
+        private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+        private static final long[] SPANS = {1L << 10, 1L << 16, 1L << 22, 1L << 27, 1L << 29,
+                1L << 29};
+        private static final int[] SHIFT = {10, 16, 22, 27, 29};
+
+        private final CacheEntry<K, V>[][] wheel;
+        private long time;
+
+        @SuppressWarnings("unchecked")
+        TimerWheel(long now) {
+            this.time = now;
+            this.wheel = new CacheEntry[BUCKETS.length][];
+            for (int i = 0; i < BUCKETS.length; i++) {
+                wheel[i] = new CacheEntry[BUCKETS[i]];
+                for (int j = 0; j < BUCKETS[i]; j++) {
+                    wheel[i][j] = sentinel();
+                }
+            }
+        }
+
+        private static <K, V> CacheEntry<K, V> sentinel() {
+            CacheEntry<K, V> sentinel = new CacheEntry<>(null, null, Long.MAX_VALUE);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+
+        /**
+         * Adds an entry to the bucket covering its expiry time.
+         */
+        void schedule(CacheEntry<K, V> entry) {
+            deschedule(entry);
+            CacheEntry<K, V> sentinel = findBucket(Math.max(entry.expiryTime, time));
+            entry.prev = sentinel.prev;
+            entry.next = sentinel;
+            sentinel.prev.next = entry;
+            sentinel.prev = entry;
+        }
+
+        /**
+         * Removes an entry from its bucket. Does nothing if the entry is not scheduled.
+         */
+        void deschedule(CacheEntry<K, V> entry) {
+            if (entry.next != null) {
+                entry.prev.next = entry.next;
+                entry.next.prev = entry.prev;
+                entry.prev = null;
+                entry.next = null;
+            }
+        }
+
+        /**
+         * Advances the clock, handing every entry that has expired by {@code now} to the evictor
+         * and rescheduling entries that are not yet due into finer buckets.
+         */
+        void advance(long now, Consumer<CacheEntry<K, V>> evictor) {
+            long previous = time;
+            time = Math.max(previous, now);
+            for (int i = 0; i < SHIFT.length; i++) {
+                long previousTicks = previous >>> SHIFT[i];
+                long delta = (time >>> SHIFT[i]) - previousTicks;
+                // The current finest bucket is always swept so size() only counts live entries
+                if (i > 0 && delta <= 0) {
+                    break;
+                }
+                expire(i, previousTicks, delta, evictor);
+            }
+        }
+
+        /**
+         * Unlinks every scheduled entry, so a later {@link #deschedule} of one is a no-op.
+         */
+        void clear() {
+            for (CacheEntry<K, V>[] buckets : wheel) {
+                for (CacheEntry<K, V> sentinel : buckets) {
+                    CacheEntry<K, V> entry = sentinel.next;
+                    while (entry != sentinel) {
+                        CacheEntry<K, V> next = entry.next;
+                        entry.prev = null;
+                        entry.next = null;
+                        entry = next;
+                    }
+                    sentinel.prev = sentinel;
+                    sentinel.next = sentinel;
+                }
+            }
+        }
+
+        private void expire(int level, long previousTicks, long delta,
+                Consumer<CacheEntry<K, V>> evictor) {
+            CacheEntry<K, V>[] buckets = wheel[level];
+            int mask = buckets.length - 1;
+            int steps = (int) Math.min(1 + delta, buckets.length);
+            int start = (int) (previousTicks & mask);
+            for (int i = start; i < start + steps; i++) {
+                CacheEntry<K, V> sentinel = buckets[i & mask];
+                CacheEntry<K, V> entry = sentinel.next;
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                while (entry != sentinel) {
+                    CacheEntry<K, V> next = entry.next;
+                    entry.prev = null;
+                    entry.next = null;
+                    if (entry.isExpired(time)) {
+                        evictor.accept(entry);
+                    } else {
+                        schedule(entry);
+                    }
+                    entry = next;
+                }
+            }
+        }
+
+        private CacheEntry<K, V> findBucket(long expiryTime) {
+            long duration = expiryTime - time;
+            int last = wheel.length - 1;
+            for (int i = 0; i < last; i++) {
+                if (duration < SPANS[i + 1]) {
+                    long ticks = expiryTime >>> SHIFT[i];
+                    return wheel[i][(int) (ticks & (wheel[i].length - 1))];
+                }
+            }
+            return wheel[last][0];
+        }
+    }
+
+    /**
+     * A cache that can actively reclaim its expired entries.
+     */
+    public interface Sweepable {
+        /**
+         * Removes all entries that have expired, whether or not they have been read since.
+         */
+        void cleanUp();
+    }
+
+    /**
+     * Periodically calls {@link Sweepable#cleanUp()} on registered caches so expired entries are
+     * released even when their keys are never read again.
+     *
+     * <p>
+     * Caches are held weakly, so registering one does not keep it alive. A sweeper can be driven
+     * by server ticks ({@link #bindToServerTicks}), which is safe for every cache type, or by a
+     * daemon thread ({@link #startBackground}), which must only be used with thread-safe caches
+     * such as {@link ConcurrentTimedCache}.
+     */
+    public static final class ExpirationSweeper {
+        private final Set<Sweepable> caches =
+                Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+        @Nullable
+        private TickHelper.Binding tickBinding;
+        private volatile int interval;
+        private int tickCounter;
+        @Nullable
+        private ScheduledExecutorService background;
+
+        /**
+         * Registers a cache with this sweeper.
+         *
+         * @param cache the cache to sweep
+         * @param <C> the cache type
+         * @return the same cache, for chaining at construction
+         */
+        @NotNull
+        public <C extends Sweepable> C register(@NotNull C cache) {
+            caches.add(cache);
+            return cache;
+        }
+
+        /**
+         * Stops sweeping a cache.
+         *
+         * @param cache the cache to remove
+         */
+        public void unregister(@NotNull Sweepable cache) {
+            caches.remove(cache);
+        }
+
+        /**
+         * Sweeps every registered cache once on the calling thread.
+         */
+        public void sweep() {
+            ArrayList<Sweepable> snapshot;
+            synchronized (caches) {
+                snapshot = new ArrayList<>(caches);
+            }
+            for (Sweepable cache : snapshot) {
+                cache.cleanUp();
+            }
+        }
+
+        /**
+         * Sweeps registered caches on the server thread at the end of every {@code intervalTicks}
+         * server ticks, until {@link #stop()}. Binding again changes the interval.
+         *
+         * @param intervalTicks ticks between sweeps (at least 1)
+         * @return this sweeper
+         */
+        @NotNull
+        public synchronized ExpirationSweeper bindToServerTicks(int intervalTicks) {
+            interval = Math.max(1, intervalTicks);
+            if (tickBinding == null) {
+                tickBinding = TickHelper.bindToServerTicks(() -> {
+                    if (++tickCounter >= interval) {
+                        tickCounter = 0;
+                        sweep();
+                    }
+                }, null);
+            }
+            return this;
+        }
+
+        /**
+         * Sweeps registered caches from a daemon thread every {@code intervalMs} milliseconds. Only
+         * register thread-safe caches with a sweeper started this way.
+         *
+         * @param intervalMs milliseconds between sweeps
+         * @return this sweeper
+         */
+        @NotNull
+        public synchronized ExpirationSweeper startBackground(long intervalMs) {
+            if (background == null) {
+                background = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    var thread = new Thread(runnable, "CacheHelper-Sweeper");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                background.scheduleWithFixedDelay(this::sweep, intervalMs, intervalMs,
+                        TimeUnit.MILLISECONDS);
+            }
+            return this;
+        }
+
+        /**
+         * Stops tick-driven and background sweeping. Registered caches are kept.
+         */
+        public synchronized void stop() {
+            if (tickBinding != null) {
+                tickBinding.unbind();
+                tickBinding = null;
+            }
+            if (background != null) {
+                background.shutdownNow();
+                background = null;
+            }
+        }
+    }
+
+    /**
+     * Why a cache dropped an entry other than expiry or an explicit removal. Expirations are
+     * counted separately by {@link CacheStats#expirationCount()}.
+     */
+    public enum EvictionCause {
+        /** Removed to keep the entry count within the cache's maximum size. */
+        SIZE,
+        /** Removed to keep the total weight within the cache's maximum weight. */
+        WEIGHT,
+        /** Released because the garbage collector reclaimed a soft value. */
+        COLLECTED,
+        /** Released because the world, entity, block entity or player it was keyed by unloaded. */
+        UNLOADED
+    }
+
+    /**
+     * Accumulates cache statistics in striped {@link LongAdder} counters, so recording from many
+     * threads never contends on a single word. Caches start with a shared disabled counter that
+     * records nothing; {@link InstrumentedCache#recordStats()} swaps in a live one.
+     */
+    public static final class StatsCounter {
+        private static final StatsCounter DISABLED = new StatsCounter(false);
+
+        private final boolean enabled;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder loadSuccesses = new LongAdder();
+        private final LongAdder loadFailures = new LongAdder();
+        private final LongAdder totalLoadTime = new LongAdder();
+        private final LongAdder expirations = new LongAdder();
+        private final LongAdder[] evictions = new LongAdder[EvictionCause.values().length];
+
+        /**
+         * Creates a counter that records events.
+         */
+        public StatsCounter() {
+            this(true);
+        }
+
+        private StatsCounter(boolean enabled) {
+            this.enabled = enabled;
+            for (int i = 0; i < evictions.length; i++) {
+                evictions[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * Gets the shared counter that records nothing.
+         *
+         * @return the disabled counter
+         */
+        @NotNull
+        public static StatsCounter disabled() {
+            return DISABLED;
+        }
+
+        /**
+         * Checks whether this counter records events.
+         *
+         * @return false for {@link #disabled()}
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        /**
+         * Records a lookup that found a live entry.
+         */
+        public void recordHit() {
+            if (enabled) {
+                hits.increment();
+            }
+        }
+
+        /**
+         * Records a lookup that found nothing usable.
+         */
+        public void recordMiss() {
+            if (enabled) {
+                misses.increment();
+            }
+        }
+
+        /**
+         * Records a lookup as a hit or a miss.
+         *
+         * @param hit whether the lookup found a live entry
+         */
+        public void recordLookup(boolean hit) {
+            if (enabled) {
+                (hit ? hits : misses).increment();
+            }
+        }
+
+        /**
+         * Records a value computed successfully after a miss.
+         *
+         * @param loadTimeNanos how long the load took
+         */
+        public void recordLoadSuccess(long loadTimeNanos) {
+            if (enabled) {
+                loadSuccesses.increment();
+                totalLoadTime.add(loadTimeNanos);
+            }
+        }
+
+        /**
+         * Records a load that threw or completed exceptionally.
+         *
+         * @param loadTimeNanos how long the load took before failing
+         */
+        public void recordLoadFailure(long loadTimeNanos) {
+            if (enabled) {
+                loadFailures.increment();
+                totalLoadTime.add(loadTimeNanos);
+            }
+        }
+
+        /**
+         * Runs a loader and records its outcome and duration.
+         *
+         * @param loader computes the value
+         * @param <T> the value type
+         * @return the loaded value
+         */
+        public <T> T recordLoad(@NotNull Supplier<T> loader) {
+            if (!enabled) {
+                return loader.get();
+            }
+            long start = System.nanoTime();
+            try {
+                T value = loader.get();
+                recordLoadSuccess(System.nanoTime() - start);
+                return value;
+            } catch (RuntimeException | Error e) {
+                recordLoadFailure(System.nanoTime() - start);
+                throw e;
+            }
+        }
+
+        /**
+         * Records an entry dropped because it reached its expiry time.
+         */
+        public void recordExpiration() {
+            if (enabled) {
+                expirations.increment();
+            }
+        }
+
+        /**
+         * Records an entry evicted by the cache's policy.
+         *
+         * @param cause why the entry was evicted
+         */
+        public void recordEviction(@NotNull EvictionCause cause) {
+            if (enabled) {
+                evictions[cause.ordinal()].increment();
+            }
+        }
+
+        /**
+         * Takes a snapshot of the counters. Counters updated concurrently may be slightly out of
+         * step with each other.
+         *
+         * @return the current statistics
+         */
+        @NotNull
+        public CacheStats snapshot() {
+            long[] evictionCounts = new long[evictions.length];
+            for (int i = 0; i < evictions.length; i++) {
+                evictionCounts[i] = evictions[i].sum();
+            }
+            return new CacheStats(hits.sum(), misses.sum(), loadSuccesses.sum(),
+                    loadFailures.sum(), totalLoadTime.sum(), expirations.sum(), evictionCounts);
+        }
+    }
+
+    /**
+     * An immutable snapshot of a cache's statistics.
+     */
+    public static final class CacheStats {
+        private final long hitCount;
+        private final long missCount;
+        private final long loadSuccessCount;
+        private final long loadFailureCount;
+        private final long totalLoadTimeNanos;
+        private final long expirationCount;
+        private final long[] evictionCounts;
+
+        private CacheStats(long hitCount, long missCount, long loadSuccessCount,
+                long loadFailureCount, long totalLoadTimeNanos, long expirationCount,
+                long[] evictionCounts) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.loadSuccessCount = loadSuccessCount;
+            this.loadFailureCount = loadFailureCount;
+            this.totalLoadTimeNanos = totalLoadTimeNanos;
+            this.expirationCount = expirationCount;
+            this.evictionCounts = evictionCounts;
+        }
+
+        /**
+         * Gets the number of lookups that found a live entry.
+         *
+         * @return the hit count
+         */
+        public long hitCount() {
+            return hitCount;
+        }
+
+        /**
+         * Gets the number of lookups that found nothing usable.
+         *
+         * @return the miss count
+         */
+        public long missCount() {
+            return missCount;
+        }
+
+        /**
+         * Gets the total number of lookups.
+         *
+         * @return hits plus misses
+         */
+        public long requestCount() {
+            return hitCount + missCount;
+        }
+
+        /**
+         * Gets the fraction of lookups that were hits.
+         *
+         * @return the hit rate from 0 to 1, or 1 if there were no lookups
+         */
+        public double hitRate() {
+            long requests = requestCount();
+            return requests == 0 ? 1.0 : (double) hitCount / requests;
+        }
+
+        /**
+         * Gets the number of values computed after a miss, successful or not.
+         *
+         * @return the load count
+         */
+        public long loadCount() {
+            return loadSuccessCount + loadFailureCount;
+        }
+
+        /**
+         * Gets the number of loads that threw or completed exceptionally.
+         *
+         * @return the failed load count
+         */
+        public long loadFailureCount() {
+            return loadFailureCount;
+        }
+
+        /**
+         * Gets the time spent loading values.
+         *
+         * @return the total load time in nanoseconds
+         */
+        public long totalLoadTimeNanos() {
+            return totalLoadTimeNanos;
+        }
+
+        /**
+         * Gets the mean time spent per load.
+         *
+         * @return the average load time in nanoseconds, or 0 if nothing was loaded
+         */
+        public double averageLoadPenaltyNanos() {
+            long loads = loadCount();
+            return loads == 0 ? 0.0 : (double) totalLoadTimeNanos / loads;
+        }
+
+        /**
+         * Gets the number of entries dropped because they expired.
+         *
+         * @return the expiration count
+         */
+        public long expirationCount() {
+            return expirationCount;
+        }
+
+        /**
+         * Gets the number of entries evicted for a given cause.
+         *
+         * @param cause the eviction cause
+         * @return the eviction count for that cause
+         */
+        public long evictionCount(@NotNull EvictionCause cause) {
+            return evictionCounts[cause.ordinal()];
+        }
+
+        /**
+         * Gets the number of entries evicted for any cause.
+         *
+         * @return the total eviction count
+         */
+        public long evictionCount() {
+            long total = 0;
+            for (long count : evictionCounts) {
+                total += count;
+            }
+            return total;
+        }
+
+        /**
+         * Converts the statistics to JSON, with evictions broken down by cause.
+         *
+         * @return a new JSON object
+         */
+        @NotNull
+        public JsonObject toJson() {
+            var json = new JsonObject();
+            json.addProperty("hits", hitCount);
+            json.addProperty("misses", missCount);
+            json.addProperty("hitRate", hitRate());
+            json.addProperty("loads", loadCount());
+            json.addProperty("loadFailures", loadFailureCount);
+            json.addProperty("totalLoadTimeNanos", totalLoadTimeNanos);
+            json.addProperty("averageLoadPenaltyNanos", averageLoadPenaltyNanos());
+            json.addProperty("expirations", expirationCount);
+            var evictions = new JsonObject();
+            for (EvictionCause cause : EvictionCause.values()) {
+                evictions.addProperty(cause.name().toLowerCase(Locale.ROOT),
+                        evictionCounts[cause.ordinal()]);
+            }
+            json.add("evictions", evictions);
+            return json;
+        }
+
+        @Override
+        public String toString() {
+            return "CacheStats" + toJson();
+        }
+    }
+
+    /**
+     * A cache that can report {@link CacheStats}. Statistics are off by default so unmonitored
+     * caches pay nothing; {@link CacheHelper#registerCache} turns them on.
+     */
+    public interface InstrumentedCache {
+        /**
+         * Starts recording statistics. Calling it again keeps the existing counts. Call before the
+         * cache is shared between threads.
+         */
+        void recordStats();
+
+        /**
+         * Takes a snapshot of the statistics recorded so far.
+         *
+         * @return the current statistics, all zero if recording is off
+         */
+        @NotNull
+        CacheStats stats();
+
+        /**
+         * Gets the number of entries in the cache.
+         *
+         * @return the cache size
+         */
+        int size();
+    }
+
+    /**
+     * Holds the statistics counter shared by every {@link InstrumentedCache} implementation.
+     * Starts with the disabled counter; the field is volatile so a cache read from several
+     * threads sees the live counter once {@link #recordStats()} installs it.
+     */
+    private abstract static class StatsSupport implements InstrumentedCache {
+        volatile StatsCounter stats = StatsCounter.disabled();
+
+        @Override
+        public void recordStats() {
+            if (!stats.isEnabled()) {
+                stats = new StatsCounter();
+            }
+        }
+
+        @Override
+        @NotNull
+        public CacheStats stats() {
+            return stats.snapshot();
+        }
+    }
+
+    /**
+     * Turns on statistics for a cache and lists it under a name in the global registry reported
+     * by {@code /mhapi caches}. Caches are held weakly, so registering one does not keep it
+     * alive; registering another cache under the same name replaces the first.
+     *
+     * <pre>
+     * var paths = CacheHelper.registerCache("mymod:paths",
+     *         new CacheHelper.LRUCache&lt;Long, Path&gt;(512));
+     * </pre>
+     *
+     * @param name the registry name, conventionally prefixed with the mod id
+     * @param cache the cache
+     * @param <C> the cache type
+     * @return the same cache, for chaining at construction
+     */
+    @NotNull
+    public static <C extends InstrumentedCache> C registerCache(@NotNull String name,
+            @NotNull C cache) {
+        Objects.requireNonNull(name);
+        cache.recordStats();
+        REGISTRY.put(name, new WeakReference<>(cache));
+        return cache;
+    }
+
+    /**
+     * Removes a cache from the global registry. Its statistics keep recording.
+     *
+     * @param name the registry name
+     */
+    public static void unregisterCache(@NotNull String name) {
+        REGISTRY.remove(name);
+    }
+
+    /**
+     * Gets the registered caches that are still alive, sorted by name.
+     *
+     * @return a new map from registry name to cache
+     */
+    @NotNull
+    public static Map<String, InstrumentedCache> getRegisteredCaches() {
+        Map<String, InstrumentedCache> caches = new TreeMap<>();
+        REGISTRY.forEach((name, reference) -> {
+            InstrumentedCache cache = reference.get();
+            if (cache == null) {
+                REGISTRY.remove(name, reference);
+            } else {
+                caches.put(name, cache);
+            }
+        });
+        return caches;
+    }
+
+    /**
+     * Dumps the size and statistics of every registered cache as JSON. Reads each cache's size,
+     * so call it from the thread that owns non-thread-safe caches (normally the server thread).
+     *
+     * @return a JSON object keyed by registry name
+     */
+    @NotNull
+    public static JsonObject getStatsJson() {
+        var json = new JsonObject();
+        getRegisteredCaches().forEach((name, cache) -> {
+            var entry = cache.stats().toJson();
+            entry.addProperty("size", cache.size());
+            json.add(name, entry);
+        });
+        return json;
+    }
+
+    /**
+     * Formats the size and statistics of every registered cache as a fixed-width table, one
+     * line per cache after a header line. Same threading rules as {@link #getStatsJson()}.
+     *
+     * @return the table lines
+     */
+    @NotNull
+    public static List<String> getStatsTable() {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format(Locale.ROOT, "%-32s %8s %10s %10s %7s %8s %9s %9s %9s", "cache",
+                "size", "hits", "misses", "hit%", "loads", "avg ms", "evicted", "expired"));
+        getRegisteredCaches().forEach((name, cache) -> {
+            CacheStats stats = cache.stats();
+            lines.add(String.format(Locale.ROOT, "%-32s %8d %10d %10d %6.1f%% %8d %9.3f %9d %9d",
+                    name, cache.size(), stats.hitCount(), stats.missCount(),
+                    stats.hitRate() * 100, stats.loadCount(),
+                    stats.averageLoadPenaltyNanos() / 1_000_000.0, stats.evictionCount(),
+                    stats.expirationCount()));
+        });
+        return lines;
+    }
+
+    /**
+     * Registers {@code /mhapi caches}, which prints {@link #getStatsTable()}, and
+     * {@code /mhapi caches json}, which writes {@link #getStatsJson()} to
+     * {@code moddinghelperapi/cache-stats.json} in the game directory. Both need permission level
+     * 2.
+     *
+     * <p>
+     * Called once by the mod initializer.
+     */
+    public static void registerStatsCommand() {
+        CommandHelper.registerNested(2, context -> {
+            List<String> table = getStatsTable();
+            context.getSource().sendFeedback(() -> Text.literal(table.size() > 1
+                    ? String.join("\n", table)
+                    : "No caches registered"), false);
+            return table.size() - 1;
+        }, "mhapi", "caches");
+        CommandHelper.registerNested(2, context -> {
+            Path path = FabricLoader.getInstance().getGameDir().resolve("moddinghelperapi")
+                    .resolve("cache-stats.json");
+            if (!FileHelper.writeJson(path, getStatsJson())) {
+                context.getSource().sendError(Text.literal("Failed to write " + path));
+                return 0;
+            }
+            context.getSource().sendFeedback(
+                    () -> Text.literal("Cache statistics written to " + path), false);
+            return 1;
+        }, "mhapi", "caches", "json");
+    }
+
+    /**
+     * A simple timed cache that expires entries after a specified duration.
+     *
+     * <p>
+     * Not thread-safe; use {@link ConcurrentTimedCache} when accessed from several threads.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     */
+    public static class TimedCache<K, V> extends StatsSupport implements Sweepable {
+        private final Map<K, CacheEntry<K, V>> cache = new HashMap<>();
+        private final TimerWheel<K, V> wheel = new TimerWheel<>(System.currentTimeMillis());
+        private final long expirationMs;
+        private final long refreshAfterMs;
+        @Nullable
+        private final Executor refreshExecutor;
+        // Key to the entry each in-flight refresh was started from
+        private final Map<K, CacheEntry<K, V>> refreshing = new HashMap<>();
+        private final Queue<Refresh<K, V>> refreshed = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Creates a new timed cache with the specified expiration duration.
+         *
+         * @param expirationMs the expiration time in milliseconds
+         */
+        public TimedCache(long expirationMs) {
+            this.expirationMs = expirationMs;
+            this.refreshAfterMs = Long.MAX_VALUE;
+            this.refreshExecutor = null;
+        }
+
+        /**
+         * Creates a timed cache that refreshes entries ahead of expiry (stale-while-revalidate).
+         *
+         * <p>
+         * Once an entry is older than {@code refreshAfterMs}, {@link #getOrCompute} keeps returning
+         * it but starts one background recompute on {@code refreshExecutor}. The new value is
+         * swapped in on the cache's own thread at its next access, so the cache stays
+         * single-threaded. Entries older than {@code expirationMs} are never served; if a refresh
+         * has not landed by then, the next caller computes synchronously. A failed refresh keeps
+         * the old value until the hard expiry. A refresh result is dropped if the entry it
+         * started from has since been replaced or removed, so it never overwrites a newer value.
+         *
+         * @param expirationMs the hard expiration time in milliseconds
+         * @param refreshAfterMs the soft age in milliseconds after which a refresh is started
+         * @param refreshExecutor the executor that runs refreshes
+         */
+        public TimedCache(long expirationMs, long refreshAfterMs,
+                @NotNull Executor refreshExecutor) {
+            this.expirationMs = expirationMs;
+            this.refreshAfterMs = refreshAfterMs;
+            this.refreshExecutor = Objects.requireNonNull(refreshExecutor);
+        }
+
+        /**
+         * Sets a value in the cache.
+         *
+         * @param key the cache key
+         * @param value the value to cache
+         */
+        public void set(@NotNull K key, @Nullable V value) {
+            refreshing.remove(key);
+            long expiryTime = System.currentTimeMillis() + expirationMs;
+            var entry = new CacheEntry<>(key, value, expiryTime);
+            var previous = cache.put(key, entry);
+            if (previous != null) {
+                wheel.deschedule(previous);
+            }
+            wheel.schedule(entry);
+        }
+
+        /**
+         * Gets a value from the cache if it exists and hasn't expired.
+         *
+         * @param key the cache key
+         * @return the cached value, or null if expired or not found
+         */
+        @SuppressWarnings("null")
+        @Nullable
+        public V get(@NotNull K key) {
+            applyRefreshes();
+            var entry = cache.get(key);
+            if (entry == null) {
+                stats.recordMiss();
+                return null;
+            }
+            if (entry.isExpired()) {
+                cache.remove(key);
+                wheel.deschedule(entry);
+                stats.recordExpiration();
+                stats.recordMiss();
+                return null;
+            }
+            stats.recordHit();
+            return entry.value;
+        }
+
+        /**
+         * Gets a value from the cache, computing it if missing or expired. In refresh-ahead mode,
+         * an entry past its refresh age is returned as-is while {@code supplier} recomputes it in
+         * the background.
+         *
+         * @param key the cache key
+         * @param supplier the supplier to compute the value if needed
+         * @return the cached or computed value
+         */
+        @Nullable
+        public V getOrCompute(@NotNull K key, @NotNull Supplier<@Nullable V> supplier) {
+            var cached = get(key);
+            if (cached != null) {
+                refreshIfStale(key, supplier);
+                return cached;
+            }
+            var computed = stats.recordLoad(supplier);
+            set(key, computed);
+            return computed;
+        }
+
+        /**
+         * Removes an entry from the cache.
+         *
+         * @param key the cache key
+         */
+        public void remove(@NotNull K key) {
+            refreshing.remove(key);
+            var entry = cache.remove(key);
+            if (entry != null) {
+                wheel.deschedule(entry);
+            }
+        }
+
+        /**
+         * Clears all entries from the cache.
+         */
+        public void clear() {
+            cache.clear();
+            wheel.clear();
+            refreshing.clear();
+        }
+
+        /**
+         * Removes all expired entries in amortized O(1) per entry.
+         */
+        @Override
+        public void cleanUp() {
+            applyRefreshes();
+            wheel.advance(System.currentTimeMillis(), entry -> {
+                if (cache.remove(entry.key, entry)) {
+                    stats.recordExpiration();
+                }
+            });
+        }
+
+        /**
+         * Gets the number of live (non-expired) entries in the cache.
+         *
+         * @return the cache size
+         */
+        @Override
+        public int size() {
+            cleanUp();
+            return cache.size();
+        }
+
+        /**
+         * Checks if a key exists in the cache and is not expired.
+         *
+         * @param key the cache key
+         * @return true if the key has a valid cached value
+         */
+        public boolean has(@NotNull K key) {
+            return get(key) != null;
+        }
+
+        private void refreshIfStale(K key, Supplier<@Nullable V> supplier) {
+            if (refreshExecutor == null) {
+                return;
+            }
+            var entry = cache.get(key);
+            long writeTime = entry.expiryTime - expirationMs;
+            if (System.currentTimeMillis() - writeTime < refreshAfterMs
+                    || refreshing.putIfAbsent(key, entry) != null) {
+                return;
+            }
+            StatsCounter counter = stats;
+            CompletableFuture.supplyAsync(() -> counter.recordLoad(supplier), refreshExecutor)
+                    .whenComplete((value, error) -> refreshed
+                            .add(new Refresh<>(entry, value, error == null)));
+        }
+
+        /**
+         * Swaps in values recomputed in the background. Runs on the cache's own thread, and skips
+         * refreshes whose starting entry has since been replaced or removed.
+         */
+        private void applyRefreshes() {
+            if (refreshExecutor == null) {
+                return;
+            }
+            Refresh<K, V> refresh;
+            while ((refresh = refreshed.poll()) != null) {
+                K key = refresh.base.key;
+                if (refreshing.remove(key, refresh.base) && refresh.succeeded
+                        && cache.get(key) == refresh.base) {
+                    set(key, refresh.value);
+                }
+            }
+        }
+
+        /**
+         * A background recompute result waiting to be applied.
+         */
+        private static final class Refresh<K, V> {
+            private final CacheEntry<K, V> base;
+            @Nullable
+            private final V value;
+            private final boolean succeeded;
+
+            Refresh(CacheEntry<K, V> base, @Nullable V value, boolean succeeded) {
+                this.base = base;
+                this.value = value;
+                this.succeeded = succeeded;
+            }
+        }
+    }
+
+    /**
+     * A thread-safe variant of {@link TimedCache} with the same API.
+     *
+     * <p>
+     * Backed by a {@link ConcurrentHashMap} of immutable entries, so reads never block and writers
+     * only contend when they touch the same hash bin. Expired entries are removed with a
+     * conditional {@code remove(key, entry)}, which never discards a fresher value written
+     * concurrently by another thread. Expiry is tracked by one timing wheel per stripe of the key
+     * space, each guarded by its own lock, so writers to different keys rarely contend on the
+     * wheel either; a sweep locks one stripe at a time.
+     *
+     * <p>
+     * Use this instead of wrapping a {@link TimedCache} in an external lock when the cache is
+     * populated from async work (for example {@link FileHelper#readJsonAsync}) and read on the
+     * server thread.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     */
+    public static class ConcurrentTimedCache<K, V> extends StatsSupport implements Sweepable {
+        private final ConcurrentMap<K, CacheEntry<K, V>> cache = new ConcurrentHashMap<>();
+        private final TimerWheel<K, V>[] wheels;
+        private final long expirationMs;
+
+        /**
+         * Creates a new concurrent timed cache with the specified expiration duration.
+         *
+         * @param expirationMs the expiration time in milliseconds
+         */
+        @SuppressWarnings("unchecked")
+        public ConcurrentTimedCache(long expirationMs) {
+            this.expirationMs = expirationMs;
+            int stripes = Integer.highestOneBit(
+                    Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1;
+            long now = System.currentTimeMillis();
+            this.wheels = new TimerWheel[stripes];
+            for (int i = 0; i < stripes; i++) {
+                wheels[i] = new TimerWheel<>(now);
+            }
+        }
+
+        /**
+         * Sets a value in the cache.
+         *
+         * @param key the cache key
+         * @param value the value to cache
+         */
+        public void set(@NotNull K key, @Nullable V value) {
+            long expiryTime = System.currentTimeMillis() + expirationMs;
+            var entry = new CacheEntry<>(key, value, expiryTime);
+            reschedule(cache.put(key, entry), entry);
+        }
+
+        /**
+         * Gets a value from the cache if it exists and hasn't expired.
+         *
+         * @param key the cache key
+         * @return the cached value, or null if expired or not found
+         */
+        @Nullable
+        public V get(@NotNull K key) {
+            var entry = cache.get(key);
+            if (entry == null) {
+                stats.recordMiss();
+                return null;
+            }
+            if (entry.isExpired()) {
+                if (cache.remove(key, entry)) {
+                    reschedule(entry, null);
+                    stats.recordExpiration();
+                }
+                stats.recordMiss();
+                return null;
+            }
+            stats.recordHit();
+            return entry.value;
+        }
+
+        /**
+         * Gets a value from the cache, computing it if missing or expired.
+         *
+         * <p>
+         * The supplier runs at most once per key at a time; concurrent callers for the same key
+         * wait for it and share the result. Keep the supplier short, as it holds the key's hash
+         * bin while it runs.
+         *
+         * @param key the cache key
+         * @param supplier the supplier to compute the value if needed
+         * @return the cached or computed value
+         */
+        @Nullable
+        public V getOrCompute(@NotNull K key, @NotNull Supplier<@Nullable V> supplier) {
+            var entry = cache.get(key);
+            if (entry != null && !entry.isExpired() && entry.value != null) {
+                stats.recordHit();
+                return entry.value;
+            }
+            @SuppressWarnings("unchecked")
+            CacheEntry<K, V>[] replaced = new CacheEntry[2];
+            var result = cache.compute(key, (k, existing) -> {
+                if (existing != null && !existing.isExpired() && existing.value != null) {
+                    stats.recordHit();
+                    return existing;
+                }
+                if (existing != null && existing.isExpired()) {
+                    stats.recordExpiration();
+                }
+                stats.recordMiss();
+                replaced[0] = existing;
+                replaced[1] = new CacheEntry<>(k, stats.recordLoad(supplier),
+                        System.currentTimeMillis() + expirationMs);
+                return replaced[1];
+            });
+            if (result == replaced[1]) {
+                reschedule(replaced[0], result);
+            }
+            return result.value;
+        }
+
+        /**
+         * Removes an entry from the cache.
+         *
+         * @param key the cache key
+         */
+        public void remove(@NotNull K key) {
+            reschedule(cache.remove(key), null);
+        }
+
+        /**
+         * Clears all entries from the cache.
+         */
+        public void clear() {
+            // Wheels first: an entry written after its stripe is cleared is either still in the
+            // map and scheduled, or already gone from the map
+            for (TimerWheel<K, V> wheel : wheels) {
+                synchronized (wheel) {
+                    wheel.clear();
+                }
+            }
+            cache.clear();
+        }
+
+        /**
+         * Removes all expired entries in amortized O(1) per entry. Safe to call from any thread.
+         */
+        @Override
+        public void cleanUp() {
+            long now = System.currentTimeMillis();
+            for (TimerWheel<K, V> wheel : wheels) {
+                synchronized (wheel) {
+                    wheel.advance(now, entry -> {
+                        if (cache.remove(entry.key, entry)) {
+                            stats.recordExpiration();
+                        }
+                    });
+                }
+            }
+        }
+
+        /**
+         * Gets the number of live (non-expired) entries in the cache.
+         *
+         * @return the cache size
+         */
+        @Override
+        public int size() {
+            cleanUp();
+            return cache.size();
+        }
+
+        /**
+         * Checks if a key exists in the cache and is not expired.
+         *
+         * @param key the cache key
+         * @return true if the key has a valid cached value
+         */
+        public boolean has(@NotNull K key) {
+            return get(key) != null;
+        }
+
+        /**
+         * Moves the key's wheel from an old entry to its replacement. Map updates happen before
+         * the stripe lock is taken, so a racing writer can leave a superseded entry scheduled; the
+         * conditional removal in {@link #cleanUp()} makes such leftovers harmless.
+         */
+        private void reschedule(@Nullable CacheEntry<K, V> previous,
+                @Nullable CacheEntry<K, V> entry) {
+            if (previous == null && entry == null) {
+                return;
+            }
+            K key = previous != null ? previous.key : entry.key;
+            TimerWheel<K, V> wheel = wheels[spread(key.hashCode()) & (wheels.length - 1)];
+            synchronized (wheel) {
+                if (previous != null) {
+                    wheel.deschedule(previous);
+                }
+                if (entry != null && cache.get(entry.key) == entry) {
+                    wheel.schedule(entry);
+                }
+            }
+        }
+
+        private static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+    }
+
+    /**
+     * A thread-safe cache that loads values asynchronously and deduplicates concurrent loads.
+     *
+     * <p>
+     * All callers that miss on the same key while a load is in flight share one
+     * {@link CompletableFuture}; the loader runs once. Successful results are kept for
+     * {@code expirationMs}, failures only for {@code failureExpirationMs} so a broken load is
+     * retried soon without being hammered. Use {@link #get(Object, Executor)} with the
+     * {@code MinecraftServer} (an {@link Executor} for its main thread) to receive results on the
+     * server thread.
+     *
+     * <pre>
+     * var profiles = new CacheHelper.AsyncLoadingCache&lt;Path, JsonObject&gt;(60_000, 1_000,
+     *         FileHelper::readJsonAsync);
+     * profiles.get(path, server).thenAccept(json -&gt; applyProfile(player, json));
+     * </pre>
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     */
+    public static class AsyncLoadingCache<K, V> extends StatsSupport implements Sweepable {
+        private final ConcurrentMap<K, CacheEntry<K, CompletableFuture<V>>> cache =
+                new ConcurrentHashMap<>();
+        private final TimerWheel<K, CompletableFuture<V>> wheel =
+                new TimerWheel<>(System.currentTimeMillis());
+        private final Function<K, CompletableFuture<V>> loader;
+        private final long expirationMs;
+        private final long failureExpirationMs;
+
+        /**
+         * Creates a new async loading cache.
+         *
+         * @param expirationMs how long successfully loaded values are kept, in milliseconds
+         * @param failureExpirationMs how long failed loads are remembered, in milliseconds
+         * @param loader starts loading the value for a key
+         */
+        public AsyncLoadingCache(long expirationMs, long failureExpirationMs,
+                @NotNull Function<K, CompletableFuture<V>> loader) {
+            this.expirationMs = expirationMs;
+            this.failureExpirationMs = failureExpirationMs;
+            this.loader = Objects.requireNonNull(loader);
+        }
+
+        /**
+         * Gets the value for a key, starting a load if it is missing or expired. Concurrent
+         * callers for the same key receive the same future.
+         *
+         * @param key the cache key
+         * @return a future completing with the value, or exceptionally if the load failed
+         */
+        @NotNull
+        public CompletableFuture<V> get(@NotNull K key) {
+            var entry = cache.get(key);
+            if (entry != null && !entry.isExpired()) {
+                stats.recordHit();
+                return entry.value;
+            }
+            var loading = new CacheEntry<K, CompletableFuture<V>>(key, new CompletableFuture<>(),
+                    Long.MAX_VALUE);
+            var current = cache.compute(key, (k, existing) -> {
+                if (existing == null) {
+                    return loading;
+                }
+                if (existing.isExpired()) {
+                    stats.recordExpiration();
+                    return loading;
+                }
+                return existing;
+            });
+            if (current != loading) {
+                stats.recordHit();
+                return current.value;
+            }
+            stats.recordMiss();
+            load(key, loading);
+            return loading.value;
+        }
+
+        /**
+         * Gets the value for a key like {@link #get(Object)}, completing the returned future on
+         * the given executor. Pass the {@code MinecraftServer} to continue on the server thread.
+         *
+         * @param key the cache key
+         * @param executor the executor that completes the returned future
+         * @return a future completing on {@code executor}
+         */
+        @NotNull
+        public CompletableFuture<V> get(@NotNull K key, @NotNull Executor executor) {
+            var handoff = new CompletableFuture<V>();
+            get(key).whenCompleteAsync((value, error) -> {
+                if (error != null) {
+                    handoff.completeExceptionally(error);
+                } else {
+                    handoff.complete(value);
+                }
+            }, executor);
+            return handoff;
+        }
+
+        /**
+         * Gets a value only if it has already loaded successfully. Never blocks or starts a load.
+         *
+         * @param key the cache key
+         * @return the loaded value, or null if absent, loading, failed or expired
+         */
+        @Nullable
+        public V getIfPresent(@NotNull K key) {
+            var entry = cache.get(key);
+            if (entry == null || entry.isExpired() || !entry.value.isDone()
+                    || entry.value.isCompletedExceptionally()) {
+                stats.recordMiss();
+                return null;
+            }
+            stats.recordHit();
+            return entry.value.join();
+        }
+
+        /**
+         * Stores an already-known value, replacing any cached or in-flight entry.
+         *
+         * @param key the cache key
+         * @param value the value to cache
+         */
+        public void put(@NotNull K key, @Nullable V value) {
+            var entry = new CacheEntry<>(key, CompletableFuture.completedFuture(value),
+                    System.currentTimeMillis() + expirationMs);
+            var previous = cache.put(key, entry);
+            synchronized (wheel) {
+                if (previous != null) {
+                    wheel.deschedule(previous);
+                }
+                if (cache.get(key) == entry) {
+                    wheel.schedule(entry);
+                }
+            }
+        }
+
+        /**
+         * Removes an entry. Callers already waiting on an in-flight load still receive its result.
+         *
+         * @param key the cache key
+         */
+        public void invalidate(@NotNull K key) {
+            var previous = cache.remove(key);
+            if (previous != null) {
+                synchronized (wheel) {
+                    wheel.deschedule(previous);
+                }
+            }
+        }
+
+        /**
+         * Clears all entries from the cache.
+         */
+        public void clear() {
+            synchronized (wheel) {
+                cache.clear();
+                wheel.clear();
+            }
+        }
+
+        /**
+         * Removes all expired entries. Safe to call from any thread.
+         */
+        @Override
+        public void cleanUp() {
+            synchronized (wheel) {
+                wheel.advance(System.currentTimeMillis(), entry -> {
+                    if (cache.remove(entry.key, entry)) {
+                        stats.recordExpiration();
+                    }
+                });
+            }
+        }
+
+        /**
+         * Gets the number of live entries, including loads still in flight.
+         *
+         * @return the cache size
+         */
+        @Override
+        public int size() {
+            cleanUp();
+            return cache.size();
+        }
+
+        private void load(K key, CacheEntry<K, CompletableFuture<V>> loading) {
+            long start = System.nanoTime();
+            CompletableFuture<V> future;
+            try {
+                future = Objects.requireNonNull(loader.apply(key), "loader returned null");
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            future.whenComplete((value, error) -> {
+                long loadTime = System.nanoTime() - start;
+                if (error == null) {
+                    stats.recordLoadSuccess(loadTime);
+                } else {
+                    stats.recordLoadFailure(loadTime);
+                }
+                long ttl = error == null ? expirationMs : failureExpirationMs;
+                var loaded = new CacheEntry<>(key, loading.value, System.currentTimeMillis() + ttl);
+                // Publish the settled entry before completing so follow-up lookups hit it
+                if (cache.replace(key, loading, loaded)) {
+                    synchronized (wheel) {
+                        if (cache.get(key) == loaded) {
+                            wheel.schedule(loaded);
+                        }
+                    }
+                }
+                if (error != null) {
+                    loading.value.completeExceptionally(error);
+                } else {
+                    loading.value.complete(value);
+                }
+            });
+        }
+    }
+
+    /**
+     * A simple value cache that holds a single value with optional expiration.
+     *
+     * @param <T> the value type
+     */
+    public static class ValueCache<T> implements Sweepable {
+        @Nullable
+        private T value;
+        @Nullable
+        private Long expiryTime;
+        private final long expirationMs;
+        private boolean isSet = false;
+
+        /**
+         * Creates a value cache with the specified expiration duration.
+         *
+         * @param expirationMs the expiration time in milliseconds (-1 for no expiration)
+         */
+        @SuppressWarnings("null")
+        public ValueCache(long expirationMs) {
+            this.expirationMs = expirationMs;
+        }
+
+        /**
+         * Sets the cached value.
+         *
+         * @param value the value to cache
+         */
+        public void set(@Nullable T value) {
+            this.value = value;
+            this.isSet = true;
+            if (expirationMs > 0) {
+                this.expiryTime = System.currentTimeMillis() + expirationMs;
+            }
+        }
+
+        /**
+         * Gets the cached value if it hasn't expired.
+         *
+         * @return the cached value, or null if not set or expired
+         */
+        @SuppressWarnings("null")
+        @Nullable
+        public T get() {
+            if (!isSet) {
+                return null;
+            }
+            if (expiryTime != null && System.currentTimeMillis() > expiryTime) {
+                clear();
+                return null;
+            }
+            return value;
+        }
+
+        /**
+         * Gets the cached value, computing it if missing or expired.
+         *
+         * @param supplier the supplier to compute the value if needed
+         * @return the cached or computed value
+         */
+        @Nullable
+        public T getOrCompute(@NotNull Supplier<@Nullable T> supplier) {
+            var cached = get();
+            if (cached != null || (isSet && value == null)) {
+                return cached;
+            }
+            var computed = supplier.get();
+            set(computed);
+            return computed;
+        }
+
+        /**
+         * Clears the cached value.
+         */
+        @SuppressWarnings("null")
+        public void clear() {
+            value = null;
+            expiryTime = null;
+            isSet = false;
+        }
+
+        /**
+         * Releases the cached value if it has expired.
+         */
+        @Override
+        public void cleanUp() {
+            get();
+        }
+
+        /**
+         * Checks if a value is cached and valid.
+         *
+         * @return true if a valid value is cached
+         */
+        public boolean isValid() {
+            return get() != null;
+        }
+    }
+
+    /**
+     * An LRU (Least Recently Used) cache that evicts old entries when capacity is reached.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     */
+    public static class LRUCache<K, V> extends StatsSupport {
+        private final Map<K, V> cache;
+        private final int maxSize;
+
+        /**
+         * Creates a new LRU cache with the specified maximum size.
+         *
+         * @param maxSize the maximum number of entries
+         */
+        public LRUCache(int maxSize) {
+            this.maxSize = maxSize;
+            this.cache = new LinkedHashMap<K, V>(maxSize, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                    if (size() <= LRUCache.this.maxSize) {
+                        return false;
+                    }
+                    stats.recordEviction(EvictionCause.SIZE);
+                    return true;
+                }
+            };
+        }
+
+        /**
+         * Gets a value from the cache.
+         *
+         * @param key the key
+         * @return the cached value, or null if not present
+         */
+        @Nullable
+        public V get(@NotNull K key) {
+            V value = cache.get(key);
+            stats.recordLookup(value != null);
+            return value;
+        }
+
+        /**
+         * Puts a value into the cache.
+         *
+         * @param key the key
+         * @param value the value
+         */
+        public void put(@NotNull K key, @NotNull V value) {
+            cache.put(key, value);
+        }
+
+        /**
+         * Computes a value if absent from the cache.
+         *
+         * @param key the key
+         * @param mappingFunction the function to compute the value
+         * @return the cached or computed value
+         */
+        @Nullable
+        public V computeIfAbsent(@NotNull K key, @NotNull Function<K, V> mappingFunction) {
+            V value = get(key);
+            if (value == null) {
+                value = stats.recordLoad(() -> mappingFunction.apply(key));
+                if (value != null) {
+                    cache.put(key, value);
+                }
+            }
+            return value;
+        }
+
+        /**
+         * Checks if the cache contains a key.
+         *
+         * @param key the key
+         * @return true if the key exists
+         */
+        public boolean containsKey(@NotNull K key) {
+            return cache.containsKey(key);
+        }
+
+        /**
+         * Removes a key from the cache.
+         *
+         * @param key the key to remove
+         */
+        public void remove(@NotNull K key) {
+            cache.remove(key);
+        }
+
+        /**
+         * Clears all entries from the cache.
+         */
+        public void clear() {
+            cache.clear();
+        }
+
+        /**
+         * Gets the current size of the cache.
+         *
+         * @return the number of entries
+         */
+        @Override
+        public int size() {
+            return cache.size();
+        }
+
+        /**
+         * Gets the maximum size of the cache.
+         *
+         * @return the maximum number of entries
+         */
+        public int maxSize() {
+            return maxSize;
+        }
+    }
+
+    /**
+     * Estimates the memory cost of a cached value, in approximate bytes.
+     *
+     * @param <V> the value type
+     */
+    @FunctionalInterface
+    public interface Weigher<V> {
+        /**
+         * Returns the estimated weight of a value. Must not change while the value is cached.
+         *
+         * @param value the value to weigh
+         * @return a non-negative weight
+         */
+        long weigh(@NotNull V value);
+    }
+
+    /**
+     * Ready-made {@link Weigher}s for common cached values. Weights approximate retained heap
+     * bytes; they are meant to compare values against each other, not to be exact.
+     */
+    public static final class Weighers {
+        private static final long OBJECT_OVERHEAD = 16;
+        private static final long REFERENCE = 8;
+
+        private Weighers() {}
+
+        /**
+         * Weighs every value as 1, turning a weighted cache into a count-bounded one.
+         *
+         * @param <V> the value type
+         * @return the weigher
+         */
+        @NotNull
+        public static <V> Weigher<V> singleton() {
+            return value -> 1;
+        }
+
+        /**
+         * Weighs strings by their length.
+         *
+         * @return the weigher
+         */
+        @NotNull
+        public static Weigher<String> string() {
+            return Weighers::weighString;
+        }
+
+        /**
+         * Weighs JSON trees by walking every element once at insertion.
+         *
+         * @param <J> the JSON element type
+         * @return the weigher
+         */
+        @NotNull
+        public static <J extends JsonElement> Weigher<J> json() {
+            return Weighers::weighJson;
+        }
+
+        /**
+         * Weighs NBT compounds by their serialized size.
+         *
+         * @return the weigher
+         */
+        @NotNull
+        public static Weigher<NbtCompound> nbt() {
+            return compound -> OBJECT_OVERHEAD + compound.getSizeInBytes();
+        }
+
+        /**
+         * Weighs item stack lists by stack count and component changes, e.g. cached loot rolls.
+         *
+         * @param <L> the list type
+         * @return the weigher
+         */
+        @NotNull
+        public static <L extends List<ItemStack>> Weigher<L> itemStacks() {
+            return stacks -> {
+                long weight = OBJECT_OVERHEAD + REFERENCE * stacks.size();
+                for (ItemStack stack : stacks) {
+                    if (!stack.isEmpty()) {
+                        weight += 4 * OBJECT_OVERHEAD
+                                + 2 * OBJECT_OVERHEAD * stack.getComponentChanges().size();
+                    }
+                }
+                return weight;
+            };
+        }
+
+        private static long weighString(String value) {
+            return 2 * OBJECT_OVERHEAD + value.length();
+        }
+
+        private static long weighJson(JsonElement element) {
+            if (element.isJsonObject()) {
+                long weight = 2 * OBJECT_OVERHEAD;
+                for (var member : element.getAsJsonObject().entrySet()) {
+                    weight += 2 * REFERENCE + weighString(member.getKey())
+                            + weighJson(member.getValue());
+                }
+                return weight;
+            }
+            if (element.isJsonArray()) {
+                long weight = 2 * OBJECT_OVERHEAD;
+                for (JsonElement child : element.getAsJsonArray()) {
+                    weight += REFERENCE + weighJson(child);
+                }
+                return weight;
+            }
+            if (element.isJsonPrimitive() && element.getAsJsonPrimitive().isString()) {
+                return OBJECT_OVERHEAD + weighString(element.getAsString());
+            }
+            return element.isJsonNull() ? 0 : 2 * OBJECT_OVERHEAD;
+        }
+    }
+
+    /**
+     * An LRU cache bounded by the total weight of its values rather than their count.
+     *
+     * <p>
+     * Each value is weighed once when it is stored; least recently used entries are evicted until
+     * the total fits {@code maxWeight}. A value heavier than {@code maxWeight} on its own is not
+     * cached. Not thread-safe.
+     *
+     * <pre>
+     * var lootTables = new CacheHelper.WeightedCache&lt;Identifier, JsonObject&gt;(64L &lt;&lt; 20,
+     *         CacheHelper.Weighers.json()); // about 64 MB
+     * </pre>
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     */
+    public static class WeightedCache<K, V> extends StatsSupport {
+        private final Map<K, Weighted<V>> cache = new LinkedHashMap<>(16, 0.75f, true);
+        private final Weigher<? super V> weigher;
+        private final long maxWeight;
+        private long totalWeight;
+
+        /**
+         * Creates a new weighted cache.
+         *
+         * @param maxWeight the maximum total weight
+         * @param weigher estimates the weight of each value
+         */
+        public WeightedCache(long maxWeight, @NotNull Weigher<? super V> weigher) {
+            this.maxWeight = maxWeight;
+            this.weigher = Objects.requireNonNull(weigher);
+        }
+
+        /**
+         * Gets a value from the cache.
+         *
+         * @param key the key
+         * @return the cached value, or null if not present
+         */
+        @Nullable
+        public V get(@NotNull K key) {
+            var entry = cache.get(key);
+            stats.recordLookup(entry != null);
+            return entry != null ? entry.value : null;
+        }
+
+        /**
+         * Puts a value into the cache, evicting least recently used entries as needed.
+         *
+         * @param key the key
+         * @param value the value
+         */
+        public void put(@NotNull K key, @NotNull V value) {
+            long weight = Math.max(0, weigher.weigh(value));
+            remove(key);
+            if (weight > maxWeight) {
+                stats.recordEviction(EvictionCause.WEIGHT);
+                return;
+            }
+            cache.put(key, new Weighted<>(value, weight));
+            totalWeight += weight;
+            var iterator = cache.values().iterator();
+            while (totalWeight > maxWeight && iterator.hasNext()) {
+                totalWeight -= iterator.next().weight;
+                iterator.remove();
+                stats.recordEviction(EvictionCause.WEIGHT);
+            }
+        }
+
+        /**
+         * Computes a value if absent from the cache.
+         *
+         * @param key the key
+         * @param mappingFunction the function to compute the value
+         * @return the cached or computed value
+         */
+        @Nullable
+        public V computeIfAbsent(@NotNull K key, @NotNull Function<K, V> mappingFunction) {
+            V value = get(key);
+            if (value == null) {
+                value = stats.recordLoad(() -> mappingFunction.apply(key));
+                if (value != null) {
+                    put(key, value);
+                }
+            }
+            return value;
+        }
+
+        /**
+         * Checks if the cache contains a key.
+         *
+         * @param key the key
+         * @return true if the key exists
+         */
+        public boolean containsKey(@NotNull K key) {
+            return cache.containsKey(key);
+        }
+
+        /**
+         * Removes a key from the cache.
+         *
+         * @param key the key to remove
+         */
+        public void remove(@NotNull K key) {
+            var entry = cache.remove(key);
+            if (entry != null) {
+                totalWeight -= entry.weight;
+            }
+        }
+
+        /**
+         * Clears all entries from the cache.
+         */
+        public void clear() {
+            cache.clear();
+            totalWeight = 0;
+        }
+
+        /**
+         * Gets the number of entries in the cache.
+         *
+         * @return the number of entries
+         */
+        @Override
+        public int size() {
+            return cache.size();
+        }
+
+        /**
+         * Gets the combined weight of all cached values.
+         *
+         * @return the current total weight
+         */
+        public long totalWeight() {
+            return totalWeight;
+        }
+
+        /**
+         * Gets the maximum total weight of the cache.
+         *
+         * @return the weight bound
+         */
+        public long maxWeight() {
+            return maxWeight;
+        }
+
+        /**
+         * A cached value with the weight it was stored at.
+         */
+        private static final class Weighted<V> {
+            private final V value;
+            private final long weight;
+
+            Weighted(V value, long weight) {
+                this.value = value;
+                this.weight = weight;
+            }
+        }
+    }
+
+    /**
+     * A {@link TimedCache} keyed by primitive {@code long}, such as {@code BlockPos.asLong()} or
+     * {@code ChunkPos.toLong()}.
+     *
+     * <p>
+     * Keys, values and expiry times live in parallel arrays of an open-addressing table with
+     * linear probing, so there is no boxed key and no entry object per mapping, and lookups touch
+     * contiguous memory. Deletion shifts the following cluster back instead of leaving tombstones.
+     * {@link #cleanUp()} and {@link #size()} scan the whole table, which is cheap for flat arrays
+     * but O(capacity). Not thread-safe.
+     *
+     * @param <V> the value type
+     */
+    public static class LongTimedCache<V> extends StatsSupport implements Sweepable {
+        private long[] keys;
+        private Object[] values;
+        private long[] expiries;
+        private int mask;
+        private int size;
+        private final long expirationMs;
+
+        /**
+         * Creates a new long-keyed timed cache with the specified expiration duration.
+         *
+         * @param expirationMs the expiration time in milliseconds
+         */
+        public LongTimedCache(long expirationMs) {
+            this.expirationMs = expirationMs;
+            allocate(16);
+        }
+
+        /**
+         * Sets a value in the cache.
+         *
+         * @param key the cache key
+         * @param value the value to cache
+         */
+        public void set(long key, @Nullable V value) {
+            long expiryTime = System.currentTimeMillis() + expirationMs;
+            int index = mixLong(key) & mask;
+            while (values[index] != null) {
+                if (keys[index] == key) {
+                    values[index] = maskNull(value);
+                    expiries[index] = expiryTime;
+                    return;
+                }
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            values[index] = maskNull(value);
+            expiries[index] = expiryTime;
+            if (++size > (mask + 1) >>> 1) {
+                resize();
+            }
+        }
+
+        /**
+         * Gets a value from the cache if it exists and hasn't expired.
+         *
+         * @param key the cache key
+         * @return the cached value, or null if expired or not found
+         */
+        @Nullable
+        public V get(long key) {
+            int index = indexOf(key);
+            if (index < 0) {
+                stats.recordMiss();
+                return null;
+            }
+            if (System.currentTimeMillis() > expiries[index]) {
+                removeAt(index);
+                stats.recordExpiration();
+                stats.recordMiss();
+                return null;
+            }
+            stats.recordHit();
+            return unmaskNull(values[index]);
+        }
+
+        /**
+         * Gets a value from the cache, computing it if missing or expired.
+         *
+         * @param key the cache key
+         * @param supplier the supplier to compute the value if needed
+         * @return the cached or computed value
+         */
+        @Nullable
+        public V getOrCompute(long key, @NotNull Supplier<@Nullable V> supplier) {
+            var cached = get(key);
+            if (cached != null) {
+                return cached;
+            }
+            var computed = stats.recordLoad(supplier);
+            set(key, computed);
+            return computed;
+        }
+
+        /**
+         * Removes an entry from the cache.
+         *
+         * @param key the cache key
+         */
+        public void remove(long key) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                removeAt(index);
+            }
+        }
+
+        /**
+         * Clears all entries from the cache.
+         */
+        public void clear() {
+            Arrays.fill(values, null);
+            size = 0;
+        }
+
+        /**
+         * Removes all expired entries with one pass over the table.
+         */
+        @Override
+        public void cleanUp() {
+            long now = System.currentTimeMillis();
+            int index = 0;
+            while (index < values.length) {
+                if (values[index] != null && now > expiries[index]) {
+                    // A later entry may have shifted into this slot; check it before moving on
+                    removeAt(index);
+                    stats.recordExpiration();
+                } else {
+                    index++;
+                }
+            }
+        }
+
+        /**
+         * Gets the number of live (non-expired) entries in the cache.
+         *
+         * @return the cache size
+         */
+        @Override
+        public int size() {
+            cleanUp();
+            return size;
+        }
+
+        /**
+         * Checks if a key exists in the cache and is not expired.
+         *
+         * @param key the cache key
+         * @return true if the key has a valid cached value
+         */
+        public boolean has(long key) {
+            return get(key) != null;
+        }
+
+        private int indexOf(long key) {
+            int index = mixLong(key) & mask;
+            while (values[index] != null) {
+                if (keys[index] == key) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        private void removeAt(int index) {
+            size--;
+            int last = index;
+            int slot = index;
+            while (true) {
+                slot = (slot + 1) & mask;
+                if (values[slot] == null) {
+                    values[last] = null;
+                    return;
+                }
+                int ideal = mixLong(keys[slot]) & mask;
+                boolean stays = last <= slot ? last < ideal && ideal <= slot
+                        : last < ideal || ideal <= slot;
+                if (!stays) {
+                    keys[last] = keys[slot];
+                    values[last] = values[slot];
+                    expiries[last] = expiries[slot];
+                    last = slot;
+                }
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+            expiries = new long[capacity];
+            mask = capacity - 1;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            long[] oldExpiries = expiries;
+            allocate(oldValues.length << 1);
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != null) {
+                    int index = mixLong(oldKeys[i]) & mask;
+                    while (values[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+                    keys[index] = oldKeys[i];
+                    values[index] = oldValues[i];
+                    expiries[index] = oldExpiries[i];
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        @Nullable
+        private V unmaskNull(Object value) {
+            return value == NULL_VALUE ? null : (V) value;
+        }
+    }
+
+    /**
+     * An {@link LRUCache} keyed by primitive {@code long}, such as {@code BlockPos.asLong()} or
+     * {@code ChunkPos.toLong()}.
+     *
+     * <p>
+     * A fixed-size open-addressing table sized for {@code maxSize}; recency order is an
+     * index-linked list kept in {@code int} arrays alongside the keys and values, so no entry
+     * objects or boxed keys are allocated. Not thread-safe.
+     *
+     * @param <V> the value type
+     */
+    public static class LongLRUCache<V> extends StatsSupport {
+        private static final int NONE = -1;
+
+        private final long[] keys;
+        private final Object[] values;
+        private final int[] before;
+        private final int[] after;
+        private final int mask;
+        private final int maxSize;
+        private int head = NONE;
+        private int tail = NONE;
+        private int size;
+
+        /**
+         * Creates a new long-keyed LRU cache with the specified maximum size.
+         *
+         * @param maxSize the maximum number of entries
+         */
+        public LongLRUCache(int maxSize) {
+            this.maxSize = Math.max(1, maxSize);
+            int capacity = Integer.highestOneBit(this.maxSize) << 2;
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+            this.before = new int[capacity];
+            this.after = new int[capacity];
+            this.mask = capacity - 1;
+        }
+
+        /**
+         * Gets a value from the cache.
+         *
+         * @param key the key
+         * @return the cached value, or null if not present
+         */
+        @Nullable
+        public V get(long key) {
+            int index = indexOf(key);
+            if (index < 0) {
+                stats.recordMiss();
+                return null;
+            }
+            stats.recordHit();
+            moveToTail(index);
+            return value(index);
+        }
+
+        /**
+         * Puts a value into the cache.
+         *
+         * @param key the key
+         * @param value the value
+         */
+        public void put(long key, @NotNull V value) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                values[index] = value;
+                moveToTail(index);
+                return;
+            }
+            if (size == maxSize) {
+                removeAt(head);
+                stats.recordEviction(EvictionCause.SIZE);
+            }
+            index = mixLong(key) & mask;
+            while (values[index] != null) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            values[index] = value;
+            before[index] = tail;
+            after[index] = NONE;
+            if (tail != NONE) {
+                after[tail] = index;
+            } else {
+                head = index;
+            }
+            tail = index;
+            size++;
+        }
+
+        /**
+         * Computes a value if absent from the cache.
+         *
+         * @param key the key
+         * @param mappingFunction the function to compute the value
+         * @return the cached or computed value
+         */
+        @Nullable
+        public V computeIfAbsent(long key, @NotNull LongFunction<V> mappingFunction) {
+            V value = get(key);
+            if (value == null) {
+                value = stats.recordLoad(() -> mappingFunction.apply(key));
+                if (value != null) {
+                    put(key, value);
+                }
+            }
+            return value;
+        }
+
+        /**
+         * Checks if the cache contains a key.
+         *
+         * @param key the key
+         * @return true if the key exists
+         */
+        public boolean containsKey(long key) {
+            return indexOf(key) >= 0;
+        }
+
+        /**
+         * Removes a key from the cache.
+         *
+         * @param key the key to remove
+         */
+        public void remove(long key) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                removeAt(index);
+            }
+        }
+
+        /**
+         * Clears all entries from the cache.
+         */
+        public void clear() {
+            Arrays.fill(values, null);
+            head = NONE;
+            tail = NONE;
+            size = 0;
+        }
+
+        /**
+         * Gets the current size of the cache.
+         *
+         * @return the number of entries
+         */
+        @Override
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Gets the maximum size of the cache.
+         *
+         * @return the maximum number of entries
+         */
+        public int maxSize() {
+            return maxSize;
+        }
+
+        private int indexOf(long key) {
+            int index = mixLong(key) & mask;
+            while (values[index] != null) {
+                if (keys[index] == key) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        private void moveToTail(int index) {
+            if (index == tail) {
+                return;
+            }
+            unlink(index);
+            before[index] = tail;
+            after[index] = NONE;
+            after[tail] = index;
+            tail = index;
+        }
+
+        private void unlink(int index) {
+            int prev = before[index];
+            int next = after[index];
+            if (prev != NONE) {
+                after[prev] = next;
+            } else {
+                head = next;
+            }
+            if (next != NONE) {
+                before[next] = prev;
+            } else {
+                tail = prev;
+            }
+        }
+
+        private void removeAt(int index) {
+            unlink(index);
+            size--;
+            int last = index;
+            int slot = index;
+            while (true) {
+                slot = (slot + 1) & mask;
+                if (values[slot] == null) {
+                    values[last] = null;
+                    return;
+                }
+                int ideal = mixLong(keys[slot]) & mask;
+                boolean stays = last <= slot ? last < ideal && ideal <= slot
+                        : last < ideal || ideal <= slot;
+                if (!stays) {
+                    relocate(slot, last);
+                    last = slot;
+                }
+            }
+        }
+
+        /**
+         * Moves an entry to another slot, repointing its recency neighbours.
+         */
+        private void relocate(int from, int to) {
+            keys[to] = keys[from];
+            values[to] = values[from];
+            int prev = before[from];
+            int next = after[from];
+            before[to] = prev;
+            after[to] = next;
+            if (prev != NONE) {
+                after[prev] = to;
+            } else {
+                head = to;
+            }
+            if (next != NONE) {
+                before[next] = to;
+            } else {
+                tail = to;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private V value(int index) {
+            return (V) values[index];
+        }
+    }
+
+    private static Object maskNull(@Nullable Object value) {
+        return value == null ? NULL_VALUE : value;
+    }
+
+    /**
+     * Spreads a packed position so neighbouring coordinates land in different buckets.
+     */
+    private static int mixLong(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int) (h ^ (h >>> 16));
+    }
+
+    /**
+     * Receives server lifecycle events so a cache can drop entries tied to unloaded objects.
+     * Register implementations with {@link CacheHelper#releaseOnUnload}; all callbacks run on the
+     * server thread.
+     */
+    public interface UnloadListener {
+        /**
+         * Called when a world is unloaded, e.g. a dimension shutting down.
+         *
+         * @param world the world being unloaded
+         */
+        default void onWorldUnload(@NotNull ServerWorld world) {}
+
+        /**
+         * Called when an entity is unloaded or removed from its world.
+         *
+         * @param entity the entity being unloaded
+         */
+        default void onEntityUnload(@NotNull Entity entity) {}
+
+        /**
+         * Called when a block entity is unloaded with its chunk or removed.
+         *
+         * @param blockEntity the block entity being unloaded
+         */
+        default void onBlockEntityUnload(@NotNull BlockEntity blockEntity) {}
+
+        /**
+         * Called when a player disconnects from the server.
+         *
+         * @param player the disconnecting player
+         */
+        default void onPlayerDisconnect(@NotNull ServerPlayerEntity player) {}
+    }
+
+    /**
+     * Registers a listener to be notified when worlds, entities and block entities unload and when
+     * players disconnect. Listeners are held weakly, so registering a cache does not keep it alive.
+     *
+     * @param listener the listener, typically the cache itself
+     * @param <L> the listener type
+     * @return the same listener, for chaining at construction
+     */
+    @NotNull
+    public static <L extends UnloadListener> L releaseOnUnload(@NotNull L listener) {
+        UNLOAD_LISTENERS.add(Objects.requireNonNull(listener));
+        return listener;
+    }
+
+    /**
+     * Hooks the unload notifications of {@link #releaseOnUnload} into Fabric's lifecycle events.
+     *
+     * <p>
+     * Called once by the mod initializer.
+     */
+    public static void initializeEventListeners() {
+        ServerWorldEvents.UNLOAD
+                .register((server, world) -> notifyUnload(listener -> listener.onWorldUnload(world)));
+        ServerEntityEvents.ENTITY_UNLOAD.register(
+                (entity, world) -> notifyUnload(listener -> listener.onEntityUnload(entity)));
+        ServerBlockEntityEvents.BLOCK_ENTITY_UNLOAD.register((blockEntity,
+                world) -> notifyUnload(listener -> listener.onBlockEntityUnload(blockEntity)));
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
+            ServerPlayerEntity player = handler.getPlayer();
+            notifyUnload(listener -> listener.onPlayerDisconnect(player));
+        });
+    }
+
+    private static void notifyUnload(Consumer<UnloadListener> event) {
+        ArrayList<UnloadListener> snapshot;
+        synchronized (UNLOAD_LISTENERS) {
+            if (UNLOAD_LISTENERS.isEmpty()) {
+                return;
+            }
+            snapshot = new ArrayList<>(UNLOAD_LISTENERS);
+        }
+        for (UnloadListener listener : snapshot) {
+            try {
+                event.accept(listener);
+            } catch (Exception e) {
+                LogHelper.getLogger("moddinghelperapi", "CacheHelper")
+                        .error("Error in cache unload listener: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A cache whose keys are held weakly and/or whose values are held softly.
+     *
+     * <p>
+     * Weak keys let the garbage collector reclaim entries as soon as their key (a
+     * {@code ServerWorld}, {@code Entity} or {@code BlockEntity}) is no longer referenced
+     * elsewhere; keys are compared by {@code equals}, which is identity for those types. Soft
+     * values are released under memory pressure. On top of that, every cache created here is
+     * registered with {@link CacheHelper#releaseOnUnload}, so entries keyed by an unloaded world,
+     * entity or block entity, or by a disconnecting player or their UUID, are removed immediately
+     * rather than at the next GC. Not thread-safe; use from the server thread.
+     *
+     * <pre>
+     * var pathCache = CacheHelper.ReferenceCache.&lt;Entity, Path&gt;weakKeys();
+     * </pre>
      *
      * @param <K> the key type
      * @param <V> the value type
      */
-    public static class TimedCache<K, V> {
-        private static class CacheEntry<V> {
+    public static class ReferenceCache<K, V> extends StatsSupport
+            implements Sweepable, UnloadListener {
+        private final Map<K, Object> cache;
+        private final boolean weakKeys;
+        private final boolean softValues;
+        private final ReferenceQueue<V> collected = new ReferenceQueue<>();
+
+        private ReferenceCache(boolean weakKeys, boolean softValues) {
+            this.cache = weakKeys ? new WeakHashMap<>() : new HashMap<>();
+            this.weakKeys = weakKeys;
+            this.softValues = softValues;
+        }
+
+        /**
+         * Creates a cache with weakly held keys and strongly held values.
+         *
+         * @param <K> the key type
+         * @param <V> the value type
+         * @return a new registered cache
+         */
+        @NotNull
+        public static <K, V> ReferenceCache<K, V> weakKeys() {
+            return releaseOnUnload(new ReferenceCache<>(true, false));
+        }
+
+        /**
+         * Creates a cache with strongly held keys and softly held values.
+         *
+         * @param <K> the key type
+         * @param <V> the value type
+         * @return a new registered cache
+         */
+        @NotNull
+        public static <K, V> ReferenceCache<K, V> softValues() {
+            return releaseOnUnload(new ReferenceCache<>(false, true));
+        }
+
+        /**
+         * Creates a cache with weakly held keys and softly held values.
+         *
+         * @param <K> the key type
+         * @param <V> the value type
+         * @return a new registered cache
+         */
+        @NotNull
+        public static <K, V> ReferenceCache<K, V> weakKeysSoftValues() {
+            return releaseOnUnload(new ReferenceCache<>(true, true));
+        }
+
+        /**
+         * Gets a value from the cache.
+         *
+         * @param key the key
+         * @return the cached value, or null if not present or already collected
+         */
+        @Nullable
+        public V get(@NotNull K key) {
+            V value = unwrap(cache.get(key));
+            stats.recordLookup(value != null);
+            return value;
+        }
+
+        /**
+         * Puts a value into the cache.
+         *
+         * @param key the key
+         * @param value the value
+         */
+        public void put(@NotNull K key, @NotNull V value) {
+            cleanUp();
+            cache.put(key, softValues ? new SoftValue<>(key, weakKeys, value, collected) : value);
+        }
+
+        /**
+         * Computes a value if absent or collected.
+         *
+         * @param key the key
+         * @param mappingFunction the function to compute the value
+         * @return the cached or computed value
+         */
+        @Nullable
+        public V computeIfAbsent(@NotNull K key, @NotNull Function<K, V> mappingFunction) {
+            V value = get(key);
+            if (value == null) {
+                value = stats.recordLoad(() -> mappingFunction.apply(key));
+                if (value != null) {
+                    put(key, value);
+                }
+            }
+            return value;
+        }
+
+        /**
+         * Checks if the cache holds a live value for a key.
+         *
+         * @param key the key
+         * @return true if a value is present
+         */
+        public boolean containsKey(@NotNull K key) {
+            return unwrap(cache.get(key)) != null;
+        }
+
+        /**
+         * Removes a key from the cache.
+         *
+         * @param key the key to remove
+         */
+        public void remove(@NotNull K key) {
+            cache.remove(key);
+        }
+
+        /**
+         * Clears all entries from the cache.
+         */
+        public void clear() {
+            cache.clear();
+        }
+
+        /**
+         * Removes entries whose soft value has been collected. Entries with collected weak keys
+         * are removed by the backing map on every access.
+         */
+        @Override
+        public void cleanUp() {
+            Reference<? extends V> reference;
+            while ((reference = collected.poll()) != null) {
+                var softValue = (SoftValue<?>) reference;
+                Object key = softValue.key();
+                if (key != null && cache.remove(key, softValue)) {
+                    stats.recordEviction(EvictionCause.COLLECTED);
+                }
+            }
+        }
+
+        /**
+         * Gets the number of entries whose key and value are still reachable.
+         *
+         * @return the cache size
+         */
+        @Override
+        public int size() {
+            cleanUp();
+            return cache.size();
+        }
+
+        @Override
+        public void onWorldUnload(@NotNull ServerWorld world) {
+            releaseUnloaded(world);
+        }
+
+        @Override
+        public void onEntityUnload(@NotNull Entity entity) {
+            releaseUnloaded(entity);
+        }
+
+        @Override
+        public void onBlockEntityUnload(@NotNull BlockEntity blockEntity) {
+            releaseUnloaded(blockEntity);
+        }
+
+        @Override
+        public void onPlayerDisconnect(@NotNull ServerPlayerEntity player) {
+            releaseUnloaded(player);
+            releaseUnloaded(player.getUuid());
+        }
+
+        private void releaseUnloaded(Object key) {
+            if (cache.remove(key) != null) {
+                stats.recordEviction(EvictionCause.UNLOADED);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        @Nullable
+        private V unwrap(@Nullable Object stored) {
+            if (stored instanceof SoftValue<?> softValue) {
+                return (V) softValue.get();
+            }
+            return (V) stored;
+        }
+
+        /**
+         * A softly held value that remembers its key so it can be removed once collected. The key
+         * is held weakly when the cache has weak keys, so the value does not pin it.
+         */
+        private static final class SoftValue<V> extends SoftReference<V> {
+            private final Object keyRef;
+            private final boolean weakKey;
+
+            SoftValue(Object key, boolean weakKey, V value, ReferenceQueue<? super V> queue) {
+                super(value, queue);
+                this.keyRef = weakKey ? new WeakReference<>(key) : key;
+                this.weakKey = weakKey;
+            }
+
             @Nullable
-            final V value;
-            final long expiryTime;
+            Object key() {
+                return weakKey ? ((WeakReference<?>) keyRef).get() : keyRef;
+            }
+        }
+    }
 
-            CacheEntry(@Nullable V value, long expiryTime) {
-                this.value = value;
-                this.expiryTime = expiryTime;
+    /**
+     * Converts cached values to and from bytes for the {@link DiskCache} tier.
+     *
+     * @param <V> the value type
+     */
+    public interface Serializer<V> {
+        /**
+         * Encodes a value.
+         *
+         * @param value the value
+         * @return the encoded bytes
+         * @throws IOException if the value cannot be encoded
+         */
+        byte @NotNull [] serialize(@NotNull V value) throws IOException;
+
+        /**
+         * Decodes a value previously produced by {@link #serialize}.
+         *
+         * @param bytes the encoded bytes
+         * @return the decoded value
+         * @throws IOException if the bytes cannot be decoded
+         */
+        @NotNull
+        V deserialize(byte @NotNull [] bytes) throws IOException;
+    }
+
+    /**
+     * Ready-made {@link Serializer}s.
+     */
+    public static final class Serializers {
+        private Serializers() {}
+
+        /**
+         * Serializes values as compact JSON through {@link GsonInstance#compact()}.
+         *
+         * @param type the value class
+         * @param <V> the value type
+         * @return the serializer
+         */
+        @NotNull
+        public static <V> Serializer<V> gson(@NotNull Class<V> type) {
+            Objects.requireNonNull(type);
+            return new Serializer<>() {
+                @Override
+                public byte @NotNull [] serialize(@NotNull V value) {
+                    return GsonInstance.compact().toJson(value).getBytes(StandardCharsets.UTF_8);
+                }
+
+                @Override
+                public @NotNull V deserialize(byte @NotNull [] bytes) throws IOException {
+                    try {
+                        return GsonInstance.compact()
+                                .fromJson(new String(bytes, StandardCharsets.UTF_8), type);
+                    } catch (JsonParseException e) {
+                        throw new IOException(e);
+                    }
+                }
+            };
+        }
+
+        /**
+         * Serializes NBT compounds in the binary NBT format.
+         *
+         * @return the serializer
+         */
+        @NotNull
+        public static Serializer<NbtCompound> nbt() {
+            return new Serializer<>() {
+                @Override
+                public byte @NotNull [] serialize(@NotNull NbtCompound value) throws IOException {
+                    var bytes = new ByteArrayOutputStream();
+                    NbtIo.write(value, new DataOutputStream(bytes));
+                    return bytes.toByteArray();
+                }
+
+                @Override
+                public @NotNull NbtCompound deserialize(byte @NotNull [] bytes)
+                        throws IOException {
+                    return NbtIo.readCompound(new DataInputStream(new ByteArrayInputStream(bytes)),
+                            NbtSizeTracker.ofUnlimitedBytes());
+                }
+            };
+        }
+    }
+
+    /**
+     * A persistent cache stored in a memory-mapped, append-only file, for values that are
+     * expensive to compute and worth keeping across restarts.
+     *
+     * <p>
+     * Every {@link #put} or {@link #remove} appends a record holding a stable 64-bit hash of the
+     * key, the key itself, the serialized value (or a tombstone) and a CRC32C checksum. Opening
+     * the file rebuilds an in-memory index by scanning the records; the scan stops at the first
+     * record that fails its checksum, dropping a torn tail left by a crash. Superseded records
+     * are reclaimed by {@link #compact()}, which also runs automatically once more than half the
+     * file is garbage. Reads re-check the checksum before decoding.
+     *
+     * <p>
+     * Compaction never overwrites a mapped file, which some platforms refuse: it writes the live
+     * records to the next generation, {@code <file>.1}, {@code <file>.2} and so on, switches to
+     * it and then deletes the previous one. Opening picks the newest generation. If compaction
+     * fails the cache keeps using the current file.
+     *
+     * <p>
+     * Keys are identified by a string encoding ({@code toString()} by default), which must be
+     * stable across restarts. All methods are synchronized.
+     *
+     * <pre>
+     * var scans = CacheHelper.DiskCache.open(configDir.resolve("structure-scans.bin"),
+     *         CacheHelper.Serializers.gson(ScanResult.class));
+     * </pre>
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     */
+    public static final class DiskCache<K, V> implements Closeable {
+        private static final int MAGIC = 0x4D484331; // "MHC1"
+        private static final int HEADER_SIZE = 8;
+        private static final int RECORD_OVERHEAD = 4 + 8 + 4 + 4 + 4;
+        private static final int TOMBSTONE = -1;
+        private static final long MIN_MAPPED_SIZE = 64 * 1024;
+        private static final long AUTO_COMPACT_MIN_GARBAGE = 1024 * 1024;
+
+        private final Path path;
+        private final Serializer<V> serializer;
+        private final Function<? super K, String> keyEncoder;
+        private final Map<Long, Long> index = new HashMap<>();
+        private long generation;
+        private Path file;
+        private FileChannel channel;
+        private MappedByteBuffer buffer;
+        private long end;
+        private long liveBytes;
+
+        private DiskCache(Path path, Serializer<V> serializer,
+                Function<? super K, String> keyEncoder) {
+            this.path = path;
+            this.serializer = serializer;
+            this.keyEncoder = keyEncoder;
+        }
+
+        /**
+         * Opens (or creates) a disk cache whose keys are identified by {@code toString()}.
+         *
+         * @param path the cache file
+         * @param serializer the value serializer
+         * @param <K> the key type
+         * @param <V> the value type
+         * @return the opened cache
+         * @throws IOException if the file cannot be opened or mapped
+         */
+        @NotNull
+        public static <K, V> DiskCache<K, V> open(@NotNull Path path,
+                @NotNull Serializer<V> serializer) throws IOException {
+            return open(path, serializer, String::valueOf);
+        }
+
+        /**
+         * Opens (or creates) a disk cache with a custom key encoding.
+         *
+         * @param path the cache file
+         * @param serializer the value serializer
+         * @param keyEncoder encodes keys to strings that are stable across restarts
+         * @param <K> the key type
+         * @param <V> the value type
+         * @return the opened cache
+         * @throws IOException if the file cannot be opened or mapped
+         */
+        @NotNull
+        public static <K, V> DiskCache<K, V> open(@NotNull Path path,
+                @NotNull Serializer<V> serializer, @NotNull Function<? super K, String> keyEncoder)
+                throws IOException {
+            var cache = new DiskCache<K, V>(Objects.requireNonNull(path),
+                    Objects.requireNonNull(serializer), Objects.requireNonNull(keyEncoder));
+            cache.generation = cache.findLatestGeneration();
+            cache.file = cache.generationPath(cache.generation);
+            cache.load();
+            cache.deleteOlderGenerations();
+            return cache;
+        }
+
+        /**
+         * Reads a value from disk.
+         *
+         * @param key the key
+         * @return the stored value, or null if absent or unreadable
+         */
+        @Nullable
+        public synchronized V get(@NotNull K key) {
+            String encodedKey = keyEncoder.apply(key);
+            Long offset = index.get(stableHash(encodedKey));
+            if (offset == null) {
+                return null;
+            }
+            int position = (int) (long) offset;
+            int length = buffer.getInt(position);
+            if (checksum(position, length) != buffer.getInt(position + length)) {
+                logger().warn("Checksum mismatch in {} at offset {}", file, position);
+                return null;
+            }
+            int keyLength = buffer.getInt(position + 12);
+            byte[] storedKey = new byte[keyLength];
+            buffer.get(position + 16, storedKey);
+            if (!encodedKey.equals(new String(storedKey, StandardCharsets.UTF_8))) {
+                return null;
+            }
+            int valueOffset = position + 16 + keyLength;
+            byte[] value = new byte[buffer.getInt(valueOffset)];
+            buffer.get(valueOffset + 4, value);
+            try {
+                return serializer.deserialize(value);
+            } catch (IOException | RuntimeException e) {
+                logger().warn("Could not decode cached value for {} in {}: {}", encodedKey, path,
+                        e.getMessage());
+                return null;
+            }
+        }
+
+        /**
+         * Writes a value to disk, replacing any previous value for the key.
+         *
+         * @param key the key
+         * @param value the value
+         * @return true if the value was written
+         */
+        public synchronized boolean put(@NotNull K key, @NotNull V value) {
+            try {
+                append(keyEncoder.apply(key), serializer.serialize(value));
+            } catch (IOException | RuntimeException e) {
+                logger().error("Could not write cached value to {}: {}", file, e.getMessage());
+                return false;
             }
-
-            boolean isExpired() {
-                return System.currentTimeMillis() > expiryTime;
+            try {
+                compactIfWasteful();
+            } catch (IOException | RuntimeException e) {
+                logger().warn("Could not compact {}: {}", file, e.getMessage());
             }
+            return true;
         }
 
-        private final Map<K, CacheEntry<V>> cache = new HashMap<>();
-        private final long expirationMs;
+        /**
+         * Removes a value from disk.
+         *
+         * @param key the key
+         */
+        public synchronized void remove(@NotNull K key) {
+            String encodedKey = keyEncoder.apply(key);
+            if (!index.containsKey(stableHash(encodedKey))) {
+                return;
+            }
+            try {
+                append(encodedKey, null);
+            } catch (IOException e) {
+                logger().error("Could not remove cached value from {}: {}", file, e.getMessage());
+            }
+        }
 
         /**
-         * Creates a new timed cache with the specified expiration duration.
+         * Checks whether a key has a stored value.
          *
-         * @param expirationMs the expiration time in milliseconds
+         * @param key the key
+         * @return true if a value is stored
          */
-        public TimedCache(long expirationMs) {
-            this.expirationMs = expirationMs;
+        public synchronized boolean containsKey(@NotNull K key) {
+            return index.containsKey(stableHash(keyEncoder.apply(key)));
         }
 
         /**
-         * Sets a value in the cache.
+         * Gets the number of stored values.
          *
-         * @param key the cache key
-         * @param value the value to cache
+         * @return the number of live records
          */
-        public void set(@NotNull K key, @Nullable V value) {
-            long expiryTime = System.currentTimeMillis() + expirationMs;
-            cache.put(key, new CacheEntry<>(value, expiryTime));
+        public synchronized int size() {
+            return index.size();
         }
 
         /**
-         * Gets a value from the cache if it exists and hasn't expired.
+         * Writes only the live records to the next generation file and switches to it. On
+         * failure the cache is left unchanged, still using the current file.
          *
-         * @param key the cache key
-         * @return the cached value, or null if expired or not found
+         * @throws IOException if the compacted file cannot be written or opened
          */
-        @SuppressWarnings("null")
-        @Nullable
-        public V get(@NotNull K key) {
-            var entry = cache.get(key);
-            if (entry == null) {
-                return null;
+        public synchronized void compact() throws IOException {
+            Path temp = path.resolveSibling(path.getFileName() + ".compact");
+            Path next = generationPath(generation + 1);
+            try {
+                try (var out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    out.write(header());
+                    for (long offset : index.values()) {
+                        int position = (int) offset;
+                        int recordSize = 4 + buffer.getInt(position);
+                        out.write(buffer.slice(position, recordSize));
+                    }
+                    out.force(true);
+                }
+                // A fresh name, so nothing mapped is replaced and a crash leaves either file whole
+                Files.move(temp, next, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | RuntimeException e) {
+                deleteQuietly(temp);
+                throw e;
             }
-            if (entry.isExpired()) {
-                cache.remove(key);
-                return null;
+
+            Path previousFile = file;
+            FileChannel previousChannel = channel;
+            MappedByteBuffer previousBuffer = buffer;
+            Map<Long, Long> previousIndex = new HashMap<>(index);
+            long previousEnd = end;
+            long previousLiveBytes = liveBytes;
+            file = next;
+            index.clear();
+            try {
+                load();
+            } catch (IOException | RuntimeException e) {
+                if (channel != previousChannel) {
+                    closeQuietly(channel);
+                }
+                file = previousFile;
+                channel = previousChannel;
+                buffer = previousBuffer;
+                index.clear();
+                index.putAll(previousIndex);
+                end = previousEnd;
+                liveBytes = previousLiveBytes;
+                deleteQuietly(next);
+                throw e;
             }
-            return entry.value;
+            generation++;
+            // The old mapping lives until it is collected; if the delete fails because of it,
+            // the next open removes the file
+            closeQuietly(previousChannel);
+            deleteQuietly(previousFile);
         }
 
         /**
-         * Gets a value from the cache, computing it if missing or expired.
-         *
-         * @param key the cache key
-         * @param supplier the supplier to compute the value if needed
-         * @return the cached or computed value
+         * Forces pending writes to the storage device.
          */
-        @Nullable
-        public V getOrCompute(@NotNull K key, @NotNull Supplier<@Nullable V> supplier) {
-            var cached = get(key);
-            if (cached != null) {
-                return cached;
-            }
-            var computed = supplier.get();
-            set(key, computed);
-            return computed;
+        public synchronized void flush() {
+            buffer.force();
         }
 
         /**
-         * Removes an entry from the cache.
+         * Flushes and closes the file. The cache must not be used afterwards.
          *
-         * @param key the cache key
+         * @throws IOException if the file cannot be closed
          */
-        public void remove(@NotNull K key) {
-            cache.remove(key);
+        @Override
+        public synchronized void close() throws IOException {
+            buffer.force();
+            channel.close();
+        }
+
+        private void load() throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            long fileSize = channel.size();
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException("Cache file too large to map: " + file);
+            }
+            map(Math.max(fileSize, MIN_MAPPED_SIZE));
+            if (fileSize < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                if (fileSize > 0) {
+                    logger().warn("Replacing unrecognized cache file {}", file);
+                }
+                buffer.put(0, header(), 0, HEADER_SIZE);
+                buffer.putInt(HEADER_SIZE, 0);
+                end = HEADER_SIZE;
+                liveBytes = 0;
+                return;
+            }
+            int position = HEADER_SIZE;
+            liveBytes = 0;
+            while (position + 4 <= fileSize) {
+                int length = buffer.getInt(position);
+                if (length < RECORD_OVERHEAD - 4 || position + 4L + length > fileSize) {
+                    break;
+                }
+                if (checksum(position, length) != buffer.getInt(position + length)) {
+                    logger().warn("Discarding corrupt tail of {} from offset {}", file, position);
+                    break;
+                }
+                long hash = buffer.getLong(position + 4);
+                int keyLength = buffer.getInt(position + 12);
+                int valueLength = buffer.getInt(position + 16 + keyLength);
+                index(hash, valueLength == TOMBSTONE ? -1 : position);
+                position += 4 + length;
+            }
+            end = position;
+            if (end + 4 <= buffer.capacity()) {
+                // Terminate the log so bytes of a discarded tail are never read as records
+                buffer.putInt((int) end, 0);
+            }
+        }
+
+        private void append(String encodedKey, byte @Nullable [] value) throws IOException {
+            byte[] key = encodedKey.getBytes(StandardCharsets.UTF_8);
+            int valueLength = value != null ? value.length : 0;
+            int length = RECORD_OVERHEAD - 4 + key.length + valueLength;
+            long required = end + 4L + length + 4;
+            if (required > Integer.MAX_VALUE) {
+                throw new IOException("Cache file full: " + file);
+            }
+            if (required > buffer.capacity()) {
+                map(Math.min(Integer.MAX_VALUE, Math.max(required, 2L * buffer.capacity())));
+            }
+            long hash = stableHash(encodedKey);
+            int position = (int) end;
+            buffer.putLong(position + 4, hash);
+            buffer.putInt(position + 12, key.length);
+            buffer.put(position + 16, key);
+            buffer.putInt(position + 16 + key.length, value != null ? value.length : TOMBSTONE);
+            if (value != null) {
+                buffer.put(position + 20 + key.length, value);
+            }
+            buffer.putInt(position + length, checksum(position, length));
+            // Terminate the log after this record, then publish it by writing its length last
+            buffer.putInt(position + 4 + length, 0);
+            buffer.putInt(position, length);
+            end = position + 4L + length;
+            index(hash, value != null ? position : -1);
+        }
+
+        private void index(long hash, int position) {
+            Long previous = position >= 0 ? index.put(hash, (long) position) : index.remove(hash);
+            if (previous != null) {
+                liveBytes -= 4 + buffer.getInt((int) (long) previous);
+            }
+            if (position >= 0) {
+                liveBytes += 4 + buffer.getInt(position);
+            }
+        }
+
+        private void compactIfWasteful() throws IOException {
+            long garbage = end - HEADER_SIZE - liveBytes;
+            if (garbage > AUTO_COMPACT_MIN_GARBAGE && garbage > liveBytes) {
+                compact();
+            }
+        }
+
+        private void map(long size) throws IOException {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+
+        private Path generationPath(long generation) {
+            return generation == 0 ? path
+                    : path.resolveSibling(path.getFileName() + "." + generation);
+        }
+
+        private long findLatestGeneration() throws IOException {
+            Path directory = path.toAbsolutePath().getParent();
+            if (directory == null || !Files.isDirectory(directory)) {
+                return 0;
+            }
+            String prefix = path.getFileName() + ".";
+            long latest = 0;
+            try (var files = Files.newDirectoryStream(directory,
+                    candidate -> candidate.getFileName().toString().startsWith(prefix))) {
+                for (Path candidate : files) {
+                    long number = parseGeneration(
+                            candidate.getFileName().toString().substring(prefix.length()));
+                    if (number > latest && Files.isRegularFile(candidate)) {
+                        latest = number;
+                    }
+                }
+            }
+            return latest;
+        }
+
+        private void deleteOlderGenerations() {
+            Path directory = path.toAbsolutePath().getParent();
+            if (directory == null || generation == 0) {
+                return;
+            }
+            deleteQuietly(path);
+            String prefix = path.getFileName() + ".";
+            try (var files = Files.newDirectoryStream(directory,
+                    candidate -> candidate.getFileName().toString().startsWith(prefix))) {
+                for (Path candidate : files) {
+                    long number = parseGeneration(
+                            candidate.getFileName().toString().substring(prefix.length()));
+                    if (number > 0 && number < generation) {
+                        deleteQuietly(candidate);
+                    }
+                }
+            } catch (IOException e) {
+                logger().debug("Could not list old generations of {}: {}", path, e.getMessage());
+            }
         }
 
         /**
-         * Clears all entries from the cache.
+         * Parses a generation file suffix, or returns -1 if it is not one.
          */
-        public void clear() {
-            cache.clear();
+        private static long parseGeneration(String suffix) {
+            if (suffix.isEmpty() || suffix.length() > 18) {
+                return -1;
+            }
+            for (int i = 0; i < suffix.length(); i++) {
+                if (suffix.charAt(i) < '0' || suffix.charAt(i) > '9') {
+                    return -1;
+                }
+            }
+            return Long.parseLong(suffix);
+        }
+
+        private static void deleteQuietly(Path file) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger().debug("Could not delete {}: {}", file, e.getMessage());
+            }
+        }
+
+        private static void closeQuietly(FileChannel channel) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger().debug("Could not close cache file: {}", e.getMessage());
+            }
         }
 
         /**
-         * Gets the number of entries in the cache (including expired ones).
-         *
-         * @return the cache size
+         * CRC32C over a record's body: everything between its length prefix and its checksum.
          */
-        public int size() {
-            return cache.size();
+        private int checksum(int position, int length) {
+            var crc = new CRC32C();
+            crc.update(buffer.slice(position + 4, length - 4));
+            return (int) crc.getValue();
+        }
+
+        private static ByteBuffer header() {
+            return ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(1).flip();
         }
 
         /**
-         * Checks if a key exists in the cache and is not expired.
-         *
-         * @param key the cache key
-         * @return true if the key has a valid cached value
+         * FNV-1a over the UTF-16 code units of the key; unlike {@code hashCode()}, 64 bits wide.
          */
-        public boolean has(@NotNull K key) {
-            return get(key) != null;
+        private static long stableHash(String key) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                hash ^= key.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+
+        private static Logger logger() {
+            return LogHelper.getLogger("moddinghelperapi", "CacheHelper");
         }
     }
 
     /**
-     * A simple value cache that holds a single value with optional expiration.
+     * A two-level cache: an in-memory {@link LRUCache} in front of a persistent {@link DiskCache}.
      *
-     * @param <T> the value type
+     * <p>
+     * Lookups check memory first, then disk (promoting hits into memory), and only compute on a
+     * miss in both, writing the result to both tiers. After a restart the disk tier serves hot
+     * values without recomputing them. All methods are thread-safe; the supplier in
+     * {@link #getOrCompute} runs outside the lock.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
      */
-    public static class ValueCache<T> {
-        @Nullable
-        private T value;
-        @Nullable
-        private Long expiryTime;
-        private final long expirationMs;
-        private boolean isSet = false;
+    public static class TieredCache<K, V> extends StatsSupport implements Closeable {
+        private final LRUCache<K, V> memory;
+        private final DiskCache<K, V> disk;
 
         /**
-         * Creates a value cache with the specified expiration duration.
+         * Creates a tiered cache.
          *
-         * @param expirationMs the expiration time in milliseconds (-1 for no expiration)
+         * @param memorySize the maximum number of values kept in memory
+         * @param disk the persistent tier, owned by this cache from now on
          */
-        @SuppressWarnings("null")
-        public ValueCache(long expirationMs) {
-            this.expirationMs = expirationMs;
+        public TieredCache(int memorySize, @NotNull DiskCache<K, V> disk) {
+            this.memory = new LRUCache<>(memorySize);
+            this.disk = Objects.requireNonNull(disk);
         }
 
         /**
-         * Sets the cached value.
+         * Gets a value from memory or disk.
          *
-         * @param value the value to cache
+         * @param key the key
+         * @return the cached value, or null if in neither tier
          */
-        public void set(@Nullable T value) {
-            this.value = value;
-            this.isSet = true;
-            if (expirationMs > 0) {
-                this.expiryTime = System.currentTimeMillis() + expirationMs;
+        @Nullable
+        public synchronized V get(@NotNull K key) {
+            V value = memory.get(key);
+            if (value == null) {
+                value = disk.get(key);
+                if (value != null) {
+                    memory.put(key, value);
+                }
             }
+            stats.recordLookup(value != null);
+            return value;
         }
 
         /**
-         * Gets the cached value if it hasn't expired.
+         * Stores a value in both tiers.
          *
-         * @return the cached value, or null if not set or expired
+         * @param key the key
+         * @param value the value
          */
-        @SuppressWarnings("null")
-        @Nullable
-        public T get() {
-            if (!isSet) {
-                return null;
-            }
-            if (expiryTime != null && System.currentTimeMillis() > expiryTime) {
-                clear();
-                return null;
-            }
-            return value;
+        public synchronized void put(@NotNull K key, @NotNull V value) {
+            memory.put(key, value);
+            disk.put(key, value);
         }
 
         /**
-         * Gets the cached value, computing it if missing or expired.
+         * Gets a value from either tier, computing and storing it if missing from both.
          *
-         * @param supplier the supplier to compute the value if needed
+         * @param key the key
+         * @param supplier computes the value on a miss
          * @return the cached or computed value
          */
         @Nullable
-        public T getOrCompute(@NotNull Supplier<@Nullable T> supplier) {
-            var cached = get();
-            if (cached != null || (isSet && value == null)) {
-                return cached;
+        public V getOrCompute(@NotNull K key, @NotNull Supplier<@Nullable V> supplier) {
+            V value = get(key);
+            if (value == null) {
+                value = stats.recordLoad(supplier);
+                if (value != null) {
+                    put(key, value);
+                }
             }
-            var computed = supplier.get();
-            set(computed);
-            return computed;
+            return value;
         }
 
         /**
-         * Clears the cached value.
+         * Removes a value from both tiers.
+         *
+         * @param key the key
          */
-        @SuppressWarnings("null")
-        public void clear() {
-            value = null;
-            expiryTime = null;
-            isSet = false;
+        public synchronized void remove(@NotNull K key) {
+            memory.remove(key);
+            disk.remove(key);
         }
 
         /**
-         * Checks if a value is cached and valid.
+         * Gets the number of values stored, which is the size of the disk tier.
          *
-         * @return true if a valid value is cached
+         * @return the number of entries
          */
-        public boolean isValid() {
-            return get() != null;
+        @Override
+        public synchronized int size() {
+            return disk.size();
+        }
+
+        /**
+         * Forces pending disk writes to the storage device.
+         */
+        public synchronized void flush() {
+            disk.flush();
+        }
+
+        /**
+         * Closes the disk tier.
+         *
+         * @throws IOException if the file cannot be closed
+         */
+        @Override
+        public synchronized void close() throws IOException {
+            memory.clear();
+            disk.close();
         }
     }
 
     /**
-     * An LRU (Least Recently Used) cache that evicts old entries when capacity is reached.
+     * A size-bounded cache that resists scans using the W-TinyLFU policy.
+     *
+     * <p>
+     * New entries land in a small LRU admission window (1% of capacity). When the window
+     * overflows, its eldest entry competes with the eldest entry of the main segmented LRU: the
+     * one accessed more often according to a count-min frequency sketch stays. The main space is
+     * split into a probation segment and a protected segment (80%) that entries reach on their
+     * second hit, so a one-off sweep over many keys cannot flush the frequently used ones the way
+     * it flushes an {@link LRUCache}.
+     *
+     * <p>
+     * Drop-in replacement for {@link LRUCache}; not thread-safe.
      *
      * @param <K> the key type
      * @param <V> the value type
      */
-    public static class LRUCache<K, V> {
-        private final Map<K, V> cache;
+    public static class TinyLfuCache<K, V> extends StatsSupport {
+        private final Map<K, V> window = new LinkedHashMap<>(16, 0.75f, true);
+        private final Map<K, V> probation = new LinkedHashMap<>(16, 0.75f, true);
+        private final Map<K, V> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+        private final FrequencySketch sketch;
         private final int maxSize;
+        private final int maxWindow;
+        private final int maxMain;
+        private final int maxProtected;
 
         /**
-         * Creates a new LRU cache with the specified maximum size.
+         * Creates a new cache with the specified maximum size.
          *
          * @param maxSize the maximum number of entries
          */
-        public LRUCache(int maxSize) {
-            this.maxSize = maxSize;
-            this.cache = new LinkedHashMap<K, V>(maxSize, 0.75f, true) {
-                @Override
-                protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
-                    return size() > LRUCache.this.maxSize;
-                }
-            };
+        public TinyLfuCache(int maxSize) {
+            this.maxSize = Math.max(1, maxSize);
+            this.maxWindow = Math.max(1, this.maxSize / 100);
+            this.maxMain = this.maxSize - maxWindow;
+            this.maxProtected = maxMain * 4 / 5;
+            this.sketch = new FrequencySketch(this.maxSize);
         }
 
         /**
@@ -272,7 +3543,19 @@ public final class CacheHelper {
          */
         @Nullable
         public V get(@NotNull K key) {
-            return cache.get(key);
+            sketch.increment(key);
+            V value = window.get(key);
+            if (value == null) {
+                value = protectedSegment.get(key);
+            }
+            if (value == null) {
+                value = probation.remove(key);
+                if (value != null) {
+                    promote(key, value);
+                }
+            }
+            stats.recordLookup(value != null);
+            return value;
         }
 
         /**
@@ -282,7 +3565,17 @@ public final class CacheHelper {
          * @param value the value
          */
         public void put(@NotNull K key, @NotNull V value) {
-            cache.put(key, value);
+            sketch.increment(key);
+            if (window.containsKey(key)) {
+                window.put(key, value);
+            } else if (protectedSegment.containsKey(key)) {
+                protectedSegment.put(key, value);
+            } else if (probation.remove(key) != null) {
+                promote(key, value);
+            } else {
+                window.put(key, value);
+                evictFromWindow();
+            }
         }
 
         /**
@@ -294,17 +3587,25 @@ public final class CacheHelper {
          */
         @Nullable
         public V computeIfAbsent(@NotNull K key, @NotNull Function<K, V> mappingFunction) {
-            return cache.computeIfAbsent(key, mappingFunction);
+            V value = get(key);
+            if (value == null) {
+                value = stats.recordLoad(() -> mappingFunction.apply(key));
+                if (value != null) {
+                    put(key, value);
+                }
+            }
+            return value;
         }
 
         /**
-         * Checks if the cache contains a key.
+         * Checks if the cache contains a key. Does not count as an access.
          *
          * @param key the key
          * @return true if the key exists
          */
         public boolean containsKey(@NotNull K key) {
-            return cache.containsKey(key);
+            return window.containsKey(key) || probation.containsKey(key)
+                    || protectedSegment.containsKey(key);
         }
 
         /**
@@ -313,14 +3614,18 @@ public final class CacheHelper {
          * @param key the key to remove
          */
         public void remove(@NotNull K key) {
-            cache.remove(key);
+            if (window.remove(key) == null && probation.remove(key) == null) {
+                protectedSegment.remove(key);
+            }
         }
 
         /**
-         * Clears all entries from the cache.
+         * Clears all entries from the cache. Access frequencies are kept.
          */
         public void clear() {
-            cache.clear();
+            window.clear();
+            probation.clear();
+            protectedSegment.clear();
         }
 
         /**
@@ -328,8 +3633,9 @@ public final class CacheHelper {
          *
          * @return the number of entries
          */
+        @Override
         public int size() {
-            return cache.size();
+            return window.size() + probation.size() + protectedSegment.size();
         }
 
         /**
@@ -340,5 +3646,115 @@ public final class CacheHelper {
         public int maxSize() {
             return maxSize;
         }
+
+        private void promote(K key, V value) {
+            protectedSegment.put(key, value);
+            if (protectedSegment.size() > maxProtected) {
+                var demoted = eldest(protectedSegment);
+                protectedSegment.remove(demoted.getKey());
+                probation.put(demoted.getKey(), demoted.getValue());
+            }
+        }
+
+        private void evictFromWindow() {
+            if (window.size() <= maxWindow) {
+                return;
+            }
+            var candidate = eldest(window);
+            window.remove(candidate.getKey());
+            if (probation.size() + protectedSegment.size() < maxMain) {
+                probation.put(candidate.getKey(), candidate.getValue());
+                return;
+            }
+            stats.recordEviction(EvictionCause.SIZE);
+            if (probation.isEmpty()) {
+                return;
+            }
+            var victim = eldest(probation);
+            if (sketch.frequency(candidate.getKey()) > sketch.frequency(victim.getKey())) {
+                probation.remove(victim.getKey());
+                probation.put(candidate.getKey(), candidate.getValue());
+            }
+        }
+
+        private static <K, V> Map.Entry<K, V> eldest(Map<K, V> segment) {
+            var eldest = segment.entrySet().iterator().next();
+            return Map.entry(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    /**
+     * A count-min sketch of 4-bit counters estimating how often keys were accessed.
+     *
+     * <p>
+     * Each key maps to four counters packed into {@code long} words; its frequency is the
+     * smallest of them. Once the number of increments reaches ten times the cache capacity, all
+     * counters are halved so old popularity fades.
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+                0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+        private static final long ONE_MASK = 0x1111111111111111L;
+
+        private final long[] table;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maximumSize) {
+            int length = Integer.highestOneBit(Math.max(16, maximumSize) - 1) << 1;
+            this.table = new long[length];
+            this.sampleSize = 10 * maximumSize;
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int start = (hash & 3) << 2;
+            int frequency = 15;
+            for (int i = 0; i < 4; i++) {
+                int offset = (start + i) << 2;
+                int count = (int) ((table[indexOf(hash, i)] >>> offset) & 0xfL);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int offset = (start + i) << 2;
+                if (((table[index] >>> offset) & 0xfL) != 0xfL) {
+                    table[index] += 1L << offset;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        private void reset() {
+            int odd = 0;
+            for (int i = 0; i < table.length; i++) {
+                odd += Long.bitCount(table[i] & ONE_MASK);
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            additions = (additions - (odd >>> 2)) >>> 1;
+        }
+
+        private int indexOf(int hash, int depth) {
+            long h = (hash + SEEDS[depth]) * SEEDS[depth];
+            h += h >>> 32;
+            return (int) h & (table.length - 1);
+        }
+
+        private static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
     }
 }
@@ -1,9 +1,11 @@
 package dk.mosberg.util;
 
 import java.util.Objects;
+import java.util.function.Predicate;
 import org.jetbrains.annotations.NotNull;
 import com.mojang.brigadier.Command;
 import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
 import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
 import net.minecraft.command.permission.Permission;
 import net.minecraft.command.permission.PermissionLevel;
@@ -38,9 +40,39 @@ public final class CommandHelper {
     public static void registerLiteral(@NotNull CommandDispatcher<ServerCommandSource> dispatcher,
             @NotNull String name, int permissionLevel,
             @NotNull Command<ServerCommandSource> handler) {
-        var permission = new Permission.Level(PermissionLevel.fromLevel(permissionLevel));
-        dispatcher.register(CommandManager.literal(name).requires(
-                source -> permissionLevel <= 0 || source.getPermissions().hasPermission(permission))
+        dispatcher.register(CommandManager.literal(name).requires(requirement(permissionLevel))
                 .executes(handler));
     }
+
+    /**
+     * Registers a command under a chain of literals, e.g. {@code /mymod debug dump} for the path
+     * {@code "mymod", "debug", "dump"}. Literals shared with other registrations are merged, so
+     * several subcommands can hang off the same root.
+     *
+     * @param permissionLevel minimum permission level required (0 for all)
+     * @param handler execution handler for the last literal
+     * @param path the literals from the root down, at least one
+     */
+    public static void registerNested(int permissionLevel,
+            @NotNull Command<ServerCommandSource> handler, @NotNull String... path) {
+        Objects.requireNonNull(handler);
+        if (path.length == 0) {
+            throw new IllegalArgumentException("Command path must not be empty");
+        }
+        CommandRegistrationCallback.EVENT.register((dispatcher, registryAccess, environment) -> {
+            var requirement = requirement(permissionLevel);
+            LiteralArgumentBuilder<ServerCommandSource> node =
+                    CommandManager.literal(path[path.length - 1]).requires(requirement)
+                            .executes(handler);
+            for (int i = path.length - 2; i >= 0; i--) {
+                node = CommandManager.literal(path[i]).requires(requirement).then(node);
+            }
+            dispatcher.register(node);
+        });
+    }
+
+    private static Predicate<ServerCommandSource> requirement(int permissionLevel) {
+        var permission = new Permission.Level(PermissionLevel.fromLevel(permissionLevel));
+        return source -> permissionLevel <= 0 || source.getPermissions().hasPermission(permission);
+    }
 }
@@ -1,12 +1,20 @@
 package dk.mosberg.util;
 
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Predicate;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.LivingEntity;
 import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Box;
 import net.minecraft.util.math.Vec3d;
 
 /**
@@ -239,7 +247,9 @@ public final class EntityHelper {
     }
 
     /**
-     * Checks if an entity is looking at another entity (within angle tolerance).
+     * Checks if an entity is looking at another entity (within angle tolerance), measuring the
+     * direction between their feet. Works on both sides and allocates nothing; to test many
+     * observers against many entities, use {@link #findInView}, which measures between eyes.
      *
      * @param from source entity
      * @param to target entity
@@ -248,10 +258,22 @@ public final class EntityHelper {
      */
     public static boolean isLooking(@NotNull LivingEntity from, @NotNull Entity to,
             float maxAngle) {
-        Vec3d dir = getDirectionTo(from, to);
-        Vec3d look = from.getRotationVecClient();
-        double dot = dir.dotProduct(look);
-        return dot > Math.cos(Math.toRadians(maxAngle));
+        double dx = to.getX() - from.getX();
+        double dy = to.getY() - from.getY();
+        double dz = to.getZ() - from.getZ();
+        double pitch = Math.toRadians(from.getPitch());
+        double yaw = Math.toRadians(-from.getYaw());
+        double horizontal = Math.cos(pitch);
+        double dot = Math.sin(yaw) * horizontal * dx - Math.sin(pitch) * dy
+                + Math.cos(yaw) * horizontal * dz;
+        double cos = Math.cos(Math.toRadians(maxAngle));
+        double lengthSq = dx * dx + dy * dy + dz * dz;
+        if (lengthSq < 1.0E-10) {
+            // Vec3d.normalize() gives zero here, and a zero dot product is within wide angles
+            return cos < 0;
+        }
+        // dot > cos * |d|, squared with signs kept to avoid normalizing the direction
+        return dot * Math.abs(dot) > cos * Math.abs(cos) * lengthSq;
     }
 
     // ═════════════════════════════════════════════════════════════════════════════════
@@ -346,5 +368,1195 @@ public final class EntityHelper {
     public static boolean teleport(@NotNull Entity entity, @NotNull Vec3d position) {
         return teleport(entity, position.x, position.y, position.z);
     }
-}
 
+    // ═════════════════════════════════════════════════════════════════════════════════
+    // Spatial Queries - Entity Grid
+    // ═════════════════════════════════════════════════════════════════════════════════
+
+    /**
+     * A uniform grid of one world's entities for proximity queries, rebuilt from the entities'
+     * positions once per tick.
+     *
+     * <p>
+     * A rebuild buckets every entity into cubic cells, one chunk section wide by default, and
+     * packs them cell by cell into flat arrays of entities and coordinates. Queries then visit
+     * only the cells a radius or box overlaps, and allocate nothing beyond what they add to the
+     * caller's list, so "all entities within R" and "nearest hostile" cost a few cell lookups
+     * instead of a loop over the whole world.
+     *
+     * <p>
+     * Queries see the positions from the last rebuild and test the entity's position, not its
+     * bounding box as {@code World.getEntitiesByClass} does. Entities removed since the rebuild
+     * are skipped; entities spawned since are not found until the next one. A grid must be used
+     * on the server thread.
+     *
+     * <p>
+     * A grid created without a world indexes only the entities passed to
+     * {@link #rebuild(Iterable)}, for example just the players.
+     *
+     * <pre>
+     * EntityHelper.EntityGrid grid = new EntityHelper.EntityGrid(world).bindToWorldTicks();
+     *
+     * List&lt;HostileEntity&gt; nearby = new ArrayList&lt;&gt;();
+     * grid.findInRadius(HostileEntity.class, x, y, z, 24, null, nearby);
+     * HostileEntity nearest = grid.findNearest(HostileEntity.class, x, y, z, 48, null);
+     * </pre>
+     */
+    public static final class EntityGrid {
+        /** The default cell size: one chunk section. */
+        public static final double DEFAULT_CELL_SIZE = 16;
+
+        @Nullable
+        private final ServerWorld world;
+        private final double cellSize;
+        private final double inverseCellSize;
+        // Cell key to cell ordinal; a cell's entities are cellStart[ordinal] to
+        // cellStart[ordinal + 1]
+        private final Long2IntOpenHashMap cells = new Long2IntOpenHashMap();
+        private int[] cellStart = new int[17];
+        private int cellCount;
+        private Entity[] entities = new Entity[64];
+        private double[] xs = new double[64];
+        private double[] ys = new double[64];
+        private double[] zs = new double[64];
+        private int size;
+        // Rebuild scratch, kept between ticks
+        private Entity[] unsorted = new Entity[64];
+        private int[] ordinals = new int[64];
+        // Max-heap of the best k candidates during k-nearest queries
+        private int[] heapIndex = new int[16];
+        private double[] heapDistSq = new double[16];
+        private int heapSize;
+        @Nullable
+        private TickHelper.Binding tickBinding;
+
+        /**
+         * Creates an empty grid with chunk-section-sized cells.
+         *
+         * @param world the world whose entities to index
+         */
+        public EntityGrid(@NotNull ServerWorld world) {
+            this(world, DEFAULT_CELL_SIZE);
+        }
+
+        /**
+         * Creates an empty grid.
+         *
+         * @param world the world whose entities to index
+         * @param cellSize the cell edge length in blocks; about the most common query radius
+         *        works well
+         * @throws IllegalArgumentException if the cell size is below 1
+         */
+        public EntityGrid(@NotNull ServerWorld world, double cellSize) {
+            this.world = Objects.requireNonNull(world, "world");
+            this.cellSize = checkCellSize(cellSize);
+            this.inverseCellSize = 1 / cellSize;
+            cells.defaultReturnValue(-1);
+        }
+
+        /**
+         * Creates an empty grid that is not tied to a world. It is filled only by
+         * {@link #rebuild(Iterable)}.
+         *
+         * @param cellSize the cell edge length in blocks; about the most common query radius
+         *        works well
+         * @throws IllegalArgumentException if the cell size is below 1
+         */
+        public EntityGrid(double cellSize) {
+            this.world = null;
+            this.cellSize = checkCellSize(cellSize);
+            this.inverseCellSize = 1 / cellSize;
+            cells.defaultReturnValue(-1);
+        }
+
+        /**
+         * Rebuilds the grid at the end of each of its world's ticks until {@link #stop()}, and
+         * clears it when the world unloads.
+         *
+         * @return this grid
+         * @throws IllegalStateException if the grid was created without a world
+         */
+        @NotNull
+        public synchronized EntityGrid bindToWorldTicks() {
+            ServerWorld bound = requireWorld();
+            if (tickBinding == null || !tickBinding.isBound()) {
+                tickBinding = TickHelper.bindToWorldTicks(bound, this::rebuild, this::clear);
+            }
+            return this;
+        }
+
+        /**
+         * Stops tick-driven rebuilds and clears the grid.
+         */
+        public synchronized void stop() {
+            if (tickBinding != null) {
+                tickBinding.unbind();
+                tickBinding = null;
+            }
+            clear();
+        }
+
+        /**
+         * Re-reads the position of every entity in the grid's world and rebuckets the grid.
+         *
+         * @throws IllegalStateException if the grid was created without a world
+         */
+        public void rebuild() {
+            rebuild(requireWorld().iterateEntities());
+        }
+
+        /**
+         * Replaces the grid's contents with the given entities at their current positions.
+         *
+         * @param source the entities to index
+         */
+        public void rebuild(@NotNull Iterable<? extends Entity> source) {
+            int previousSize = size;
+            int count = 0;
+            cells.clear();
+            cellCount = 0;
+            for (Entity entity : source) {
+                if (count == unsorted.length) {
+                    grow(count * 2);
+                }
+                long key = key(cell(entity.getX()), cell(entity.getY()), cell(entity.getZ()));
+                int ordinal = cells.putIfAbsent(key, cellCount);
+                if (ordinal < 0) {
+                    ordinal = cellCount++;
+                    if (cellCount + 1 > cellStart.length) {
+                        cellStart = Arrays.copyOf(cellStart, cellStart.length * 2);
+                    }
+                    cellStart[ordinal + 1] = 0;
+                }
+                cellStart[ordinal + 1]++;
+                unsorted[count] = entity;
+                ordinals[count] = ordinal;
+                count++;
+            }
+
+            // Counting sort: turn the per-cell counts into start offsets, then place each entity
+            cellStart[0] = 0;
+            for (int i = 0; i < cellCount; i++) {
+                cellStart[i + 1] += cellStart[i];
+            }
+            int[] next = heapIndexOfSize(cellCount);
+            System.arraycopy(cellStart, 0, next, 0, cellCount);
+            for (int i = 0; i < count; i++) {
+                int slot = next[ordinals[i]]++;
+                Entity entity = unsorted[i];
+                entities[slot] = entity;
+                xs[slot] = entity.getX();
+                ys[slot] = entity.getY();
+                zs[slot] = entity.getZ();
+                unsorted[i] = null;
+            }
+            // Drop references to entities that are gone, so the grid does not keep them alive
+            if (previousSize > count) {
+                Arrays.fill(entities, count, previousSize, null);
+            }
+            size = count;
+        }
+
+        /**
+         * Empties the grid until the next rebuild.
+         */
+        public void clear() {
+            Arrays.fill(entities, 0, size, null);
+            size = 0;
+            cells.clear();
+            cellCount = 0;
+        }
+
+        /**
+         * Gets the number of entities indexed by the last rebuild.
+         *
+         * @return the number of entities
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Appends every entity within a radius of a point.
+         *
+         * @param x the point's x coordinate
+         * @param y the point's y coordinate
+         * @param z the point's z coordinate
+         * @param radius the search radius
+         * @param filter selects the entities to include, or null for all
+         * @param results the list to append to
+         * @return the number of entities appended
+         */
+        public int findInRadius(double x, double y, double z, double radius,
+                @Nullable Predicate<? super Entity> filter, @NotNull List<? super Entity> results) {
+            return findInRadius(Entity.class, x, y, z, radius, filter, results);
+        }
+
+        /**
+         * Appends every entity of a type within a radius of a point.
+         *
+         * @param type the entity class to match, including subclasses
+         * @param x the point's x coordinate
+         * @param y the point's y coordinate
+         * @param z the point's z coordinate
+         * @param radius the search radius
+         * @param filter selects the entities to include, or null for all of the type
+         * @param results the list to append to
+         * @param <T> the entity type
+         * @return the number of entities appended
+         */
+        public <T extends Entity> int findInRadius(@NotNull Class<T> type, double x, double y,
+                double z, double radius, @Nullable Predicate<? super T> filter,
+                @NotNull List<? super T> results) {
+            return collect(type, filter, x - radius, y - radius, z - radius, x + radius,
+                    y + radius, z + radius, x, y, z, radius * radius, results);
+        }
+
+        /**
+         * Counts the entities of a type within a radius of a point.
+         *
+         * @param type the entity class to match, including subclasses
+         * @param x the point's x coordinate
+         * @param y the point's y coordinate
+         * @param z the point's z coordinate
+         * @param radius the search radius
+         * @param filter selects the entities to count, or null for all of the type
+         * @param <T> the entity type
+         * @return the number of matching entities
+         */
+        public <T extends Entity> int countInRadius(@NotNull Class<T> type, double x, double y,
+                double z, double radius, @Nullable Predicate<? super T> filter) {
+            return collect(type, filter, x - radius, y - radius, z - radius, x + radius,
+                    y + radius, z + radius, x, y, z, radius * radius, null);
+        }
+
+        /**
+         * Appends every entity whose position lies in a box.
+         *
+         * @param box the box to search
+         * @param filter selects the entities to include, or null for all
+         * @param results the list to append to
+         * @return the number of entities appended
+         */
+        public int findInBox(@NotNull Box box, @Nullable Predicate<? super Entity> filter,
+                @NotNull List<? super Entity> results) {
+            return findInBox(Entity.class, box, filter, results);
+        }
+
+        /**
+         * Appends every entity of a type whose position lies in a box, like
+         * {@code World.getEntitiesByClass} without the bounding box overlap.
+         *
+         * @param type the entity class to match, including subclasses
+         * @param box the box to search
+         * @param filter selects the entities to include, or null for all of the type
+         * @param results the list to append to
+         * @param <T> the entity type
+         * @return the number of entities appended
+         */
+        public <T extends Entity> int findInBox(@NotNull Class<T> type, @NotNull Box box,
+                @Nullable Predicate<? super T> filter, @NotNull List<? super T> results) {
+            return collect(type, filter, box.minX, box.minY, box.minZ, box.maxX, box.maxY,
+                    box.maxZ, 0, 0, 0, -1, results);
+        }
+
+        /**
+         * Finds the nearest entity to a point.
+         *
+         * @param x the point's x coordinate
+         * @param y the point's y coordinate
+         * @param z the point's z coordinate
+         * @param maxRadius the largest distance to consider
+         * @param filter selects the entities to consider, or null for all
+         * @return the nearest entity, or null if none is within the radius
+         */
+        @Nullable
+        public Entity findNearest(double x, double y, double z, double maxRadius,
+                @Nullable Predicate<? super Entity> filter) {
+            return findNearest(Entity.class, x, y, z, maxRadius, filter);
+        }
+
+        /**
+         * Finds the nearest entity of a type to a point.
+         *
+         * @param type the entity class to match, including subclasses
+         * @param x the point's x coordinate
+         * @param y the point's y coordinate
+         * @param z the point's z coordinate
+         * @param maxRadius the largest distance to consider
+         * @param filter selects the entities to consider, or null for all of the type
+         * @param <T> the entity type
+         * @return the nearest entity, or null if none is within the radius
+         */
+        @Nullable
+        public <T extends Entity> T findNearest(@NotNull Class<T> type, double x, double y,
+                double z, double maxRadius, @Nullable Predicate<? super T> filter) {
+            if (searchNearest(type, x, y, z, maxRadius, 1, filter) == 0) {
+                return null;
+            }
+            return type.cast(entities[heapIndex[0]]);
+        }
+
+        /**
+         * Appends the k nearest entities to a point, nearest first.
+         *
+         * @param x the point's x coordinate
+         * @param y the point's y coordinate
+         * @param z the point's z coordinate
+         * @param maxRadius the largest distance to consider
+         * @param k the number of entities to find
+         * @param filter selects the entities to consider, or null for all
+         * @param results the list to append to
+         * @return the number of entities appended, at most k
+         */
+        public int findKNearest(double x, double y, double z, double maxRadius, int k,
+                @Nullable Predicate<? super Entity> filter, @NotNull List<? super Entity> results) {
+            return findKNearest(Entity.class, x, y, z, maxRadius, k, filter, results);
+        }
+
+        /**
+         * Appends the k nearest entities of a type to a point, nearest first.
+         *
+         * @param type the entity class to match, including subclasses
+         * @param x the point's x coordinate
+         * @param y the point's y coordinate
+         * @param z the point's z coordinate
+         * @param maxRadius the largest distance to consider
+         * @param k the number of entities to find
+         * @param filter selects the entities to consider, or null for all of the type
+         * @param results the list to append to
+         * @param <T> the entity type
+         * @return the number of entities appended, at most k
+         */
+        public <T extends Entity> int findKNearest(@NotNull Class<T> type, double x, double y,
+                double z, double maxRadius, int k, @Nullable Predicate<? super T> filter,
+                @NotNull List<? super T> results) {
+            if (k <= 0) {
+                return 0;
+            }
+            int found = searchNearest(type, x, y, z, maxRadius, k, filter);
+            // Heap sort the max-heap in place, leaving the candidates nearest first
+            for (int end = found - 1; end > 0; end--) {
+                swap(0, end);
+                heapSize = end;
+                siftDown(0);
+            }
+            for (int i = 0; i < found; i++) {
+                results.add(type.cast(entities[heapIndex[i]]));
+            }
+            return found;
+        }
+
+        /**
+         * Collects the k nearest matches into the heap, visiting cells in rings of growing
+         * distance around the point's cell and stopping once no further ring can hold a nearer
+         * one.
+         *
+         * @return the number of candidates in the heap
+         */
+        private <T extends Entity> int searchNearest(Class<T> type, double x, double y, double z,
+                double maxRadius, int k, @Nullable Predicate<? super T> filter) {
+            if (heapIndex.length < k) {
+                heapIndex = new int[k];
+                heapDistSq = new double[k];
+            }
+            heapSize = 0;
+            double maxRadiusSq = maxRadius * maxRadius;
+            double maxRings = Math.ceil(maxRadius * inverseCellSize);
+            double ringCells = 2 * maxRings + 1;
+            if (size == 0 || !(maxRadius >= 0)) {
+                return 0;
+            }
+            if (ringCells * ringCells * ringCells > cellCount * 4.0) {
+                // Sparse grid or huge radius: checking every entity is cheaper than every cell
+                for (int i = 0; i < size; i++) {
+                    offer(type, filter, i, distanceSq(i, x, y, z), maxRadiusSq, k);
+                }
+                return heapSize;
+            }
+            int centerX = cell(x);
+            int centerY = cell(y);
+            int centerZ = cell(z);
+            for (int ring = 0; ring <= maxRings; ring++) {
+                for (int dx = -ring; dx <= ring; dx++) {
+                    for (int dy = -ring; dy <= ring; dy++) {
+                        // Inside the shell only the two faces at dz = -ring and dz = ring
+                        boolean onShell = Math.abs(dx) == ring || Math.abs(dy) == ring;
+                        int step = onShell || ring == 0 ? 1 : 2 * ring;
+                        for (int dz = -ring; dz <= ring; dz += step) {
+                            int ordinal = cells.get(key(centerX + dx, centerY + dy, centerZ + dz));
+                            if (ordinal < 0) {
+                                continue;
+                            }
+                            for (int i = cellStart[ordinal]; i < cellStart[ordinal + 1]; i++) {
+                                offer(type, filter, i, distanceSq(i, x, y, z), maxRadiusSq, k);
+                            }
+                        }
+                    }
+                }
+                // Every cell in the next ring is at least this far from the point
+                double nextRingDistance = ring * cellSize;
+                if (heapSize == k && heapDistSq[0] <= nextRingDistance * nextRingDistance) {
+                    break;
+                }
+            }
+            return heapSize;
+        }
+
+        private <T extends Entity> void offer(Class<T> type, @Nullable Predicate<? super T> filter,
+                int index, double distSq, double maxRadiusSq, int k) {
+            if (distSq > maxRadiusSq || heapSize == k && distSq >= heapDistSq[0]
+                    || match(type, filter, index) == null) {
+                return;
+            }
+            if (heapSize < k) {
+                heapIndex[heapSize] = index;
+                heapDistSq[heapSize] = distSq;
+                int child = heapSize++;
+                while (child > 0) {
+                    int parent = (child - 1) >> 1;
+                    if (heapDistSq[parent] >= heapDistSq[child]) {
+                        break;
+                    }
+                    swap(parent, child);
+                    child = parent;
+                }
+            } else {
+                heapIndex[0] = index;
+                heapDistSq[0] = distSq;
+                siftDown(0);
+            }
+        }
+
+        private void siftDown(int parent) {
+            while (true) {
+                int largest = parent;
+                int left = 2 * parent + 1;
+                int right = left + 1;
+                if (left < heapSize && heapDistSq[left] > heapDistSq[largest]) {
+                    largest = left;
+                }
+                if (right < heapSize && heapDistSq[right] > heapDistSq[largest]) {
+                    largest = right;
+                }
+                if (largest == parent) {
+                    return;
+                }
+                swap(parent, largest);
+                parent = largest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int index = heapIndex[a];
+            heapIndex[a] = heapIndex[b];
+            heapIndex[b] = index;
+            double distSq = heapDistSq[a];
+            heapDistSq[a] = heapDistSq[b];
+            heapDistSq[b] = distSq;
+        }
+
+        /**
+         * Matches the entities positioned in a box and, if the squared radius is not negative,
+         * within that radius of a point. Only the cells the box overlaps are visited, or every
+         * entity when that is fewer cells to look up than the grid has.
+         *
+         * @param results the list to append to, or null to only count
+         * @return the number of matches
+         */
+        private <T extends Entity> int collect(Class<T> type, @Nullable Predicate<? super T> filter,
+                double minX, double minY, double minZ, double maxX, double maxY, double maxZ,
+                double x, double y, double z, double radiusSq, @Nullable List<? super T> results) {
+            if (size == 0 || !(minX <= maxX && minY <= maxY && minZ <= maxZ)) {
+                return 0;
+            }
+            int minCellX = cell(minX);
+            int minCellY = cell(minY);
+            int minCellZ = cell(minZ);
+            int maxCellX = cell(maxX);
+            int maxCellY = cell(maxY);
+            int maxCellZ = cell(maxZ);
+            double cellsInRange = ((double) maxCellX - minCellX + 1)
+                    * ((double) maxCellY - minCellY + 1) * ((double) maxCellZ - minCellZ + 1);
+            if (cellsInRange > cellCount * 4.0) {
+                return collectRange(type, filter, 0, size, minX, minY, minZ, maxX, maxY, maxZ, x,
+                        y, z, radiusSq, results);
+            }
+            int count = 0;
+            for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+                for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+                    for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+                        int ordinal = cells.get(key(cellX, cellY, cellZ));
+                        if (ordinal >= 0) {
+                            count += collectRange(type, filter, cellStart[ordinal],
+                                    cellStart[ordinal + 1], minX, minY, minZ, maxX, maxY, maxZ, x,
+                                    y, z, radiusSq, results);
+                        }
+                    }
+                }
+            }
+            return count;
+        }
+
+        private <T extends Entity> int collectRange(Class<T> type,
+                @Nullable Predicate<? super T> filter, int from, int to, double minX, double minY,
+                double minZ, double maxX, double maxY, double maxZ, double x, double y, double z,
+                double radiusSq, @Nullable List<? super T> results) {
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                if (xs[i] < minX || xs[i] > maxX || ys[i] < minY || ys[i] > maxY || zs[i] < minZ
+                        || zs[i] > maxZ || radiusSq >= 0 && distanceSq(i, x, y, z) > radiusSq) {
+                    continue;
+                }
+                T entity = match(type, filter, i);
+                if (entity != null) {
+                    if (results != null) {
+                        results.add(entity);
+                    }
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Nullable
+        private <T extends Entity> T match(Class<T> type, @Nullable Predicate<? super T> filter,
+                int index) {
+            Entity entity = entities[index];
+            if (entity.isRemoved() || !type.isInstance(entity)) {
+                return null;
+            }
+            T typed = type.cast(entity);
+            return filter == null || filter.test(typed) ? typed : null;
+        }
+
+        private double distanceSq(int index, double x, double y, double z) {
+            double dx = xs[index] - x;
+            double dy = ys[index] - y;
+            double dz = zs[index] - z;
+            return dx * dx + dy * dy + dz * dz;
+        }
+
+        private int cell(double coordinate) {
+            return (int) Math.floor(coordinate * inverseCellSize);
+        }
+
+        private static double checkCellSize(double cellSize) {
+            if (!(cellSize >= 1)) {
+                throw new IllegalArgumentException("Cell size must be at least 1: " + cellSize);
+            }
+            return cellSize;
+        }
+
+        private ServerWorld requireWorld() {
+            if (world == null) {
+                throw new IllegalStateException("Grid was created without a world");
+            }
+            return world;
+        }
+
+        private static long key(int cellX, int cellY, int cellZ) {
+            return BlockPos.asLong(cellX, cellY, cellZ);
+        }
+
+        private int[] heapIndexOfSize(int length) {
+            // The heap is idle during a rebuild, so its index array doubles as the write cursor
+            if (heapIndex.length < length) {
+                heapIndex = new int[length];
+                heapDistSq = new double[length];
+            }
+            return heapIndex;
+        }
+
+        private void grow(int capacity) {
+            unsorted = Arrays.copyOf(unsorted, capacity);
+            ordinals = Arrays.copyOf(ordinals, capacity);
+            entities = Arrays.copyOf(entities, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            zs = Arrays.copyOf(zs, capacity);
+        }
+    }
+
+    // ═════════════════════════════════════════════════════════════════════════════════
+    // Bulk Math - Entity Snapshots
+    // ═════════════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Finds which candidates each observer can see: those within an angle of the observer's look
+     * vector and closer than a distance, measured from the observer's eyes to the candidate's
+     * eyes.
+     *
+     * <p>
+     * This runs a cone test like {@link #isLooking} for every observer and candidate pair, such
+     * as every mob against every player, without per-pair allocation. The two tests differ:
+     * {@link #isLooking} measures from feet to feet and has no distance limit, so for entities
+     * with different eye heights, especially at close range, the two can disagree. The angle's
+     * cosine is computed once and each observer's look vector comes from the snapshot, so the
+     * loop over candidates is a vectorizable pass with no trigonometry or square roots. Only the
+     * cone and distance are tested; check {@link RaycastHelper.RayBatch#hasLineOfSight} for the
+     * pairs that pass if blocks should hide candidates. An observer never sees itself.
+     *
+     * <pre>
+     * mobs.capture(hostiles);
+     * players.capture(world.getPlayers());
+     * EntityHelper.findInView(mobs, players, 60, 32, view);
+     * for (int player = 0; player &lt; players.size(); player++) {
+     *     if (view.isSeenByAny(player)) {
+     *         // player is spotted
+     *     }
+     * }
+     * </pre>
+     *
+     * @param observers the entities looking
+     * @param candidates the entities that may be seen
+     * @param maxAngle the largest angle between an observer's look vector and a candidate, in
+     *        degrees
+     * @param maxDistance the distance candidates must be closer than
+     * @param result receives the visibility of each candidate to each observer
+     */
+    public static void findInView(@NotNull EntitySnapshot observers,
+            @NotNull EntitySnapshot candidates, double maxAngle, double maxDistance,
+            @NotNull ViewMatrix result) {
+        double cos = Math.cos(Math.toRadians(maxAngle));
+        computeView(observers, candidates, null, cos * Math.abs(cos), maxDistance, result);
+    }
+
+    /**
+     * Finds which candidates each observer can see, like
+     * {@link #findInView(EntitySnapshot, EntitySnapshot, double, double, ViewMatrix)} but with
+     * an angle per observer.
+     *
+     * @param observers the entities looking
+     * @param candidates the entities that may be seen
+     * @param maxAngles the largest angle for observer i, in degrees, at index i
+     * @param maxDistance the distance candidates must be closer than
+     * @param result receives the visibility of each candidate to each observer
+     * @throws IllegalArgumentException if there are fewer angles than observers
+     */
+    public static void findInView(@NotNull EntitySnapshot observers,
+            @NotNull EntitySnapshot candidates, double @NotNull [] maxAngles, double maxDistance,
+            @NotNull ViewMatrix result) {
+        if (maxAngles.length < observers.size()) {
+            throw new IllegalArgumentException(
+                    "Expected an angle per observer: " + maxAngles.length + " < "
+                            + observers.size());
+        }
+        computeView(observers, candidates, maxAngles, 0, maxDistance, result);
+    }
+
+    private static void computeView(EntitySnapshot observers, EntitySnapshot candidates,
+            double @Nullable [] maxAngles, double signedCosSq, double maxDistance,
+            ViewMatrix result) {
+        int candidateCount = candidates.size;
+        result.reset(observers.size, candidateCount);
+        double maxDistanceSq = maxDistance * maxDistance;
+        double[] xs = candidates.xs;
+        double[] eyeYs = candidates.eyeYs;
+        double[] zs = candidates.zs;
+        double[] margins = candidates.scratch;
+        for (int observer = 0; observer < observers.size; observer++) {
+            if (maxAngles != null) {
+                double cos = Math.cos(Math.toRadians(maxAngles[observer]));
+                signedCosSq = cos * Math.abs(cos);
+            }
+            double x = observers.xs[observer];
+            double y = observers.eyeYs[observer];
+            double z = observers.zs[observer];
+            double lookX = observers.lookXs[observer];
+            double lookY = observers.lookYs[observer];
+            double lookZ = observers.lookZs[observer];
+            for (int i = 0; i < candidateCount; i++) {
+                double dx = xs[i] - x;
+                double dy = eyeYs[i] - y;
+                double dz = zs[i] - z;
+                double dot = lookX * dx + lookY * dy + lookZ * dz;
+                double distanceSq = dx * dx + dy * dy + dz * dz;
+                // Positive only when inside the cone and closer than the distance
+                margins[i] = Math.min(dot * Math.abs(dot) - signedCosSq * distanceSq,
+                        maxDistanceSq - distanceSq);
+            }
+            result.setRow(observer, margins);
+        }
+    }
+
+    /**
+     * A structure-of-arrays copy of a set of entities' ids, positions, eye heights, velocities and
+     * look vectors, for bulk math over many entities at once.
+     *
+     * <p>
+     * A capture reads each entity's getters once, computing its look vector from pitch and yaw on
+     * the spot, and packs the values into parallel primitive arrays that are reused between
+     * captures. The kernels are then plain loops over those arrays with no calls, allocation or
+     * branches, which the JIT compiles to SIMD instructions; the selecting kernels add one scalar
+     * pass that collects the matching indices. {@link #bindToWorldTicks} recaptures a world's
+     * entities at the end of every tick.
+     *
+     * <p>
+     * Indices are positions in the last capture; {@link #getEntity} maps them back. A snapshot is
+     * not thread-safe.
+     *
+     * <pre>
+     * EntityHelper.EntitySnapshot players = new EntityHelper.EntitySnapshot();
+     * players.capture(world.getPlayers());
+     * int[] watching = new int[players.size()];
+     * int count = players.selectLookingAt(x, y, z, 30, watching);
+     * </pre>
+     */
+    public static final class EntitySnapshot {
+        private Entity[] entities = new Entity[16];
+        private int[] ids = new int[16];
+        private double[] xs = new double[16];
+        private double[] ys = new double[16];
+        private double[] zs = new double[16];
+        private double[] eyeYs = new double[16];
+        private double[] velocityXs = new double[16];
+        private double[] velocityYs = new double[16];
+        private double[] velocityZs = new double[16];
+        private double[] lookXs = new double[16];
+        private double[] lookYs = new double[16];
+        private double[] lookZs = new double[16];
+        private double[] scratch = new double[16];
+        private int size;
+        @Nullable
+        private TickHelper.Binding tickBinding;
+
+        /**
+         * Recaptures every entity in a world at the end of each of its ticks until
+         * {@link #stop()}, and clears the snapshot when the world unloads. Binding to another
+         * world replaces the previous binding.
+         *
+         * @param world the world whose entities to capture
+         * @return this snapshot
+         */
+        @NotNull
+        public synchronized EntitySnapshot bindToWorldTicks(@NotNull ServerWorld world) {
+            if (tickBinding != null) {
+                tickBinding.unbind();
+            }
+            tickBinding = TickHelper.bindToWorldTicks(world, () -> capture(world), this::clear);
+            return this;
+        }
+
+        /**
+         * Stops tick-driven captures and clears the snapshot.
+         */
+        public synchronized void stop() {
+            if (tickBinding != null) {
+                tickBinding.unbind();
+                tickBinding = null;
+            }
+            clear();
+        }
+
+        /**
+         * Replaces the snapshot with every entity in a world.
+         *
+         * @param world the world whose entities to capture
+         */
+        public void capture(@NotNull ServerWorld world) {
+            capture(world.iterateEntities());
+        }
+
+        /**
+         * Replaces the snapshot with a set of entities, in iteration order.
+         *
+         * @param entities the entities to capture
+         */
+        public void capture(@NotNull Iterable<? extends Entity> entities) {
+            int previousSize = size;
+            int count = 0;
+            for (Entity entity : entities) {
+                if (count == this.entities.length) {
+                    grow(count * 2);
+                }
+                this.entities[count] = entity;
+                ids[count] = entity.getId();
+                xs[count] = entity.getX();
+                ys[count] = entity.getY();
+                zs[count] = entity.getZ();
+                eyeYs[count] = entity.getEyeY();
+                Vec3d velocity = entity.getVelocity();
+                velocityXs[count] = velocity.x;
+                velocityYs[count] = velocity.y;
+                velocityZs[count] = velocity.z;
+                // Entity.getRotationVector(pitch, yaw), without the Vec3d
+                double pitch = Math.toRadians(entity.getPitch());
+                double yaw = Math.toRadians(-entity.getYaw());
+                double horizontal = Math.cos(pitch);
+                lookXs[count] = Math.sin(yaw) * horizontal;
+                lookYs[count] = -Math.sin(pitch);
+                lookZs[count] = Math.cos(yaw) * horizontal;
+                count++;
+            }
+            if (previousSize > count) {
+                Arrays.fill(this.entities, count, previousSize, null);
+            }
+            size = count;
+        }
+
+        /**
+         * Empties the snapshot until the next capture.
+         */
+        public void clear() {
+            Arrays.fill(entities, 0, size, null);
+            size = 0;
+        }
+
+        /**
+         * Gets the number of entities in the last capture.
+         *
+         * @return the number of entities
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Gets a captured entity.
+         *
+         * @param index the entity's index in the capture
+         * @return the entity
+         * @throws IndexOutOfBoundsException if the index is outside the capture
+         */
+        @NotNull
+        public Entity getEntity(int index) {
+            return entities[Objects.checkIndex(index, size)];
+        }
+
+        /**
+         * Gets a captured entity's network id.
+         *
+         * @param index the entity's index in the capture
+         * @return the entity id
+         * @throws IndexOutOfBoundsException if the index is outside the capture
+         */
+        public int getId(int index) {
+            return ids[Objects.checkIndex(index, size)];
+        }
+
+        /**
+         * Gets a captured entity's position.
+         *
+         * @param index the entity's index in the capture
+         * @return the entity's x coordinate
+         * @throws IndexOutOfBoundsException if the index is outside the capture
+         */
+        public double getX(int index) {
+            return xs[Objects.checkIndex(index, size)];
+        }
+
+        /**
+         * Gets a captured entity's position.
+         *
+         * @param index the entity's index in the capture
+         * @return the entity's y coordinate (its feet)
+         * @throws IndexOutOfBoundsException if the index is outside the capture
+         */
+        public double getY(int index) {
+            return ys[Objects.checkIndex(index, size)];
+        }
+
+        /**
+         * Gets a captured entity's position.
+         *
+         * @param index the entity's index in the capture
+         * @return the entity's z coordinate
+         * @throws IndexOutOfBoundsException if the index is outside the capture
+         */
+        public double getZ(int index) {
+            return zs[Objects.checkIndex(index, size)];
+        }
+
+        /**
+         * Gets a captured entity's eye height.
+         *
+         * @param index the entity's index in the capture
+         * @return the y coordinate of the entity's eyes
+         * @throws IndexOutOfBoundsException if the index is outside the capture
+         */
+        public double getEyeY(int index) {
+            return eyeYs[Objects.checkIndex(index, size)];
+        }
+
+        /**
+         * Computes the squared distance from every captured entity's position to a point.
+         *
+         * @param x the point's x coordinate
+         * @param y the point's y coordinate
+         * @param z the point's z coordinate
+         * @param out receives the squared distance of entity i at index i
+         * @throws IllegalArgumentException if the output array is shorter than {@link #size()}
+         */
+        public void distancesSquared(double x, double y, double z, double @NotNull [] out) {
+            checkLength(out.length);
+            double[] xs = this.xs;
+            double[] ys = this.ys;
+            double[] zs = this.zs;
+            for (int i = 0; i < size; i++) {
+                double dx = xs[i] - x;
+                double dy = ys[i] - y;
+                double dz = zs[i] - z;
+                out[i] = dx * dx + dy * dy + dz * dz;
+            }
+        }
+
+        /**
+         * Computes every captured entity's squared speed.
+         *
+         * @param out receives the squared speed of entity i, in blocks per tick, at index i
+         * @throws IllegalArgumentException if the output array is shorter than {@link #size()}
+         */
+        public void speedsSquared(double @NotNull [] out) {
+            checkLength(out.length);
+            double[] velocityXs = this.velocityXs;
+            double[] velocityYs = this.velocityYs;
+            double[] velocityZs = this.velocityZs;
+            for (int i = 0; i < size; i++) {
+                out[i] = velocityXs[i] * velocityXs[i] + velocityYs[i] * velocityYs[i]
+                        + velocityZs[i] * velocityZs[i];
+            }
+        }
+
+        /**
+         * Selects the entities within a radius of a point.
+         *
+         * @param x the point's x coordinate
+         * @param y the point's y coordinate
+         * @param z the point's z coordinate
+         * @param radius the radius
+         * @param out receives the indices of the selected entities, in capture order
+         * @return the number of entities selected
+         * @throws IllegalArgumentException if the output array is shorter than {@link #size()}
+         */
+        public int selectWithin(double x, double y, double z, double radius, int @NotNull [] out) {
+            checkLength(out.length);
+            distancesSquared(x, y, z, scratch);
+            return selectAtMost(radius * radius, out);
+        }
+
+        /**
+         * Selects the entities moving faster than a speed, like comparing
+         * {@link EntityHelper#getSpeed} for each.
+         *
+         * @param speed the speed to exceed, in blocks per tick
+         * @param out receives the indices of the selected entities, in capture order
+         * @return the number of entities selected
+         * @throws IllegalArgumentException if the output array is shorter than {@link #size()}
+         */
+        public int selectFasterThan(double speed, int @NotNull [] out) {
+            checkLength(out.length);
+            speedsSquared(scratch);
+            return selectAbove(speed < 0 ? -1 : speed * speed, out);
+        }
+
+        /**
+         * Selects the entities looking at a point: those whose look vector is within an angle of
+         * the direction from their eyes to the point. This is the cone test of
+         * {@link EntityHelper#isLooking}, but that measures from the entity's feet, so the two
+         * agree only for a target one eye height below the point.
+         *
+         * <p>
+         * The cone test compares the dot product of the look vector and the direction against
+         * the angle's cosine times the direction's length, with both sides squared and their signs
+         * kept, so the loop needs neither trigonometry nor square roots.
+         *
+         * @param x the point's x coordinate
+         * @param y the point's y coordinate
+         * @param z the point's z coordinate
+         * @param maxAngle the largest angle between look vector and direction, in degrees
+         * @param out receives the indices of the selected entities, in capture order
+         * @return the number of entities selected
+         * @throws IllegalArgumentException if the output array is shorter than {@link #size()}
+         */
+        public int selectLookingAt(double x, double y, double z, double maxAngle,
+                int @NotNull [] out) {
+            checkLength(out.length);
+            double cos = Math.cos(Math.toRadians(maxAngle));
+            double signedCosSq = cos * Math.abs(cos);
+            double[] xs = this.xs;
+            double[] eyeYs = this.eyeYs;
+            double[] zs = this.zs;
+            double[] lookXs = this.lookXs;
+            double[] lookYs = this.lookYs;
+            double[] lookZs = this.lookZs;
+            double[] margins = scratch;
+            for (int i = 0; i < size; i++) {
+                double dx = x - xs[i];
+                double dy = y - eyeYs[i];
+                double dz = z - zs[i];
+                double dot = lookXs[i] * dx + lookYs[i] * dy + lookZs[i] * dz;
+                // dot > cos * |d|, squared with signs kept: dot * |dot| > cos * |cos| * |d|^2
+                margins[i] = dot * Math.abs(dot) - signedCosSq * (dx * dx + dy * dy + dz * dz);
+            }
+            return selectAbove(0, out);
+        }
+
+        private int selectAtMost(double limit, int[] out) {
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (scratch[i] <= limit) {
+                    out[count++] = i;
+                }
+            }
+            return count;
+        }
+
+        private int selectAbove(double limit, int[] out) {
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (scratch[i] > limit) {
+                    out[count++] = i;
+                }
+            }
+            return count;
+        }
+
+        private void checkLength(int length) {
+            if (length < size) {
+                throw new IllegalArgumentException(
+                        "Output array too short: " + length + " < " + size);
+            }
+        }
+
+        private void grow(int capacity) {
+            entities = Arrays.copyOf(entities, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            zs = Arrays.copyOf(zs, capacity);
+            eyeYs = Arrays.copyOf(eyeYs, capacity);
+            velocityXs = Arrays.copyOf(velocityXs, capacity);
+            velocityYs = Arrays.copyOf(velocityYs, capacity);
+            velocityZs = Arrays.copyOf(velocityZs, capacity);
+            lookXs = Arrays.copyOf(lookXs, capacity);
+            lookYs = Arrays.copyOf(lookYs, capacity);
+            lookZs = Arrays.copyOf(lookZs, capacity);
+            scratch = Arrays.copyOf(scratch, capacity);
+        }
+    }
+
+    /**
+     * The result of {@link #findInView}: which candidates each observer can see, one bit per
+     * pair. Reuse one matrix across ticks to avoid reallocating it.
+     */
+    public static final class ViewMatrix {
+        private long[] bits = new long[0];
+        private int observers;
+        private int candidates;
+        private int words;
+
+        /**
+         * Gets the number of observers in the last query.
+         *
+         * @return the number of observers
+         */
+        public int getObserverCount() {
+            return observers;
+        }
+
+        /**
+         * Gets the number of candidates in the last query.
+         *
+         * @return the number of candidates
+         */
+        public int getCandidateCount() {
+            return candidates;
+        }
+
+        /**
+         * Checks whether an observer can see a candidate.
+         *
+         * @param observer the observer's index in its snapshot
+         * @param candidate the candidate's index in its snapshot
+         * @return true if the candidate is in the observer's view
+         * @throws IndexOutOfBoundsException if either index is outside the last query
+         */
+        public boolean canSee(int observer, int candidate) {
+            Objects.checkIndex(observer, observers);
+            Objects.checkIndex(candidate, candidates);
+            return (bits[observer * words + (candidate >>> 6)] & 1L << candidate) != 0;
+        }
+
+        /**
+         * Checks whether any observer can see a candidate.
+         *
+         * @param candidate the candidate's index in its snapshot
+         * @return true if the candidate is in at least one observer's view
+         * @throws IndexOutOfBoundsException if the index is outside the last query
+         */
+        public boolean isSeenByAny(int candidate) {
+            Objects.checkIndex(candidate, candidates);
+            long mask = 1L << candidate;
+            for (int word = candidate >>> 6; word < observers * words; word += words) {
+                if ((bits[word] & mask) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Counts the candidates an observer can see.
+         *
+         * @param observer the observer's index in its snapshot
+         * @return the number of candidates in the observer's view
+         * @throws IndexOutOfBoundsException if the index is outside the last query
+         */
+        public int countVisible(int observer) {
+            Objects.checkIndex(observer, observers);
+            int count = 0;
+            for (int word = observer * words; word < (observer + 1) * words; word++) {
+                count += Long.bitCount(bits[word]);
+            }
+            return count;
+        }
+
+        /**
+         * Lists the candidates an observer can see.
+         *
+         * @param observer the observer's index in its snapshot
+         * @param out receives the candidates' indices in ascending order
+         * @return the number of candidates in the observer's view
+         * @throws IndexOutOfBoundsException if the index is outside the last query, or the
+         *         output array is too short
+         */
+        public int getVisible(int observer, int @NotNull [] out) {
+            Objects.checkIndex(observer, observers);
+            int count = 0;
+            for (int word = 0; word < words; word++) {
+                long remaining = bits[observer * words + word];
+                while (remaining != 0) {
+                    out[count++] = (word << 6) + Long.numberOfTrailingZeros(remaining);
+                    remaining &= remaining - 1;
+                }
+            }
+            return count;
+        }
+
+        private void reset(int observers, int candidates) {
+            this.observers = observers;
+            this.candidates = candidates;
+            this.words = (candidates + 63) >>> 6;
+            int length = observers * words;
+            if (bits.length < length) {
+                bits = new long[Math.max(length, bits.length * 2)];
+            }
+        }
+
+        private void setRow(int observer, double[] margins) {
+            int offset = observer * words;
+            for (int word = 0; word < words; word++) {
+                int base = word << 6;
+                int end = Math.min(64, candidates - base);
+                long row = 0;
+                for (int bit = 0; bit < end; bit++) {
+                    if (margins[base + bit] > 0) {
+                        row |= 1L << bit;
+                    }
+                }
+                bits[offset + word] = row;
+            }
+        }
+    }
+}
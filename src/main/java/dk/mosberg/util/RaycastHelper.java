@@ -0,0 +1,417 @@
+package dk.mosberg.util;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Predicate;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.ChunkSection;
+
+/**
+ * Utility for walking the blocks along a line segment. Provides a grid traversal for line of
+ * sight, projectile and beam checks that need every block a segment passes through rather than the
+ * first collision shape hit.
+ *
+ * <p>
+ * Traversal uses the 3D DDA of Amanatides and Woo: it steps from one block to the face-adjacent
+ * block the segment enters next, so every block the segment touches is visited once, in order,
+ * with no per-block allocation. A segment through an edge or corner steps one axis at a time and
+ * so also visits one of the blocks beside it. World traversals read states through a
+ * {@link RayBatch}, which caches the chunk sections a ray enters; reuse one batch for many rays in
+ * the same tick so neighbouring rays share the lookups.
+ *
+ * <p>
+ * Example usage:
+ *
+ * <pre>
+ * boolean visible = RaycastHelper.hasLineOfSight(world, turret.getEyePos(), target.getEyePos());
+ *
+ * RaycastHelper.RayBatch batch = new RaycastHelper.RayBatch(world, null);
+ * for (Entity target : targets) {
+ *     if (batch.hasLineOfSight(eye, target.getEyePos(), RaycastHelper.BLOCKS_SIGHT)) {
+ *         // ...
+ *     }
+ * }
+ * </pre>
+ */
+public final class RaycastHelper {
+    private RaycastHelper() {}
+
+    /**
+     * Matches states that block sight: full opaque cubes such as stone, but not glass, leaves or
+     * slabs.
+     */
+    public static final Predicate<BlockState> BLOCKS_SIGHT = BlockState::isOpaqueFullCube;
+
+    // ═══════════════════════════════════════════════════════════════════════════════════════════
+    // Grid traversal
+    // ═══════════════════════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Receives each block position a segment passes through.
+     */
+    @FunctionalInterface
+    public interface VoxelVisitor {
+        /**
+         * Visits one block position.
+         *
+         * @param x the block x coordinate
+         * @param y the block y coordinate
+         * @param z the block z coordinate
+         * @return true to keep walking, false to stop
+         */
+        boolean visit(int x, int y, int z);
+    }
+
+    /**
+     * Visits every block position the segment passes through, from the block holding the start
+     * point to the block holding the end point. Only positions are visited, so this needs no world.
+     *
+     * @param from the start point
+     * @param to the end point
+     * @param visitor called for each position in order; return false to stop
+     * @return true if the walk reached the end block, false if the visitor stopped it
+     */
+    public static boolean traverse(@NotNull Vec3d from, @NotNull Vec3d to,
+            @NotNull VoxelVisitor visitor) {
+        return traverse(from.getX(), from.getY(), from.getZ(), to.getX(), to.getY(), to.getZ(),
+                visitor);
+    }
+
+    /**
+     * Visits every block position the segment passes through, from the block holding the start
+     * point to the block holding the end point. Allocates nothing.
+     *
+     * <p>
+     * The walk takes exactly one step per block boundary crossed, so its length is the Manhattan
+     * distance between the start and end blocks plus one.
+     *
+     * @param x0 the start x coordinate
+     * @param y0 the start y coordinate
+     * @param z0 the start z coordinate
+     * @param x1 the end x coordinate
+     * @param y1 the end y coordinate
+     * @param z1 the end z coordinate
+     * @param visitor called for each position in order; return false to stop
+     * @return true if the walk reached the end block, false if the visitor stopped it
+     */
+    public static boolean traverse(double x0, double y0, double z0, double x1, double y1,
+            double z1, @NotNull VoxelVisitor visitor) {
+        int x = (int) Math.floor(x0);
+        int y = (int) Math.floor(y0);
+        int z = (int) Math.floor(z0);
+        int endX = (int) Math.floor(x1);
+        int endY = (int) Math.floor(y1);
+        int endZ = (int) Math.floor(z1);
+        if (!visitor.visit(x, y, z)) {
+            return false;
+        }
+        int steps = Math.abs(endX - x) + Math.abs(endY - y) + Math.abs(endZ - z);
+        if (steps == 0) {
+            return true;
+        }
+
+        // Distances are in units of the segment parameter t, which runs from 0 to 1
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        double dz = z1 - z0;
+        int stepX = Integer.signum(endX - x);
+        int stepY = Integer.signum(endY - y);
+        int stepZ = Integer.signum(endZ - z);
+        double deltaX = stepX == 0 ? Double.POSITIVE_INFINITY : Math.abs(1.0 / dx);
+        double deltaY = stepY == 0 ? Double.POSITIVE_INFINITY : Math.abs(1.0 / dy);
+        double deltaZ = stepZ == 0 ? Double.POSITIVE_INFINITY : Math.abs(1.0 / dz);
+        double nextX = stepX == 0 ? Double.POSITIVE_INFINITY
+                : (stepX > 0 ? x + 1 - x0 : x0 - x) * deltaX;
+        double nextY = stepY == 0 ? Double.POSITIVE_INFINITY
+                : (stepY > 0 ? y + 1 - y0 : y0 - y) * deltaY;
+        double nextZ = stepZ == 0 ? Double.POSITIVE_INFINITY
+                : (stepZ > 0 ? z + 1 - z0 : z0 - z) * deltaZ;
+
+        for (int i = 0; i < steps; i++) {
+            // An axis that reached its end block is retired, so rounding near a corner can
+            // never overshoot it and the walk always ends in the end block
+            if (nextX <= nextY && nextX <= nextZ) {
+                x += stepX;
+                nextX = x == endX ? Double.POSITIVE_INFINITY : nextX + deltaX;
+            } else if (nextY <= nextZ) {
+                y += stepY;
+                nextY = y == endY ? Double.POSITIVE_INFINITY : nextY + deltaY;
+            } else {
+                z += stepZ;
+                nextZ = z == endZ ? Double.POSITIVE_INFINITY : nextZ + deltaZ;
+            }
+            if (!visitor.visit(x, y, z)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════════════════════════
+    // World traversal
+    // ═══════════════════════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Visits every block the segment passes through, in order, loading chunks as needed. Blocks
+     * above or below the world's build limits are not visited.
+     *
+     * @param world the world to read
+     * @param from the start point
+     * @param to the end point
+     * @param visitor called for each block; return false to stop
+     * @return true if the walk reached the end block, false if the visitor stopped it
+     */
+    public static boolean visitBlocks(@NotNull World world, @NotNull Vec3d from, @NotNull Vec3d to,
+            @NotNull BlockSearchHelper.BlockVisitor visitor) {
+        return new RayBatch(world, null).visitBlocks(from.getX(), from.getY(), from.getZ(),
+                to.getX(), to.getY(), to.getZ(), visitor);
+    }
+
+    /**
+     * Finds the first block along the segment that matches, loading chunks as needed.
+     *
+     * @param world the world to read
+     * @param from the start point
+     * @param to the end point
+     * @param matcher the states to stop at
+     * @return the first matching block position, or null if none
+     */
+    @Nullable
+    public static BlockPos findFirst(@NotNull World world, @NotNull Vec3d from, @NotNull Vec3d to,
+            @NotNull Predicate<BlockState> matcher) {
+        return new RayBatch(world, null).findFirst(from.getX(), from.getY(), from.getZ(),
+                to.getX(), to.getY(), to.getZ(), matcher);
+    }
+
+    /**
+     * Checks whether nothing that blocks sight lies between two points, loading chunks as
+     * needed.
+     *
+     * @param world the world to read
+     * @param from the start point, usually an eye position
+     * @param to the end point, usually an eye position
+     * @return true if no block between the two points matches {@link #BLOCKS_SIGHT}
+     * @see RayBatch#hasLineOfSight(double, double, double, double, double, double, Predicate)
+     */
+    public static boolean hasLineOfSight(@NotNull World world, @NotNull Vec3d from,
+            @NotNull Vec3d to) {
+        return new RayBatch(world, null).hasLineOfSight(from.getX(), from.getY(), from.getZ(),
+                to.getX(), to.getY(), to.getZ(), BLOCKS_SIGHT);
+    }
+
+    /**
+     * Checks line of sight for many segments against one shared section cache.
+     *
+     * <p>
+     * Segments are packed six doubles each, {@code x0, y0, z0, x1, y1, z1}, so a caller can fill
+     * one array per tick instead of building a {@link Vec3d} pair per ray.
+     *
+     * @param world the world to read
+     * @param segments the packed segments
+     * @param blocking the states that block sight
+     * @param results receives, per segment, whether it is clear
+     * @param loadedOnly if not null, chunks are never loaded and blocks in unloaded chunks count
+     *        as clear; skipped chunks are recorded here
+     * @return the number of clear segments
+     * @throws IllegalArgumentException if segments is not a multiple of six long, or results is
+     *         shorter than the segment count
+     */
+    public static int hasLineOfSight(@NotNull World world, double @NotNull [] segments,
+            @NotNull Predicate<BlockState> blocking, boolean @NotNull [] results,
+            @Nullable BlockSearchHelper.LoadedOnly loadedOnly) {
+        if (segments.length % 6 != 0) {
+            throw new IllegalArgumentException(
+                    "Segment array length must be a multiple of 6: " + segments.length);
+        }
+        int count = segments.length / 6;
+        if (results.length < count) {
+            throw new IllegalArgumentException(
+                    "Results array holds " + results.length + " of " + count + " segments");
+        }
+        RayBatch batch = new RayBatch(world, loadedOnly);
+        int clear = 0;
+        for (int i = 0; i < count; i++) {
+            int o = i * 6;
+            results[i] = batch.hasLineOfSight(segments[o], segments[o + 1], segments[o + 2],
+                    segments[o + 3], segments[o + 4], segments[o + 5], blocking);
+            if (results[i]) {
+                clear++;
+            }
+        }
+        return clear;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════════════════════════
+    // Batched rays
+    // ═══════════════════════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Walks many rays through one world while caching the chunk sections they enter, so rays that
+     * cross the same area look each section up once. After construction no call allocates.
+     *
+     * <p>
+     * A batch is meant for the rays of one tick on the server thread. Sections are cached by
+     * reference, so call {@link #clear()} before reusing a batch in a later tick in case chunks
+     * were unloaded and reloaded.
+     */
+    public static final class RayBatch {
+        private static final int CACHE_SIZE = 64;
+
+        private final World world;
+        @Nullable
+        private final BlockSearchHelper.LoadedOnly loadedOnly;
+        private final long[] keys = new long[CACHE_SIZE];
+        private final ChunkSection[] sections = new ChunkSection[CACHE_SIZE];
+        private final boolean[] filled = new boolean[CACHE_SIZE];
+        private final BlockPos.Mutable cursor = new BlockPos.Mutable();
+        private final VoxelVisitor blockStep = this::visitBlock;
+        private final VoxelVisitor sightStep = this::checkSight;
+        private final VoxelVisitor firstStep = this::checkFirst;
+
+        // Per-ray state read by the step visitors above
+        private BlockSearchHelper.BlockVisitor visitor;
+        private Predicate<BlockState> matcher;
+        private int startX, startY, startZ, endX, endY, endZ;
+
+        /**
+         * Creates a batch for a world.
+         *
+         * @param world the world to read
+         * @param loadedOnly if not null, chunks are never loaded and blocks in unloaded chunks are
+         *        not visited; skipped chunks are recorded here
+         */
+        public RayBatch(@NotNull World world, @Nullable BlockSearchHelper.LoadedOnly loadedOnly) {
+            this.world = Objects.requireNonNull(world, "world");
+            this.loadedOnly = loadedOnly;
+        }
+
+        /**
+         * Visits every block the segment passes through, in order. Blocks outside the build limits,
+         * and in loaded-only mode blocks in unloaded chunks, are not visited.
+         *
+         * @param visitor called for each block; return false to stop
+         * @return true if the walk reached the end block, false if the visitor stopped it
+         */
+        public boolean visitBlocks(double x0, double y0, double z0, double x1, double y1,
+                double z1, @NotNull BlockSearchHelper.BlockVisitor visitor) {
+            this.visitor = visitor;
+            try {
+                return traverse(x0, y0, z0, x1, y1, z1, blockStep);
+            } finally {
+                this.visitor = null;
+            }
+        }
+
+        /**
+         * Finds the first block along the segment that matches.
+         *
+         * @param matcher the states to stop at
+         * @return the first matching block position, or null if none
+         */
+        @Nullable
+        public BlockPos findFirst(double x0, double y0, double z0, double x1, double y1,
+                double z1, @NotNull Predicate<BlockState> matcher) {
+            this.matcher = matcher;
+            try {
+                return traverse(x0, y0, z0, x1, y1, z1, firstStep) ? null : cursor.toImmutable();
+            } finally {
+                this.matcher = null;
+            }
+        }
+
+        /**
+         * Checks whether no block strictly between two points blocks sight. The blocks holding
+         * the two points are ignored, so a ray from an eye to an eye is not blocked by the
+         * blocks the entities stand in.
+         *
+         * @param blocking the states that block sight, such as {@link #BLOCKS_SIGHT}
+         * @return true if no block between the two points matches
+         */
+        public boolean hasLineOfSight(double x0, double y0, double z0, double x1, double y1,
+                double z1, @NotNull Predicate<BlockState> blocking) {
+            startX = (int) Math.floor(x0);
+            startY = (int) Math.floor(y0);
+            startZ = (int) Math.floor(z0);
+            endX = (int) Math.floor(x1);
+            endY = (int) Math.floor(y1);
+            endZ = (int) Math.floor(z1);
+            this.matcher = blocking;
+            try {
+                return traverse(x0, y0, z0, x1, y1, z1, sightStep);
+            } finally {
+                this.matcher = null;
+            }
+        }
+
+        /**
+         * Checks line of sight between two points.
+         *
+         * @see #hasLineOfSight(double, double, double, double, double, double, Predicate)
+         */
+        public boolean hasLineOfSight(@NotNull Vec3d from, @NotNull Vec3d to,
+                @NotNull Predicate<BlockState> blocking) {
+            return hasLineOfSight(from.getX(), from.getY(), from.getZ(), to.getX(), to.getY(),
+                    to.getZ(), blocking);
+        }
+
+        /**
+         * Drops every cached section, so the next rays look their chunks up again.
+         */
+        public void clear() {
+            Arrays.fill(filled, false);
+            Arrays.fill(sections, null);
+        }
+
+        private boolean visitBlock(int x, int y, int z) {
+            BlockState state = getBlockState(x, y, z);
+            return state == null || visitor.visit(cursor.set(x, y, z), state);
+        }
+
+        private boolean checkFirst(int x, int y, int z) {
+            BlockState state = getBlockState(x, y, z);
+            if (state != null && matcher.test(state)) {
+                cursor.set(x, y, z);
+                return false;
+            }
+            return true;
+        }
+
+        private boolean checkSight(int x, int y, int z) {
+            if (x == startX && y == startY && z == startZ || x == endX && y == endY && z == endZ) {
+                return true;
+            }
+            BlockState state = getBlockState(x, y, z);
+            return state == null || !matcher.test(state);
+        }
+
+        /**
+         * Reads a block state through the section cache.
+         *
+         * @return the state, or null outside the build limits or in a skipped chunk
+         */
+        @Nullable
+        private BlockState getBlockState(int x, int y, int z) {
+            if (y < world.getBottomY() || y > world.getTopYInclusive()) {
+                return null;
+            }
+            long key = ChunkSectionPos.asLong(x >> 4, y >> 4, z >> 4);
+            int slot = (int) (key * 0x9E3779B97F4A7C15L >>> 58);
+            if (!filled[slot] || keys[slot] != key) {
+                Chunk chunk = BlockSearchHelper.getChunk(world, x >> 4, z >> 4, loadedOnly);
+                keys[slot] = key;
+                sections[slot] = chunk == null ? null
+                        : chunk.getSectionArray()[world.getSectionIndex(y)];
+                filled[slot] = true;
+            }
+            ChunkSection section = sections[slot];
+            return section == null ? null : section.getBlockState(x & 15, y & 15, z & 15);
+        }
+    }
+}
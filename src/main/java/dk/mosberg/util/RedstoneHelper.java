@@ -1,15 +1,29 @@
 package dk.mosberg.util;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.LongConsumer;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerWorldEvents;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
 import net.minecraft.block.RedstoneWireBlock;
+import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
+import net.minecraft.world.RedstoneView;
 import net.minecraft.world.World;
+import net.minecraft.world.chunk.ChunkSection;
 
 /**
  * Utility for working with redstone power and signal strength.
@@ -36,12 +50,23 @@ import net.minecraft.world.World;
  *
  * // Check adjacent power from a specific direction
  * int westPower = RedstoneHelper.getAdjacentPower(world, pos, Direction.WEST);
+ *
+ * // Track an area that is queried every few ticks
+ * RedstoneHelper.RedstoneNetwork network = RedstoneHelper.RedstoneNetwork.track(world, pos, 16, 8);
+ * List&lt;BlockPos&gt; powered = network.getPoweredPositions();
  * </pre>
  */
 public final class RedstoneHelper {
     private static final int MAX_POWER = 15;
     private static final int MIN_POWER = 0;
 
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final Direction[] HORIZONTAL =
+            {Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST};
+
+    private static final Object NETWORK_LOCK = new Object();
+    private static volatile RedstoneNetwork[] networks = new RedstoneNetwork[0];
+
     private RedstoneHelper() {
         // Prevent instantiation
     }
@@ -165,6 +190,10 @@ public final class RedstoneHelper {
     /**
      * Gets all positions with redstone power within a certain distance.
      *
+     * <p>
+     * This checks every position in the area, reading each block state once. For an area queried
+     * repeatedly, track it with a {@link RedstoneNetwork} instead.
+     *
      * @param world the world to search
      * @param center the center position
      * @param radiusXZ the horizontal search radius
@@ -174,6 +203,30 @@ public final class RedstoneHelper {
      */
     public static @NotNull List<BlockPos> getPoweredPositions(@NotNull World world,
             @NotNull BlockPos center, int radiusXZ, int radiusY) {
+        return getPoweredPositions(world, center, radiusXZ, radiusY, null);
+    }
+
+    /**
+     * Gets all positions with redstone power within a certain distance, optionally reading only
+     * chunks that are already loaded.
+     *
+     * <p>
+     * Power at a position can depend on its neighbours, so in loaded-only mode a position is
+     * checked only when its own chunk and the chunks of its horizontal neighbours are loaded; the
+     * unloaded ones are recorded in {@code loadedOnly} so the caller can retry later.
+     *
+     * @param world the world to search
+     * @param center the center position
+     * @param radiusXZ the horizontal search radius
+     * @param radiusY the vertical search radius
+     * @param loadedOnly records the unloaded chunks that were skipped, or null to load chunks as
+     *        needed
+     * @return a list of powered positions
+     * @throws NullPointerException if world or center is null
+     */
+    public static @NotNull List<BlockPos> getPoweredPositions(@NotNull World world,
+            @NotNull BlockPos center, int radiusXZ, int radiusY,
+            @Nullable BlockSearchHelper.LoadedOnly loadedOnly) {
         Objects.requireNonNull(world);
         Objects.requireNonNull(center);
         List<BlockPos> powered = new ArrayList<>();
@@ -183,10 +236,35 @@ public final class RedstoneHelper {
         int maxY = center.getY() + radiusY;
         int minZ = center.getZ() - radiusXZ;
         int maxZ = center.getZ() + radiusXZ;
+        if (minX > maxX || minZ > maxZ) {
+            return powered;
+        }
+        PowerBuffer buffer = loadedOnly == null
+                ? PowerBuffer.create(world, minX, minY, minZ, maxX, maxY, maxZ)
+                : null;
+        if (buffer != null) {
+            for (int x = minX; x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    for (int z = minZ; z <= maxZ; z++) {
+                        if (buffer.getEmitted(x, y, z) > 0) {
+                            powered.add(new BlockPos(x, y, z));
+                        }
+                    }
+                }
+            }
+            return powered;
+        }
+        LoadedColumns columns = null;
+        if (loadedOnly != null) {
+            columns = new LoadedColumns(world, minX, minZ, maxX, maxZ, loadedOnly);
+        }
 
         for (int x = minX; x <= maxX; x++) {
             for (int y = minY; y <= maxY; y++) {
                 for (int z = minZ; z <= maxZ; z++) {
+                    if (columns != null && !columns.isReadable(x, z)) {
+                        continue;
+                    }
                     BlockPos pos = new BlockPos(x, y, z);
                     if (hasAnyPower(world, pos)) {
                         powered.add(pos);
@@ -200,6 +278,10 @@ public final class RedstoneHelper {
     /**
      * Gets all redstone wire positions within a certain distance.
      *
+     * <p>
+     * This checks every position in the area. For an area queried repeatedly, track it with a
+     * {@link RedstoneNetwork} instead.
+     *
      * @param world the world to search
      * @param center the center position
      * @param radiusXZ the horizontal search radius
@@ -259,4 +341,1005 @@ public final class RedstoneHelper {
     public static int getMaxPower() {
         return MAX_POWER;
     }
+
+    // ═══════════════════════════════════════════════════════════════════════════════════════════
+    // Batched power evaluation
+    // ═══════════════════════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Evaluates the emitted and received power of every position in a box in one pass.
+     *
+     * <p>
+     * Calling {@link #getRedstoneSignal} and {@link #getMaxAdjacentPower} per position reads each
+     * neighbour again for every position beside it, and a solid neighbour's six neighbours again
+     * on top of that. This reads every block state once into a buffer covering the box and two
+     * blocks around it, and works out each solid block's received strong power once, so
+     * positions share the work for the neighbours they have in common. Results match the
+     * per-position methods.
+     *
+     * @param view the world to read, usually a {@link World}; chunks are loaded as needed
+     * @param from one corner of the box
+     * @param to the opposite corner
+     * @return the power of every position in the box, ordered by x, then y, then z
+     * @throws IllegalArgumentException if the box holds more than about two million blocks
+     * @throws NullPointerException if any parameter is null
+     */
+    @NotNull
+    public static PowerSnapshot evaluatePower(@NotNull RedstoneView view, @NotNull BlockPos from,
+            @NotNull BlockPos to) {
+        Objects.requireNonNull(view);
+        int minX = Math.min(from.getX(), to.getX());
+        int minY = Math.min(from.getY(), to.getY());
+        int minZ = Math.min(from.getZ(), to.getZ());
+        int maxX = Math.max(from.getX(), to.getX());
+        int maxY = Math.max(from.getY(), to.getY());
+        int maxZ = Math.max(from.getZ(), to.getZ());
+        PowerBuffer buffer = PowerBuffer.create(view, minX, minY, minZ, maxX, maxY, maxZ);
+        if (buffer == null) {
+            throw new IllegalArgumentException("Box is too large to evaluate at once: " + from
+                    + " to " + to);
+        }
+        int sizeY = maxY - minY + 1;
+        int sizeZ = maxZ - minZ + 1;
+        int volume = (maxX - minX + 1) * sizeY * sizeZ;
+        byte[] emitted = new byte[volume];
+        byte[] received = new byte[volume];
+        int i = 0;
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    emitted[i] = (byte) buffer.getEmitted(x, y, z);
+                    received[i] = (byte) buffer.getReceived(x, y, z);
+                    i++;
+                }
+            }
+        }
+        return new PowerSnapshot(null, minX, minY, minZ, sizeY, sizeZ, emitted, received);
+    }
+
+    /**
+     * Evaluates the emitted and received power of a list of positions in one pass.
+     *
+     * <p>
+     * Works like {@link #evaluatePower(RedstoneView, BlockPos, BlockPos)} over the positions'
+     * bounding box, reading only the states the positions need. When the bounding box is too
+     * large to buffer, each position is evaluated on its own instead.
+     *
+     * @param view the world to read, usually a {@link World}; chunks are loaded as needed
+     * @param positions the positions to evaluate
+     * @return the power of each position, in the order given
+     * @throws NullPointerException if any parameter is null
+     */
+    @NotNull
+    public static PowerSnapshot evaluatePower(@NotNull RedstoneView view,
+            @NotNull Collection<BlockPos> positions) {
+        Objects.requireNonNull(view);
+        long[] packed = new long[positions.size()];
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        int maxZ = Integer.MIN_VALUE;
+        int count = 0;
+        for (BlockPos pos : positions) {
+            packed[count++] = pos.asLong();
+            minX = Math.min(minX, pos.getX());
+            minY = Math.min(minY, pos.getY());
+            minZ = Math.min(minZ, pos.getZ());
+            maxX = Math.max(maxX, pos.getX());
+            maxY = Math.max(maxY, pos.getY());
+            maxZ = Math.max(maxZ, pos.getZ());
+        }
+        byte[] emitted = new byte[count];
+        byte[] received = new byte[count];
+        PowerBuffer buffer = count == 0 ? null
+                : PowerBuffer.create(view, minX, minY, minZ, maxX, maxY, maxZ);
+        var cursor = new BlockPos.Mutable();
+        for (int i = 0; i < count; i++) {
+            int x = BlockPos.unpackLongX(packed[i]);
+            int y = BlockPos.unpackLongY(packed[i]);
+            int z = BlockPos.unpackLongZ(packed[i]);
+            if (buffer != null) {
+                emitted[i] = (byte) buffer.getEmitted(x, y, z);
+                received[i] = (byte) buffer.getReceived(x, y, z);
+                continue;
+            }
+            emitted[i] = (byte) Math.clamp(view.getEmittedRedstonePower(cursor.set(x, y, z), null),
+                    MIN_POWER, MAX_POWER);
+            int max = 0;
+            for (Direction direction : DIRECTIONS) {
+                cursor.set(x, y, z).move(direction);
+                max = Math.max(max, Math.clamp(view.getEmittedRedstonePower(cursor, direction),
+                        MIN_POWER, MAX_POWER));
+            }
+            received[i] = (byte) max;
+        }
+        return new PowerSnapshot(packed, 0, 0, 0, 0, 0, emitted, received);
+    }
+
+    /**
+     * The emitted and received power of a batch of positions, from
+     * {@link #evaluatePower(RedstoneView, BlockPos, BlockPos)} or
+     * {@link #evaluatePower(RedstoneView, Collection)}. A snapshot does not follow later changes.
+     */
+    public static final class PowerSnapshot {
+        // Null for a box, whose positions follow from the index
+        @Nullable
+        private final long[] positions;
+        private final int minX;
+        private final int minY;
+        private final int minZ;
+        private final int sizeY;
+        private final int sizeZ;
+        private final byte[] emitted;
+        private final byte[] received;
+
+        private PowerSnapshot(@Nullable long[] positions, int minX, int minY, int minZ, int sizeY,
+                int sizeZ, byte[] emitted, byte[] received) {
+            this.positions = positions;
+            this.minX = minX;
+            this.minY = minY;
+            this.minZ = minZ;
+            this.sizeY = sizeY;
+            this.sizeZ = sizeZ;
+            this.emitted = emitted;
+            this.received = received;
+        }
+
+        /**
+         * Gets the number of evaluated positions.
+         *
+         * @return the number of positions
+         */
+        public int size() {
+            return emitted.length;
+        }
+
+        /**
+         * Gets an evaluated position.
+         *
+         * @param index the position's index
+         * @return the position
+         */
+        @NotNull
+        public BlockPos getPos(int index) {
+            Objects.checkIndex(index, emitted.length);
+            if (positions != null) {
+                return BlockPos.fromLong(positions[index]);
+            }
+            return new BlockPos(minX + index / (sizeY * sizeZ), minY + index / sizeZ % sizeY,
+                    minZ + index % sizeZ);
+        }
+
+        /**
+         * Gets the redstone signal at a position, as {@link RedstoneHelper#getRedstoneSignal}.
+         *
+         * @param index the position's index
+         * @return the redstone power level (0-15)
+         */
+        public int getEmittedPower(int index) {
+            return emitted[index];
+        }
+
+        /**
+         * Gets the highest power from the blocks beside a position, as
+         * {@link RedstoneHelper#getMaxAdjacentPower}.
+         *
+         * @param index the position's index
+         * @return the maximum redstone power from adjacent blocks (0-15)
+         */
+        public int getReceivedPower(int index) {
+            return received[index];
+        }
+
+        /**
+         * Checks if a position has redstone power above a minimum threshold, as
+         * {@link RedstoneHelper#isPowered}.
+         *
+         * @param index the position's index
+         * @param minimumPower the minimum power level required (0-15)
+         * @return true if the signal at the position is >= minimumPower
+         */
+        public boolean isPowered(int index, int minimumPower) {
+            return emitted[index] >= Math.clamp(minimumPower, MIN_POWER, MAX_POWER);
+        }
+
+        /**
+         * Checks if a position is powered at all, as {@link RedstoneHelper#hasAnyPower}.
+         *
+         * @param index the position's index
+         * @return true if any redstone power is present
+         */
+        public boolean hasAnyPower(int index) {
+            return emitted[index] > 0;
+        }
+
+        /**
+         * Gets every evaluated position with redstone power, in evaluation order.
+         *
+         * @return a list of powered positions
+         */
+        @NotNull
+        public List<BlockPos> getPoweredPositions() {
+            List<BlockPos> powered = new ArrayList<>();
+            for (int i = 0; i < emitted.length; i++) {
+                if (emitted[i] > 0) {
+                    powered.add(getPos(i));
+                }
+            }
+            return powered;
+        }
+    }
+
+    /**
+     * Block states around a batch of positions, read once each, with the derived values the
+     * power rules need cached beside them. Mirrors {@link RedstoneView#getEmittedRedstonePower}:
+     * a block's weak power toward a direction, raised for a solid block to the strongest strong
+     * power any of its neighbours sends into it.
+     */
+    private static final class PowerBuffer {
+        private static final int MAX_VOLUME = 1 << 21;
+        // Received power reads a neighbour's received strong power, two blocks out
+        private static final int MARGIN = 2;
+        private static final byte UNKNOWN = 0;
+        private static final byte NOT_SOLID = 1;
+        private static final byte SOLID = 2;
+
+        private final RedstoneView view;
+        @Nullable
+        private final World world;
+        private final int minX;
+        private final int minY;
+        private final int minZ;
+        private final int sizeY;
+        private final int sizeZ;
+        private final BlockState[] states;
+        private final byte[] solid;
+        private final byte[] strongIn;
+        @Nullable
+        private final ChunkSection[][] columns;
+        private final int minChunkX;
+        private final int minChunkZ;
+        private final int chunksZ;
+        private final BlockPos.Mutable cursor = new BlockPos.Mutable();
+
+        private PowerBuffer(RedstoneView view, int minX, int minY, int minZ, int sizeX,
+                int sizeY, int sizeZ) {
+            this.view = view;
+            this.world = view instanceof World w ? w : null;
+            this.minX = minX;
+            this.minY = minY;
+            this.minZ = minZ;
+            this.sizeY = sizeY;
+            this.sizeZ = sizeZ;
+            int volume = sizeX * sizeY * sizeZ;
+            this.states = new BlockState[volume];
+            this.solid = new byte[volume];
+            this.strongIn = new byte[volume];
+            Arrays.fill(strongIn, (byte) -1);
+            this.minChunkX = minX >> 4;
+            this.minChunkZ = minZ >> 4;
+            this.chunksZ = ((minZ + sizeZ - 1) >> 4) - minChunkZ + 1;
+            this.columns = world == null ? null
+                    : new ChunkSection[(((minX + sizeX - 1) >> 4) - minChunkX + 1) * chunksZ][];
+        }
+
+        /**
+         * Creates a buffer for positions in a box.
+         *
+         * @return the buffer, or null if the box and its margin are too large to buffer
+         */
+        @Nullable
+        static PowerBuffer create(RedstoneView view, int minX, int minY, int minZ, int maxX,
+                int maxY, int maxZ) {
+            long sizeX = (long) maxX - minX + 1 + 2 * MARGIN;
+            long sizeY = (long) maxY - minY + 1 + 2 * MARGIN;
+            long sizeZ = (long) maxZ - minZ + 1 + 2 * MARGIN;
+            if (sizeX * sizeY * sizeZ > MAX_VOLUME) {
+                return null;
+            }
+            return new PowerBuffer(view, minX - MARGIN, minY - MARGIN, minZ - MARGIN, (int) sizeX,
+                    (int) sizeY, (int) sizeZ);
+        }
+
+        /**
+         * Gets the redstone signal at a position, as {@link RedstoneHelper#getRedstoneSignal}.
+         */
+        int getEmitted(int x, int y, int z) {
+            return Math.clamp(getEmittedToward(x, y, z, null), MIN_POWER, MAX_POWER);
+        }
+
+        /**
+         * Gets the highest power from the blocks beside a position, as
+         * {@link RedstoneHelper#getMaxAdjacentPower}.
+         */
+        int getReceived(int x, int y, int z) {
+            int max = 0;
+            for (Direction direction : DIRECTIONS) {
+                max = Math.max(max, Math.clamp(getEmittedToward(x + direction.getOffsetX(),
+                        y + direction.getOffsetY(), z + direction.getOffsetZ(), direction),
+                        MIN_POWER, MAX_POWER));
+            }
+            return max;
+        }
+
+        private int getEmittedToward(int x, int y, int z, @Nullable Direction direction) {
+            int index = index(x, y, z);
+            BlockState state = getState(index, x, y, z);
+            int weak = state.emitsRedstonePower()
+                    ? state.getWeakRedstonePower(view, cursor.set(x, y, z), direction)
+                    : 0;
+            if (solid[index] == UNKNOWN) {
+                solid[index] = state.isSolidBlock(view, cursor.set(x, y, z)) ? SOLID : NOT_SOLID;
+            }
+            return solid[index] == SOLID ? Math.max(weak, getStrongIn(index, x, y, z)) : weak;
+        }
+
+        /**
+         * Gets the strongest strong power any neighbour sends into a position, worked out once
+         * and shared by every position beside it.
+         */
+        private int getStrongIn(int index, int x, int y, int z) {
+            if (strongIn[index] < 0) {
+                int max = 0;
+                for (Direction direction : DIRECTIONS) {
+                    int nx = x + direction.getOffsetX();
+                    int ny = y + direction.getOffsetY();
+                    int nz = z + direction.getOffsetZ();
+                    BlockState neighbour = getState(index(nx, ny, nz), nx, ny, nz);
+                    if (neighbour.emitsRedstonePower()) {
+                        max = Math.max(max, neighbour.getStrongRedstonePower(view,
+                                cursor.set(nx, ny, nz), direction));
+                    }
+                    if (max >= MAX_POWER) {
+                        break;
+                    }
+                }
+                strongIn[index] = (byte) Math.min(max, Byte.MAX_VALUE);
+            }
+            return strongIn[index];
+        }
+
+        private int index(int x, int y, int z) {
+            return ((x - minX) * sizeY + (y - minY)) * sizeZ + (z - minZ);
+        }
+
+        private BlockState getState(int index, int x, int y, int z) {
+            BlockState state = states[index];
+            if (state == null) {
+                state = world != null ? readSection(world, x, y, z)
+                        : view.getBlockState(cursor.set(x, y, z));
+                states[index] = state;
+            }
+            return state;
+        }
+
+        /**
+         * Reads a state straight from its chunk section, looking each chunk up once.
+         */
+        private BlockState readSection(World world, int x, int y, int z) {
+            if (y < world.getBottomY() || y > world.getTopYInclusive()) {
+                return Blocks.VOID_AIR.getDefaultState();
+            }
+            int column = ((x >> 4) - minChunkX) * chunksZ + ((z >> 4) - minChunkZ);
+            ChunkSection[] sections = columns[column];
+            if (sections == null) {
+                sections = world.getChunk(x >> 4, z >> 4).getSectionArray();
+                columns[column] = sections;
+            }
+            return sections[world.getSectionIndex(y)].getBlockState(x & 15, y & 15, z & 15);
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════════════════════════
+    // Redstone networks
+    // ═══════════════════════════════════════════════════════════════════════════════════════════
+
+    /**
+     * A live model of the redstone in one area of a server world, for machines that query the
+     * same area every few ticks.
+     *
+     * <p>
+     * The area's components are tracked in a graph: every block that can emit power, plus all
+     * redstone wire, linked to the components beside it and wire to the wire one step up or down,
+     * and grouped into connected circuits. Only components and the blocks next to them can carry
+     * power, so the network caches the signal of just those positions. A block state change inside
+     * the area updates the graph and marks the changed position and its neighbours stale; stale
+     * positions are read again on the next query, so queries cost a lookup per changed block
+     * instead of a scan of the area.
+     *
+     * <p>
+     * Components with a block entity, such as comparators, can change their output without a
+     * state change, so they and their neighbours are re-read on every query. Circuits are cut at
+     * the edge of the area. The first query scans the area once and loads its chunks; after that,
+     * stale positions in unloaded chunks keep their last value until the chunk is loaded again.
+     * Networks must be used on the server thread, and are closed automatically when their world
+     * unloads.
+     */
+    public static final class RedstoneNetwork {
+        private final ServerWorld world;
+        private final int minX;
+        private final int minY;
+        private final int minZ;
+        private final int maxX;
+        private final int maxY;
+        private final int maxZ;
+        // Components are tracked one block past the area, since they power positions inside it
+        private final CircuitGraph graph = new CircuitGraph();
+        private final LongOpenHashSet volatileComponents = new LongOpenHashSet();
+        private final Long2ByteOpenHashMap power = new Long2ByteOpenHashMap();
+        private final LongOpenHashSet stale = new LongOpenHashSet();
+        private final LongOpenHashSet powered = new LongOpenHashSet();
+        private final BlockPos.Mutable cursor = new BlockPos.Mutable();
+        private boolean built;
+        private boolean closed;
+
+        private RedstoneNetwork(ServerWorld world, int minX, int minY, int minZ, int maxX,
+                int maxY, int maxZ) {
+            this.world = world;
+            this.minX = minX;
+            this.minY = minY;
+            this.minZ = minZ;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.maxZ = maxZ;
+        }
+
+        /**
+         * Creates and registers a network for the area around a center position.
+         *
+         * @param world the world to track
+         * @param center the center position
+         * @param radiusXZ the horizontal radius
+         * @param radiusY the vertical radius
+         * @return a new network, live until {@link #close()}
+         * @throws IllegalArgumentException if a radius is negative
+         */
+        @NotNull
+        public static RedstoneNetwork track(@NotNull ServerWorld world, @NotNull BlockPos center,
+                int radiusXZ, int radiusY) {
+            if (radiusXZ < 0 || radiusY < 0) {
+                throw new IllegalArgumentException(
+                        "Radius must not be negative: " + radiusXZ + ", " + radiusY);
+            }
+            return track(world, center.add(-radiusXZ, -radiusY, -radiusXZ),
+                    center.add(radiusXZ, radiusY, radiusXZ));
+        }
+
+        /**
+         * Creates and registers a network for a cubic area.
+         *
+         * @param world the world to track
+         * @param from one corner of the area
+         * @param to the opposite corner
+         * @return a new network, live until {@link #close()}
+         */
+        @NotNull
+        public static RedstoneNetwork track(@NotNull ServerWorld world, @NotNull BlockPos from,
+                @NotNull BlockPos to) {
+            Objects.requireNonNull(world);
+            var network = new RedstoneNetwork(world, Math.min(from.getX(), to.getX()),
+                    Math.min(from.getY(), to.getY()), Math.min(from.getZ(), to.getZ()),
+                    Math.max(from.getX(), to.getX()), Math.max(from.getY(), to.getY()),
+                    Math.max(from.getZ(), to.getZ()));
+            synchronized (NETWORK_LOCK) {
+                RedstoneNetwork[] current = networks;
+                RedstoneNetwork[] updated = Arrays.copyOf(current, current.length + 1);
+                updated[current.length] = network;
+                networks = updated;
+            }
+            return network;
+        }
+
+        /**
+         * Stops maintaining this network and releases its data.
+         */
+        public void close() {
+            synchronized (NETWORK_LOCK) {
+                networks = Arrays.stream(networks).filter(network -> network != this)
+                        .toArray(RedstoneNetwork[]::new);
+            }
+            closed = true;
+            built = false;
+            graph.clear();
+            volatileComponents.clear();
+            power.clear();
+            stale.clear();
+            powered.clear();
+        }
+
+        /**
+         * Gets all positions in the area with redstone power, in no particular order.
+         *
+         * @return a list of powered positions
+         * @see RedstoneHelper#getPoweredPositions(World, BlockPos, int, int)
+         */
+        @NotNull
+        public List<BlockPos> getPoweredPositions() {
+            refresh();
+            return toPositions(powered.iterator(), powered.size());
+        }
+
+        /**
+         * Gets all redstone wire positions in the area, in no particular order.
+         *
+         * @return a list of redstone wire positions
+         * @see RedstoneHelper#getRedstoneWires(World, BlockPos, int, int)
+         */
+        @NotNull
+        public List<BlockPos> getRedstoneWires() {
+            refresh();
+            List<BlockPos> results = new ArrayList<>();
+            LongIterator iterator = graph.wireIterator();
+            while (iterator.hasNext()) {
+                long packed = iterator.nextLong();
+                if (contains(packed)) {
+                    results.add(BlockPos.fromLong(packed));
+                }
+            }
+            return results;
+        }
+
+        /**
+         * Gets the cached redstone signal at a position. Positions outside the area are read from
+         * the world.
+         *
+         * @param pos the position
+         * @return the redstone power level (0-15)
+         * @see RedstoneHelper#getRedstoneSignal(World, BlockPos)
+         */
+        public int getPower(@NotNull BlockPos pos) {
+            if (!contains(pos)) {
+                return getRedstoneSignal(world, pos);
+            }
+            refresh();
+            return power.get(pos.asLong());
+        }
+
+        /**
+         * Gets the positions of the circuit a component belongs to: the components connected to
+         * it inside the area, including itself.
+         *
+         * @param pos a component position
+         * @return the circuit's positions, or an empty list if the position is not a component
+         */
+        @NotNull
+        public List<BlockPos> getCircuit(@NotNull BlockPos pos) {
+            refresh();
+            LongOpenHashSet members = graph.getCircuit(pos.asLong());
+            if (members == null) {
+                return List.of();
+            }
+            List<BlockPos> results = new ArrayList<>();
+            LongIterator iterator = members.iterator();
+            while (iterator.hasNext()) {
+                long packed = iterator.nextLong();
+                if (contains(packed)) {
+                    results.add(BlockPos.fromLong(packed));
+                }
+            }
+            return results;
+        }
+
+        /**
+         * Gets the highest cached signal across the circuit a component belongs to.
+         *
+         * @param pos a component position
+         * @return the circuit's highest power level (0-15), or 0 if the position is not a
+         *         component
+         */
+        public int getCircuitPower(@NotNull BlockPos pos) {
+            refresh();
+            LongOpenHashSet members = graph.getCircuit(pos.asLong());
+            if (members == null) {
+                return 0;
+            }
+            int max = 0;
+            LongIterator iterator = members.iterator();
+            while (iterator.hasNext() && max < MAX_POWER) {
+                max = Math.max(max, power.get(iterator.nextLong()));
+            }
+            return max;
+        }
+
+        /**
+         * Checks whether a position lies in this network's area.
+         *
+         * @param pos the position
+         * @return true if the position is tracked
+         */
+        public boolean contains(@NotNull BlockPos pos) {
+            return contains(pos.getX(), pos.getY(), pos.getZ(), 0);
+        }
+
+        private boolean contains(long packed) {
+            return contains(BlockPos.unpackLongX(packed), BlockPos.unpackLongY(packed),
+                    BlockPos.unpackLongZ(packed), 0);
+        }
+
+        private boolean contains(int x, int y, int z, int margin) {
+            return x >= minX - margin && x <= maxX + margin && y >= minY - margin
+                    && y <= maxY + margin && z >= minZ - margin && z <= maxZ + margin;
+        }
+
+        /**
+         * Builds the graph on first use, then re-reads the stale positions whose chunks are
+         * loaded.
+         */
+        private void refresh() {
+            if (closed) {
+                throw new IllegalStateException("Redstone network is closed");
+            }
+            if (!built) {
+                build();
+            }
+            LongIterator volatiles = volatileComponents.iterator();
+            while (volatiles.hasNext()) {
+                markAround(volatiles.nextLong());
+            }
+            LongIterator iterator = stale.iterator();
+            while (iterator.hasNext()) {
+                long packed = iterator.nextLong();
+                int x = BlockPos.unpackLongX(packed);
+                int z = BlockPos.unpackLongZ(packed);
+                if (!world.getChunkManager().isChunkLoaded(x >> 4, z >> 4)) {
+                    continue;
+                }
+                iterator.remove();
+                int signal = getRedstoneSignal(world, cursor.set(packed));
+                power.put(packed, (byte) signal);
+                if (signal > 0) {
+                    powered.add(packed);
+                } else {
+                    powered.remove(packed);
+                }
+            }
+        }
+
+        private void build() {
+            built = true;
+            LongArrayList found = BlockSearchHelper.findInBoxPacked(world,
+                    new BlockPos(minX - 1, minY - 1, minZ - 1),
+                    new BlockPos(maxX + 1, maxY + 1, maxZ + 1), RedstoneHelper::isComponent);
+            for (int i = 0; i < found.size(); i++) {
+                long packed = found.getLong(i);
+                addComponent(packed, world.getBlockState(cursor.set(packed)));
+            }
+        }
+
+        /**
+         * Applies one block state change inside or next to the area.
+         */
+        private void update(BlockPos pos, BlockState newState) {
+            if (!built || !contains(pos.getX(), pos.getY(), pos.getZ(), 1)) {
+                return;
+            }
+            long packed = pos.asLong();
+            boolean was = graph.isComponent(packed);
+            boolean is = isComponent(newState);
+            boolean wire = newState.getBlock() instanceof RedstoneWireBlock;
+            if (was && is && graph.isWire(packed) == wire) {
+                // Same links, such as wire changing its power level: only the signal changed
+                if (newState.hasBlockEntity()) {
+                    volatileComponents.add(packed);
+                } else {
+                    volatileComponents.remove(packed);
+                }
+            } else {
+                if (was) {
+                    removeComponent(packed);
+                }
+                if (is) {
+                    addComponent(packed, newState);
+                }
+            }
+            markAround(packed);
+        }
+
+        private void addComponent(long packed, BlockState state) {
+            graph.add(packed, state.getBlock() instanceof RedstoneWireBlock);
+            if (state.hasBlockEntity()) {
+                volatileComponents.add(packed);
+            }
+            markAround(packed);
+        }
+
+        private void removeComponent(long packed) {
+            graph.remove(packed);
+            volatileComponents.remove(packed);
+            markAround(packed);
+        }
+
+        /**
+         * Marks a position and its six neighbours stale, dropping the ones that can no longer
+         * carry power.
+         */
+        private void markAround(long packed) {
+            mark(packed);
+            for (Direction direction : DIRECTIONS) {
+                mark(BlockPos.offset(packed, direction));
+            }
+        }
+
+        private void mark(long packed) {
+            if (!contains(packed)) {
+                return;
+            }
+            if (canCarryPower(packed)) {
+                stale.add(packed);
+            } else {
+                stale.remove(packed);
+                power.remove(packed);
+                powered.remove(packed);
+            }
+        }
+
+        private boolean canCarryPower(long packed) {
+            if (graph.isComponent(packed)) {
+                return true;
+            }
+            for (Direction direction : DIRECTIONS) {
+                if (graph.isComponent(BlockPos.offset(packed, direction))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static List<BlockPos> toPositions(LongIterator iterator, int size) {
+            List<BlockPos> results = new ArrayList<>(size);
+            while (iterator.hasNext()) {
+                results.add(BlockPos.fromLong(iterator.nextLong()));
+            }
+            return results;
+        }
+    }
+
+    /**
+     * The components of a {@link RedstoneNetwork} and the circuits they form. Every component is
+     * linked to the components beside it, and wire also to the wire one step up or down in each
+     * horizontal direction; circuits are the connected groups, merged and split as components are
+     * added and removed.
+     */
+    static final class CircuitGraph {
+        private final LongOpenHashSet components = new LongOpenHashSet();
+        private final LongOpenHashSet wires = new LongOpenHashSet();
+        private final Long2ObjectOpenHashMap<Circuit> circuits = new Long2ObjectOpenHashMap<>();
+
+        boolean isComponent(long packed) {
+            return components.contains(packed);
+        }
+
+        boolean isWire(long packed) {
+            return wires.contains(packed);
+        }
+
+        LongIterator wireIterator() {
+            return wires.iterator();
+        }
+
+        /**
+         * Gets the members of a component's circuit, including itself. The set must not be
+         * modified.
+         *
+         * @return the circuit's members, or null if the position is not a component
+         */
+        @Nullable
+        LongOpenHashSet getCircuit(long packed) {
+            Circuit circuit = circuits.get(packed);
+            return circuit == null ? null : circuit.members;
+        }
+
+        /**
+         * Adds a component that is not in the graph yet.
+         */
+        void add(long packed, boolean wire) {
+            components.add(packed);
+            if (wire) {
+                wires.add(packed);
+            }
+
+            // Join the circuits of every linked component, folding the smaller ones into the
+            // largest so each merge moves as few positions as possible
+            Circuit[] joined = {new Circuit()};
+            forEachLink(packed, wire, neighbour -> {
+                Circuit other = circuits.get(neighbour);
+                if (other == null || other == joined[0]) {
+                    return;
+                }
+                Circuit target = joined[0];
+                if (other.members.size() > target.members.size()) {
+                    target = other;
+                    other = joined[0];
+                }
+                LongIterator moved = other.members.iterator();
+                while (moved.hasNext()) {
+                    long member = moved.nextLong();
+                    target.members.add(member);
+                    circuits.put(member, target);
+                }
+                joined[0] = target;
+            });
+            joined[0].members.add(packed);
+            circuits.put(packed, joined[0]);
+        }
+
+        /**
+         * Removes a component that is in the graph.
+         */
+        void remove(long packed) {
+            components.remove(packed);
+            boolean wire = wires.remove(packed);
+            Circuit circuit = circuits.remove(packed);
+            circuit.members.remove(packed);
+
+            // The removed component may have been the only link between parts of its circuit.
+            // Flood from each former neighbour still in it and split off what it reaches, until
+            // the rest of the circuit is a single part.
+            forEachLink(packed, wire, neighbour -> {
+                if (circuits.get(neighbour) != circuit) {
+                    return;
+                }
+                LongOpenHashSet reached = flood(neighbour, circuit);
+                if (reached.size() == circuit.members.size()) {
+                    return;
+                }
+                Circuit part = new Circuit();
+                LongIterator iterator = reached.iterator();
+                while (iterator.hasNext()) {
+                    long member = iterator.nextLong();
+                    circuit.members.remove(member);
+                    part.members.add(member);
+                    circuits.put(member, part);
+                }
+            });
+        }
+
+        void clear() {
+            components.clear();
+            wires.clear();
+            circuits.clear();
+        }
+
+        /**
+         * Collects the members of a circuit reachable from one of them.
+         */
+        private LongOpenHashSet flood(long start, Circuit circuit) {
+            LongOpenHashSet reached = new LongOpenHashSet();
+            LongArrayList queue = new LongArrayList();
+            reached.add(start);
+            queue.add(start);
+            for (int head = 0; head < queue.size(); head++) {
+                long current = queue.getLong(head);
+                forEachLink(current, wires.contains(current), neighbour -> {
+                    if (circuits.get(neighbour) == circuit && reached.add(neighbour)) {
+                        queue.add(neighbour);
+                    }
+                });
+            }
+            return reached;
+        }
+
+        /**
+         * Visits the component positions linked to a position: the six beside it and, for wire,
+         * wire one step up or down in each horizontal direction.
+         */
+        private void forEachLink(long packed, boolean wire, LongConsumer consumer) {
+            for (Direction direction : DIRECTIONS) {
+                long neighbour = BlockPos.offset(packed, direction);
+                if (components.contains(neighbour)) {
+                    consumer.accept(neighbour);
+                }
+            }
+            if (!wire) {
+                return;
+            }
+            for (Direction direction : HORIZONTAL) {
+                long side = BlockPos.offset(packed, direction);
+                long up = BlockPos.offset(side, Direction.UP);
+                long down = BlockPos.offset(side, Direction.DOWN);
+                if (wires.contains(up)) {
+                    consumer.accept(up);
+                }
+                if (wires.contains(down)) {
+                    consumer.accept(down);
+                }
+            }
+        }
+
+        /**
+         * One connected group of components.
+         */
+        private static final class Circuit {
+            private final LongOpenHashSet members = new LongOpenHashSet();
+        }
+    }
+
+    /**
+     * Closes the {@link RedstoneNetwork}s of a world when it unloads.
+     *
+     * <p>
+     * Called once by the mod initializer.
+     */
+    public static void initializeEventListeners() {
+        ServerWorldEvents.UNLOAD.register((server, world) -> {
+            for (RedstoneNetwork network : networks) {
+                if (network.world == world) {
+                    network.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Updates every {@link RedstoneNetwork} after a block state change. Called for each change
+     * made through {@code World.setBlockState} on the server; code that writes chunk sections
+     * directly must call it too.
+     *
+     * @param world the world the block changed in
+     * @param pos the changed position
+     * @param oldState the state before the change
+     * @param newState the state after the change
+     */
+    public static void onBlockStateChanged(@NotNull ServerWorld world, @NotNull BlockPos pos,
+            @NotNull BlockState oldState, @NotNull BlockState newState) {
+        RedstoneNetwork[] current = networks;
+        for (RedstoneNetwork network : current) {
+            if (network.world == world) {
+                network.update(pos, newState);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a state is part of a redstone circuit. Wire is matched by type because it
+     * reports that it emits no power while it recalculates its own signal.
+     */
+    private static boolean isComponent(BlockState state) {
+        return state.emitsRedstonePower() || state.getBlock() instanceof RedstoneWireBlock;
+    }
+
+    /**
+     * Loaded state of the chunk columns around a search area, looked up at most once per chunk.
+     */
+    private static final class LoadedColumns {
+        private static final byte UNKNOWN = 0;
+        private static final byte LOADED = 1;
+        private static final byte UNLOADED = 2;
+
+        private final World world;
+        private final BlockSearchHelper.LoadedOnly loadedOnly;
+        private final int minChunkX;
+        private final int minChunkZ;
+        private final int sizeZ;
+        private final byte[] status;
+
+        LoadedColumns(World world, int minX, int minZ, int maxX, int maxZ,
+                BlockSearchHelper.LoadedOnly loadedOnly) {
+            this.world = world;
+            this.loadedOnly = loadedOnly;
+            this.minChunkX = (minX - 1) >> 4;
+            this.minChunkZ = (minZ - 1) >> 4;
+            int sizeX = ((maxX + 1) >> 4) - minChunkX + 1;
+            this.sizeZ = ((maxZ + 1) >> 4) - minChunkZ + 1;
+            this.status = new byte[sizeX * sizeZ];
+        }
+
+        /**
+         * Checks that a column and its four horizontal neighbours lie in loaded chunks.
+         */
+        boolean isReadable(int x, int z) {
+            return isLoaded(x, z) && isLoaded(x - 1, z) && isLoaded(x + 1, z)
+                    && isLoaded(x, z - 1) && isLoaded(x, z + 1);
+        }
+
+        private boolean isLoaded(int x, int z) {
+            int index = ((x >> 4) - minChunkX) * sizeZ + ((z >> 4) - minChunkZ);
+            if (status[index] == UNKNOWN) {
+                status[index] = loadedOnly.isLoaded(world, x >> 4, z >> 4) ? LOADED : UNLOADED;
+            }
+            return status[index] == LOADED;
+        }
+    }
 }
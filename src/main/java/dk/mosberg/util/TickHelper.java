@@ -0,0 +1,187 @@
+package dk.mosberg.util;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Consumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerWorldEvents;
+import net.minecraft.server.world.ServerWorld;
+
+/**
+ * Runs work at the end of server or world ticks, with bindings that can be removed.
+ *
+ * <p>
+ * Fabric listeners cannot be unregistered, so anything a listener captures stays reachable for
+ * the life of the server. This class registers one tick listener and one world-unload listener
+ * from {@link #initializeEventListeners()}, and those dispatch to a registry of
+ * {@link Binding}s. Unbinding removes a binding from the registry, and a world's bindings are
+ * removed when it unloads, so bound work and the worlds it references can be reclaimed.
+ *
+ * <pre>
+ * TickHelper.Binding binding = TickHelper.bindToWorldTicks(world, () -&gt; grid.rebuild(), null);
+ * // later
+ * binding.unbind();
+ * </pre>
+ *
+ * @since 1.0.0
+ */
+public final class TickHelper {
+    private static final Object LOCK = new Object();
+    private static volatile Binding[] bindings = new Binding[0];
+
+    private TickHelper() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Runs work at the end of every server tick until the binding is removed.
+     *
+     * @param tick the work to run
+     * @param onWorldUnload receives each world that unloads while bound, or null
+     * @return the binding
+     */
+    @NotNull
+    public static Binding bindToServerTicks(@NotNull Runnable tick,
+            @Nullable Consumer<ServerWorld> onWorldUnload) {
+        return add(new Binding(null, Objects.requireNonNull(tick), onWorldUnload, null));
+    }
+
+    /**
+     * Runs work at the end of each of a world's ticks until the binding is removed or the world
+     * unloads.
+     *
+     * @param world the world whose ticks to follow
+     * @param tick the work to run
+     * @param onUnload runs once if the world unloads while bound, after the binding is removed,
+     *        or null
+     * @return the binding
+     */
+    @NotNull
+    public static Binding bindToWorldTicks(@NotNull ServerWorld world, @NotNull Runnable tick,
+            @Nullable Runnable onUnload) {
+        return add(new Binding(Objects.requireNonNull(world), Objects.requireNonNull(tick), null,
+                onUnload));
+    }
+
+    /**
+     * Registers the tick and world-unload listeners that drive every binding. Called once from
+     * the mod initializer.
+     */
+    public static void initializeEventListeners() {
+        ServerTickEvents.END_SERVER_TICK.register(server -> onServerTick());
+        ServerTickEvents.END_WORLD_TICK.register(TickHelper::onWorldTick);
+        ServerWorldEvents.UNLOAD.register((server, world) -> onWorldUnload(world));
+    }
+
+    /**
+     * Runs every server-tick binding.
+     */
+    static void onServerTick() {
+        for (Binding binding : bindings) {
+            if (binding.bound && binding.world == null) {
+                binding.run(binding.tick);
+            }
+        }
+    }
+
+    /**
+     * Runs every binding for a world's ticks.
+     *
+     * @param world the world that ticked
+     */
+    static void onWorldTick(ServerWorld world) {
+        for (Binding binding : bindings) {
+            if (binding.bound && binding.world == world) {
+                binding.run(binding.tick);
+            }
+        }
+    }
+
+    /**
+     * Removes a world's bindings and tells every binding that cares that the world unloaded.
+     *
+     * @param world the world that unloaded
+     */
+    static void onWorldUnload(ServerWorld world) {
+        for (Binding binding : bindings) {
+            if (!binding.bound) {
+                continue;
+            }
+            if (binding.world == null && binding.onWorldUnload != null) {
+                binding.run(() -> binding.onWorldUnload.accept(world));
+            } else if (binding.world == world) {
+                binding.unbind();
+                if (binding.onUnload != null) {
+                    binding.run(binding.onUnload);
+                }
+            }
+        }
+    }
+
+    private static Binding add(Binding binding) {
+        synchronized (LOCK) {
+            Binding[] updated = Arrays.copyOf(bindings, bindings.length + 1);
+            updated[bindings.length] = binding;
+            bindings = updated;
+        }
+        return binding;
+    }
+
+    /**
+     * Work bound to server or world ticks by {@link TickHelper}.
+     */
+    public static final class Binding {
+        // Null for server ticks
+        @Nullable
+        private final ServerWorld world;
+        private final Runnable tick;
+        @Nullable
+        private final Consumer<ServerWorld> onWorldUnload;
+        @Nullable
+        private final Runnable onUnload;
+        private volatile boolean bound = true;
+
+        private Binding(@Nullable ServerWorld world, Runnable tick,
+                @Nullable Consumer<ServerWorld> onWorldUnload, @Nullable Runnable onUnload) {
+            this.world = world;
+            this.tick = tick;
+            this.onWorldUnload = onWorldUnload;
+            this.onUnload = onUnload;
+        }
+
+        /**
+         * Checks whether the binding still runs. A binding stops when it is unbound or when its
+         * world unloads.
+         *
+         * @return true if still bound
+         */
+        public boolean isBound() {
+            return bound;
+        }
+
+        /**
+         * Stops running the bound work and releases it. Does nothing if already unbound.
+         */
+        public void unbind() {
+            synchronized (LOCK) {
+                if (!bound) {
+                    return;
+                }
+                bound = false;
+                bindings = Arrays.stream(bindings).filter(binding -> binding != this)
+                        .toArray(Binding[]::new);
+            }
+        }
+
+        private void run(Runnable work) {
+            try {
+                work.run();
+            } catch (Exception e) {
+                LogHelper.getLogger("moddinghelperapi", "TickHelper")
+                        .error("Error in tick binding: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package dk.mosberg.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.chunk.PalettedContainer;
+
+/**
+ * Unit tests for {@link BlockSearchHelper} search structures, checked against brute force.
+ *
+ * @since 1.0.0
+ */
+class BlockSearchHelperTest {
+    private static final int MAX = BlockSearchHelper.MAX_SPIRAL_RADIUS;
+    // A block index reads its world only to index a chunk on first use, so once every queried
+    // chunk is primed through indexChunk no world is needed
+    private static final ServerWorld NO_WORLD = null;
+
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+    }
+
+    private static int distSq(int offset) {
+        int x = BlockSearchHelper.SpiralTable.offsetX(offset);
+        int y = BlockSearchHelper.SpiralTable.offsetY(offset);
+        int z = BlockSearchHelper.SpiralTable.offsetZ(offset);
+        return x * x + y * y + z * z;
+    }
+
+    private static int key(int x, int y, int z) {
+        return ((x + MAX) * 128 + (y + MAX)) * 128 + (z + MAX);
+    }
+
+    private static long distSq(BlockPos a, BlockPos b) {
+        long dx = a.getX() - b.getX();
+        long dy = a.getY() - b.getY();
+        long dz = a.getZ() - b.getZ();
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static Set<Long> packed(LongArrayList positions) {
+        Set<Long> set = new HashSet<>();
+        for (int i = 0; i < positions.size(); i++) {
+            assertTrue(set.add(positions.getLong(i)));
+        }
+        return set;
+    }
+
+    @Test
+    void testSpiralOffsetsAreOrderedByDistance() {
+        int[] offsets = BlockSearchHelper.SpiralTable.OFFSETS;
+        assertEquals(0, distSq(offsets[0]));
+        for (int i = 1; i < offsets.length; i++) {
+            assertTrue(distSq(offsets[i - 1]) <= distSq(offsets[i]), "offset " + i);
+        }
+    }
+
+    @Test
+    void testSpiralShellEndCountsEveryOffsetInRadius() {
+        int[] offsets = BlockSearchHelper.SpiralTable.OFFSETS;
+        int[] shellEnd = BlockSearchHelper.SpiralTable.SHELL_END;
+        assertEquals(MAX + 1, shellEnd.length);
+        assertEquals(offsets.length, shellEnd[MAX]);
+        for (int r = 0; r <= MAX; r++) {
+            int expected = 0;
+            for (int x = -r; x <= r; x++) {
+                for (int y = -r; y <= r; y++) {
+                    for (int z = -r; z <= r; z++) {
+                        if (x * x + y * y + z * z <= r * r) {
+                            expected++;
+                        }
+                    }
+                }
+            }
+            assertEquals(expected, shellEnd[r], "radius " + r);
+            assertTrue(distSq(offsets[shellEnd[r] - 1]) <= r * r);
+            if (r < MAX) {
+                assertTrue(distSq(offsets[shellEnd[r]]) > r * r);
+            }
+        }
+    }
+
+    @Test
+    void testSpiralOffsetsCoverTheBallOnce() {
+        Set<Integer> seen = new HashSet<>();
+        for (int offset : BlockSearchHelper.SpiralTable.OFFSETS) {
+            int x = BlockSearchHelper.SpiralTable.offsetX(offset);
+            int y = BlockSearchHelper.SpiralTable.offsetY(offset);
+            int z = BlockSearchHelper.SpiralTable.offsetZ(offset);
+            assertTrue(Math.abs(x) <= MAX && Math.abs(y) <= MAX && Math.abs(z) <= MAX);
+            assertTrue(seen.add(key(x, y, z)));
+        }
+        assertTrue(seen.contains(key(-MAX, 0, 0)));
+        assertTrue(seen.contains(key(0, 0, MAX)));
+    }
+
+    @Test
+    void testBlockIndexQueriesMatchBruteForce() {
+        var random = new Random(14);
+        var index = BlockSearchHelper.BlockIndex.track(Blocks.DIAMOND_ORE);
+        try {
+            Map<Long, LongOpenHashSet> chunks = new HashMap<>();
+            List<BlockPos> placed = new ArrayList<>();
+            for (int i = 0; i < 3_000; i++) {
+                var pos = new BlockPos(random.nextInt(160) - 80, random.nextInt(96) - 48,
+                        random.nextInt(160) - 80);
+                long chunkPos = ChunkPos.toLong(pos.getX() >> 4, pos.getZ() >> 4);
+                if (chunks.computeIfAbsent(chunkPos, key -> new LongOpenHashSet())
+                        .add(pos.asLong())) {
+                    placed.add(pos);
+                }
+            }
+            for (int chunkX = -8; chunkX < 8; chunkX++) {
+                for (int chunkZ = -8; chunkZ < 8; chunkZ++) {
+                    long chunkPos = ChunkPos.toLong(chunkX, chunkZ);
+                    index.indexChunk(NO_WORLD, chunkPos, chunks.get(chunkPos));
+                }
+            }
+            assertEquals(placed.size(), index.size(NO_WORLD));
+
+            for (int query = 0; query < 200; query++) {
+                var center = new BlockPos(random.nextInt(120) - 60, random.nextInt(96) - 48,
+                        random.nextInt(120) - 60);
+                int radius = random.nextInt(41);
+                var corner = center.add(random.nextInt(41) - 20, random.nextInt(41) - 20,
+                        random.nextInt(41) - 20);
+                Set<Long> inRadius = new HashSet<>();
+                Set<Long> inBox = new HashSet<>();
+                long nearestSq = Long.MAX_VALUE;
+                for (BlockPos pos : placed) {
+                    long distSq = distSq(center, pos);
+                    if (distSq <= (long) radius * radius) {
+                        inRadius.add(pos.asLong());
+                        nearestSq = Math.min(nearestSq, distSq);
+                    }
+                    if (pos.getX() >= Math.min(center.getX(), corner.getX())
+                            && pos.getX() <= Math.max(center.getX(), corner.getX())
+                            && pos.getY() >= Math.min(center.getY(), corner.getY())
+                            && pos.getY() <= Math.max(center.getY(), corner.getY())
+                            && pos.getZ() >= Math.min(center.getZ(), corner.getZ())
+                            && pos.getZ() <= Math.max(center.getZ(), corner.getZ())) {
+                        inBox.add(pos.asLong());
+                    }
+                }
+
+                assertEquals(inRadius, packed(
+                        index.findInRadiusPacked(NO_WORLD, center, radius, new LongArrayList())));
+                assertEquals(inRadius.size(), index.countInRadius(NO_WORLD, center, radius));
+                BlockPos nearest = index.findNearest(NO_WORLD, center, radius);
+                if (inRadius.isEmpty()) {
+                    assertNull(nearest);
+                } else {
+                    assertEquals(nearestSq, distSq(center, nearest));
+                }
+                var boxed = new LongArrayList();
+                index.findInBox(NO_WORLD, center, corner).forEach(pos -> boxed.add(pos.asLong()));
+                assertEquals(inBox, packed(boxed));
+            }
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    void testBlockIndexFollowsBlockChanges() {
+        BlockState air = Blocks.AIR.getDefaultState();
+        BlockState ore = Blocks.DIAMOND_ORE.getDefaultState();
+        BlockState stone = Blocks.STONE.getDefaultState();
+        var pos = new BlockPos(-3, 10, 17);
+        var index = BlockSearchHelper.BlockIndex.track(Blocks.DIAMOND_ORE);
+        try {
+            index.indexChunk(NO_WORLD, ChunkPos.toLong(-1, 1), null);
+            BlockSearchHelper.onBlockStateChanged(NO_WORLD, pos, air, ore);
+            assertTrue(index.contains(NO_WORLD, pos));
+            assertEquals(1, index.size(NO_WORLD));
+
+            // Changes in chunks the index has not seen are picked up when the chunk is indexed
+            BlockSearchHelper.onBlockStateChanged(NO_WORLD, new BlockPos(40, 10, 40), air, ore);
+            assertEquals(1, index.size(NO_WORLD));
+
+            BlockSearchHelper.onBlockStateChanged(NO_WORLD, pos, ore, stone);
+            assertFalse(index.contains(NO_WORLD, pos));
+            assertEquals(0, index.size(NO_WORLD));
+        } finally {
+            index.close();
+        }
+        BlockSearchHelper.onBlockStateChanged(NO_WORLD, pos, air, ore);
+        assertEquals(0, index.size(NO_WORLD));
+    }
+
+    @Test
+    void testScanSectionMatchesBruteForce() {
+        var random = new Random(11);
+        BlockState ore = Blocks.DIAMOND_ORE.getDefaultState();
+        for (int trial = 0; trial < 1_000; trial++) {
+            // Sections from -4 to 3 on each axis, so half the coordinates are negative
+            int baseX = (random.nextInt(8) - 4) << 4;
+            int baseY = (random.nextInt(8) - 4) << 4;
+            int baseZ = (random.nextInt(8) - 4) << 4;
+            var states = new PalettedContainer<>(Blocks.AIR.getDefaultState(),
+                    PalettedContainer.PaletteProvider.forBlockStates(Block.STATE_IDS));
+            for (int i = 0; i < 1_000; i++) {
+                states.set(random.nextInt(16), random.nextInt(16), random.nextInt(16), ore);
+            }
+            // Every third trial scans the whole section, the rest a part of it
+            boolean whole = trial % 3 == 0;
+            int minX = baseX + (whole ? 0 : random.nextInt(16));
+            int minY = baseY + (whole ? 0 : random.nextInt(16));
+            int minZ = baseZ + (whole ? 0 : random.nextInt(16));
+            int maxX = whole ? baseX + 15 : minX + random.nextInt(baseX + 16 - minX);
+            int maxY = whole ? baseY + 15 : minY + random.nextInt(baseY + 16 - minY);
+            int maxZ = whole ? baseZ + 15 : minZ + random.nextInt(baseZ + 16 - minZ);
+            // Half the trials are spheres centered in or around the section
+            BlockPos center = random.nextBoolean() ? null
+                    : new BlockPos(baseX + random.nextInt(48) - 16,
+                            baseY + random.nextInt(48) - 16, baseZ + random.nextInt(48) - 16);
+            int radius = random.nextInt(24);
+            long radiusSq = (long) radius * radius;
+
+            Set<Long> expected = new HashSet<>();
+            for (int x = minX; x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    for (int z = minZ; z <= maxZ; z++) {
+                        var pos = new BlockPos(x, y, z);
+                        if (states.get(x & 15, y & 15, z & 15) == ore
+                                && (center == null || distSq(center, pos) <= radiusSq)) {
+                            expected.add(pos.asLong());
+                        }
+                    }
+                }
+            }
+            var found = new LongArrayList();
+            assertTrue(BlockSearchHelper.scanSection(states, minX, minY, minZ, maxX, maxY, maxZ,
+                    center, radiusSq, state -> state.isOf(Blocks.DIAMOND_ORE), (x, y, z, state) -> {
+                        found.add(BlockPos.asLong(x, y, z));
+                        return true;
+                    }), "trial " + trial);
+            assertEquals(expected, packed(found), "trial " + trial);
+
+            // A sink that refuses stops the scan at the first match
+            int[] accepted = {0};
+            assertEquals(expected.isEmpty(), BlockSearchHelper.scanSection(states, minX, minY,
+                    minZ, maxX, maxY, maxZ, center, radiusSq,
+                    state -> state.isOf(Blocks.DIAMOND_ORE), (x, y, z, state) -> {
+                        accepted[0]++;
+                        return false;
+                    }));
+            assertEquals(expected.isEmpty() ? 0 : 1, accepted[0]);
+        }
+    }
+
+    @Test
+    void testVisitedSetMatchesHashSet() {
+        var random = new Random(19);
+        var start = new BlockPos(-37, -60, 1_000_017);
+        // 31 is the largest distance kept in a bitset; 32 switches to the hash set
+        for (int maxDistance : new int[] {0, 1, 7, 31, 32}) {
+            var visited = new BlockSearchHelper.VisitedSet(start, maxDistance);
+            Set<Long> expected = new HashSet<>();
+            int span = 2 * maxDistance + 1;
+            for (int i = 0; i < 3 * span * span * span; i++) {
+                int x = start.getX() + random.nextInt(span) - maxDistance;
+                int y = start.getY() + random.nextInt(span) - maxDistance;
+                int z = start.getZ() + random.nextInt(span) - maxDistance;
+                assertEquals(expected.add(BlockPos.asLong(x, y, z)), visited.add(x, y, z));
+            }
+            int low = -maxDistance;
+            int high = maxDistance;
+            for (int[] corner : new int[][] {{low, low, low}, {high, high, high}, {low, high, low},
+                    {high, low, high}}) {
+                int x = start.getX() + corner[0];
+                int y = start.getY() + corner[1];
+                int z = start.getZ() + corner[2];
+                assertEquals(expected.add(BlockPos.asLong(x, y, z)), visited.add(x, y, z));
+                assertFalse(visited.add(x, y, z));
+            }
+        }
+    }
+}
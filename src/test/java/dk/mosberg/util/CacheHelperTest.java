@@ -0,0 +1,320 @@
+package dk.mosberg.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for {@link CacheHelper} caches.
+ *
+ * @since 1.0.0
+ */
+class CacheHelperTest {
+
+    @Test
+    void testTimedCacheSetAndGet() {
+        var cache = new CacheHelper.TimedCache<String, Integer>(60_000);
+        cache.set(TestConstants.NBT_KEY, TestConstants.TEST_INT);
+        assertEquals(TestConstants.TEST_INT, cache.get(TestConstants.NBT_KEY));
+        assertNull(cache.get(TestConstants.NBT_KEY_MISSING));
+    }
+
+    @Test
+    void testTimedCacheExpires() throws InterruptedException {
+        var cache = new CacheHelper.TimedCache<String, Integer>(1);
+        cache.set(TestConstants.NBT_KEY, TestConstants.TEST_INT);
+        Thread.sleep(5);
+        assertNull(cache.get(TestConstants.NBT_KEY), "Entry should expire");
+    }
+
+    @Test
+    void testTimedCacheSizeCountsOnlyLiveEntries() throws InterruptedException {
+        var cache = new CacheHelper.TimedCache<Integer, Integer>(1);
+        for (int i = 0; i < 100; i++) {
+            cache.set(i, i);
+        }
+        Thread.sleep(5);
+        assertEquals(0, cache.size(), "Expired entries should not be counted");
+    }
+
+    @Test
+    void testTimedCacheRefreshServesStaleValueWhileRecomputing() throws InterruptedException {
+        var refreshes = new ArrayList<Runnable>();
+        var computations = new AtomicInteger();
+        var cache = new CacheHelper.TimedCache<String, Integer>(60_000, 1, refreshes::add);
+        assertEquals(1, cache.getOrCompute(TestConstants.NBT_KEY, computations::incrementAndGet));
+        Thread.sleep(5);
+        assertEquals(1, cache.getOrCompute(TestConstants.NBT_KEY, computations::incrementAndGet),
+                "Stale value should be served while the refresh runs");
+        assertEquals(1, cache.getOrCompute(TestConstants.NBT_KEY, computations::incrementAndGet));
+        assertEquals(1, refreshes.size(), "Only one refresh should be started per key");
+        refreshes.get(0).run();
+        assertEquals(2, cache.get(TestConstants.NBT_KEY), "Refreshed value should be swapped in");
+    }
+
+    @Test
+    void testTimedCacheRefreshDoesNotOverwriteNewerSet() throws InterruptedException {
+        var refreshes = new ArrayList<Runnable>();
+        var cache = new CacheHelper.TimedCache<String, Integer>(60_000, 1, refreshes::add);
+        cache.set(TestConstants.NBT_KEY, 1);
+        Thread.sleep(5);
+        assertEquals(1, cache.getOrCompute(TestConstants.NBT_KEY, () -> 2));
+        assertEquals(1, refreshes.size(), "Stale read should start a refresh");
+        cache.set(TestConstants.NBT_KEY, TestConstants.TEST_INT);
+        refreshes.get(0).run();
+        assertEquals(TestConstants.TEST_INT, cache.get(TestConstants.NBT_KEY),
+                "A refresh started before a set should not overwrite it");
+    }
+
+    @Test
+    void testConcurrentTimedCacheSetAndGet() {
+        var cache = new CacheHelper.ConcurrentTimedCache<String, Integer>(60_000);
+        cache.set(TestConstants.NBT_KEY, TestConstants.TEST_INT);
+        assertEquals(TestConstants.TEST_INT, cache.get(TestConstants.NBT_KEY));
+        assertTrue(cache.has(TestConstants.NBT_KEY));
+        cache.remove(TestConstants.NBT_KEY);
+        assertFalse(cache.has(TestConstants.NBT_KEY));
+    }
+
+    @Test
+    void testConcurrentTimedCacheExpires() throws InterruptedException {
+        var cache = new CacheHelper.ConcurrentTimedCache<String, Integer>(1);
+        cache.set(TestConstants.NBT_KEY, TestConstants.TEST_INT);
+        Thread.sleep(5);
+        assertNull(cache.get(TestConstants.NBT_KEY), "Entry should expire");
+        assertEquals(0, cache.size(), "Expired entry should be removed on read");
+    }
+
+    @Test
+    void testConcurrentTimedCacheComputesOncePerKey() throws InterruptedException {
+        var cache = new CacheHelper.ConcurrentTimedCache<String, Integer>(60_000);
+        var computations = new AtomicInteger();
+        var start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                cache.getOrCompute(TestConstants.NBT_KEY, computations::incrementAndGet);
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(1, computations.get(), "Supplier should run once for concurrent misses");
+        assertEquals(1, cache.get(TestConstants.NBT_KEY));
+    }
+
+    @Test
+    void testTinyLfuCacheRespectsMaxSize() {
+        var cache = new CacheHelper.TinyLfuCache<Integer, Integer>(100);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i);
+        }
+        assertTrue(cache.size() <= cache.maxSize(), "Cache should not exceed its capacity");
+    }
+
+    @Test
+    void testTinyLfuCacheKeepsHotSetThroughScan() {
+        var cache = new CacheHelper.TinyLfuCache<Integer, Integer>(100);
+        for (int round = 0; round < 10; round++) {
+            for (int key = 0; key < 50; key++) {
+                cache.computeIfAbsent(key, k -> k);
+            }
+        }
+        for (int key = 1000; key < 2000; key++) {
+            cache.put(key, key);
+        }
+        int retained = 0;
+        for (int key = 0; key < 50; key++) {
+            if (cache.containsKey(key)) {
+                retained++;
+            }
+        }
+        assertTrue(retained >= 45, "Hot keys should survive a one-off scan, kept " + retained);
+    }
+
+    @Test
+    void testAsyncLoadingCacheCoalescesConcurrentMisses() {
+        var loads = new AtomicInteger();
+        var gate = new CompletableFuture<String>();
+        var cache = new CacheHelper.AsyncLoadingCache<String, String>(60_000, 1_000, key -> {
+            loads.incrementAndGet();
+            return gate.thenApply(prefix -> prefix + key);
+        });
+        var futures = new ArrayList<CompletableFuture<String>>();
+        for (int i = 0; i < 40; i++) {
+            futures.add(cache.get(TestConstants.TEST_PATH));
+        }
+        gate.complete(TestConstants.TEST_NAMESPACE);
+        for (var future : futures) {
+            assertEquals(TestConstants.TEST_NAMESPACE + TestConstants.TEST_PATH, future.join());
+        }
+        assertEquals(1, loads.get(), "Concurrent misses should share one load");
+        assertEquals(TestConstants.TEST_NAMESPACE + TestConstants.TEST_PATH,
+                cache.getIfPresent(TestConstants.TEST_PATH));
+    }
+
+    @Test
+    void testAsyncLoadingCacheRemembersFailureBriefly() throws InterruptedException {
+        var loads = new AtomicInteger();
+        // Long enough that both gets land well inside the failure expiry on a slow machine
+        var cache = new CacheHelper.AsyncLoadingCache<String, String>(60_000, 200, key -> {
+            loads.incrementAndGet();
+            return CompletableFuture.failedFuture(new IllegalStateException(key));
+        });
+        assertTrue(cache.get(TestConstants.NBT_KEY).isCompletedExceptionally());
+        assertTrue(cache.get(TestConstants.NBT_KEY).isCompletedExceptionally());
+        assertEquals(1, loads.get(), "Failure should be cached");
+        Thread.sleep(250);
+        cache.get(TestConstants.NBT_KEY);
+        assertEquals(2, loads.get(), "Failure should be retried after its expiry");
+    }
+
+    @Test
+    void testWeightedCacheEvictsByTotalWeight() {
+        var cache = new CacheHelper.WeightedCache<Integer, String>(1_000,
+                CacheHelper.Weighers.string());
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, TestConstants.LONG_STRING);
+        }
+        assertTrue(cache.totalWeight() <= cache.maxWeight(), "Total weight should stay bounded");
+        assertTrue(cache.containsKey(99), "Most recent entry should be kept");
+        assertFalse(cache.containsKey(0), "Eldest entry should be evicted");
+
+        cache.put(-1, "x".repeat(2_000));
+        assertFalse(cache.containsKey(-1), "Values heavier than the bound should not be cached");
+    }
+
+    @Test
+    void testLongTimedCacheSetGetRemove() {
+        var cache = new CacheHelper.LongTimedCache<String>(60_000);
+        for (long key = 0; key < 1000; key++) {
+            cache.set(key * 31, TestConstants.TEST_STRING + key);
+        }
+        assertEquals(1000, cache.size());
+        assertEquals(TestConstants.TEST_STRING + 7, cache.get(7 * 31));
+        cache.remove(7 * 31);
+        assertNull(cache.get(7 * 31));
+        assertEquals(TestConstants.TEST_STRING + 8, cache.get(8 * 31),
+                "Neighbouring keys should survive a removal");
+    }
+
+    @Test
+    void testLongLRUCacheEvictsLeastRecentlyUsed() {
+        var cache = new CacheHelper.LongLRUCache<Integer>(3);
+        cache.put(1L, 1);
+        cache.put(2L, 2);
+        cache.put(3L, 3);
+        cache.get(1L);
+        cache.put(4L, 4);
+        assertEquals(3, cache.size());
+        assertFalse(cache.containsKey(2L), "Least recently used key should be evicted");
+        assertTrue(cache.containsKey(1L));
+        assertTrue(cache.containsKey(4L));
+    }
+
+    @Test
+    void testReferenceCacheStoresAndRemoves() {
+        var cache = CacheHelper.ReferenceCache.<Object, String>weakKeysSoftValues();
+        var key = new Object();
+        cache.put(key, TestConstants.TEST_STRING);
+        assertEquals(TestConstants.TEST_STRING, cache.get(key));
+        assertEquals(1, cache.size());
+        cache.remove(key);
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    void testDiskCacheSurvivesReopenAndCompaction(@TempDir Path dir) throws IOException {
+        var file = dir.resolve("cache.bin");
+        var serializer = CacheHelper.Serializers.gson(String.class);
+        try (var cache = CacheHelper.DiskCache.<String, String>open(file, serializer)) {
+            for (int i = 0; i < 100; i++) {
+                cache.put(TestConstants.NBT_KEY + i, TestConstants.TEST_STRING + i);
+            }
+            cache.put(TestConstants.NBT_KEY + 0, TestConstants.TEST_STRING);
+            cache.remove(TestConstants.NBT_KEY + 1);
+        }
+        try (var cache = CacheHelper.DiskCache.<String, String>open(file, serializer)) {
+            assertEquals(99, cache.size());
+            assertEquals(TestConstants.TEST_STRING, cache.get(TestConstants.NBT_KEY + 0));
+            assertNull(cache.get(TestConstants.NBT_KEY + 1), "Removed key should stay removed");
+            cache.compact();
+            assertEquals(TestConstants.TEST_STRING + 50, cache.get(TestConstants.NBT_KEY + 50));
+        }
+    }
+
+    @Test
+    void testDiskCacheKeepsWorkingWhenCompactionFails(@TempDir Path dir) throws IOException {
+        var file = dir.resolve("cache.bin");
+        var serializer = CacheHelper.Serializers.gson(String.class);
+        // A directory where the next generation would go makes the move fail
+        Files.createDirectory(dir.resolve("cache.bin.1"));
+        try (var cache = CacheHelper.DiskCache.<String, String>open(file, serializer)) {
+            for (int i = 0; i < 10; i++) {
+                cache.put(TestConstants.NBT_KEY + i, TestConstants.TEST_STRING + i);
+            }
+            assertThrows(IOException.class, cache::compact);
+            assertEquals(TestConstants.TEST_STRING + 3, cache.get(TestConstants.NBT_KEY + 3));
+            assertTrue(cache.put(TestConstants.NBT_KEY_MISSING, TestConstants.TEST_STRING),
+                    "Appends should still work after a failed compaction");
+
+            Files.delete(dir.resolve("cache.bin.1"));
+            cache.compact();
+            cache.put(TestConstants.NBT_KEY + 0, TestConstants.EMPTY_STRING);
+        }
+        assertFalse(Files.exists(file), "Superseded generation should be deleted");
+        try (var cache = CacheHelper.DiskCache.<String, String>open(file, serializer)) {
+            assertEquals(11, cache.size());
+            assertEquals(TestConstants.EMPTY_STRING, cache.get(TestConstants.NBT_KEY + 0));
+            assertEquals(TestConstants.TEST_STRING, cache.get(TestConstants.NBT_KEY_MISSING));
+        }
+    }
+
+    @Test
+    void testStatsCountHitsMissesLoadsAndEvictions() {
+        var cache =
+                CacheHelper.registerCache("test:lru", new CacheHelper.LRUCache<Integer, String>(2));
+        cache.computeIfAbsent(1, key -> TestConstants.TEST_STRING);
+        cache.computeIfAbsent(2, key -> TestConstants.TEST_STRING);
+        cache.computeIfAbsent(3, key -> TestConstants.TEST_STRING);
+        cache.get(3);
+        cache.get(1);
+
+        var stats = cache.stats();
+        assertEquals(1, stats.hitCount());
+        assertEquals(4, stats.missCount());
+        assertEquals(3, stats.loadCount());
+        assertEquals(1, stats.evictionCount(CacheHelper.EvictionCause.SIZE));
+        assertTrue(CacheHelper.getRegisteredCaches().containsKey("test:lru"));
+        assertEquals(2,
+                CacheHelper.getStatsJson().getAsJsonObject("test:lru").get("size").getAsInt());
+        CacheHelper.unregisterCache("test:lru");
+    }
+
+    @Test
+    void testStatsDisabledByDefault() {
+        var cache = new CacheHelper.TimedCache<String, Integer>(60_000);
+        cache.set(TestConstants.NBT_KEY, TestConstants.TEST_INT);
+        cache.get(TestConstants.NBT_KEY);
+        assertEquals(0, cache.stats().requestCount());
+    }
+}
@@ -0,0 +1,322 @@
+package dk.mosberg.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityType;
+import net.minecraft.entity.LivingEntity;
+import net.minecraft.entity.MarkerEntity;
+import net.minecraft.entity.decoration.ArmorStandEntity;
+import net.minecraft.util.math.Box;
+
+/**
+ * Unit tests for {@link EntityHelper} bulk entity queries, checked against brute force. The
+ * entities are markers and armor stands that are never added to a world.
+ *
+ * @since 1.0.0
+ */
+class EntityHelperTest {
+    private static final List<Class<? extends Entity>> TYPES =
+            List.of(Entity.class, LivingEntity.class);
+
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+    }
+
+    /**
+     * Creates entities scattered over a 96 by 48 by 96 block volume around the origin, one in
+     * four of them living.
+     */
+    private static List<Entity> scatter(Random random, int count) {
+        List<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Entity entity = random.nextInt(4) == 0
+                    ? new ArmorStandEntity(EntityType.ARMOR_STAND, null)
+                    : new MarkerEntity(EntityType.MARKER, null);
+            entity.setPosition(random.nextDouble() * 96 - 48, random.nextDouble() * 48 - 24,
+                    random.nextDouble() * 96 - 48);
+            entities.add(entity);
+        }
+        return entities;
+    }
+
+    /**
+     * Turns each entity to a random look direction and gives it a random velocity.
+     */
+    private static void turn(Random random, List<? extends Entity> entities) {
+        for (Entity entity : entities) {
+            entity.setYaw(random.nextFloat() * 360 - 180);
+            entity.setPitch(random.nextFloat() * 180 - 90);
+            entity.setVelocity(random.nextGaussian(), random.nextGaussian() * 0.5,
+                    random.nextGaussian());
+        }
+    }
+
+    /**
+     * Tests the cone from an observer's eyes to a candidate's eyes with the look vector from
+     * {@code Entity.getRotationVector} and the angle from its arc cosine.
+     */
+    private static boolean canSee(Entity observer, Entity candidate, double maxAngle,
+            double maxDistance) {
+        double dx = candidate.getX() - observer.getX();
+        double dy = candidate.getEyeY() - observer.getEyeY();
+        double dz = candidate.getZ() - observer.getZ();
+        double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (distance == 0 || distance >= maxDistance) {
+            return false;
+        }
+        double pitch = Math.toRadians(observer.getPitch());
+        double yaw = Math.toRadians(-observer.getYaw());
+        double lookX = Math.sin(yaw) * Math.cos(pitch);
+        double lookY = -Math.sin(pitch);
+        double lookZ = Math.cos(yaw) * Math.cos(pitch);
+        double cos = (lookX * dx + lookY * dy + lookZ * dz) / distance;
+        return Math.toDegrees(Math.acos(Math.clamp(cos, -1, 1))) < maxAngle;
+    }
+
+    private static Set<Integer> selected(int[] indices, int count) {
+        Set<Integer> set = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            set.add(indices[i]);
+        }
+        assertEquals(count, set.size());
+        return set;
+    }
+
+    @Test
+    void testEntityGridMatchesBruteForce() {
+        var random = new Random(23);
+        Predicate<Entity> even = entity -> (entity.getId() & 1) == 0;
+        var grid = new EntityHelper.EntityGrid(8);
+        // The second rebuild shrinks the grid
+        for (int count : new int[] {1_500, 400}) {
+            List<Entity> entities = scatter(random, count);
+            grid.rebuild(entities);
+            assertEquals(count, grid.size());
+            for (int query = 0; query < 300; query++) {
+                double x = random.nextDouble() * 120 - 60;
+                double y = random.nextDouble() * 60 - 30;
+                double z = random.nextDouble() * 120 - 60;
+                // Mostly local queries, with some wide enough that the grid checks every entity
+                double radius = query % 10 == 0 ? 200 : random.nextDouble() * 32;
+                int k = 1 + random.nextInt(12);
+                var box = new Box(x - random.nextDouble() * 20, y - random.nextDouble() * 20,
+                        z - random.nextDouble() * 20, x + random.nextDouble() * 20,
+                        y + random.nextDouble() * 20, z + random.nextDouble() * 20);
+                Predicate<Entity> filter = query % 2 == 0 ? null : even;
+                for (Class<? extends Entity> type : TYPES) {
+                    List<Entity> inRadius = new ArrayList<>();
+                    List<Entity> inBox = new ArrayList<>();
+                    for (Entity entity : entities) {
+                        if (!type.isInstance(entity) || filter != null && !filter.test(entity)) {
+                            continue;
+                        }
+                        if (entity.squaredDistanceTo(x, y, z) <= radius * radius) {
+                            inRadius.add(entity);
+                        }
+                        if (entity.getX() >= box.minX && entity.getX() <= box.maxX
+                                && entity.getY() >= box.minY && entity.getY() <= box.maxY
+                                && entity.getZ() >= box.minZ && entity.getZ() <= box.maxZ) {
+                            inBox.add(entity);
+                        }
+                    }
+                    inRadius.sort(Comparator.comparingDouble(
+                            entity -> entity.squaredDistanceTo(x, y, z)));
+                    List<Entity> nearest = inRadius.subList(0, Math.min(k, inRadius.size()));
+
+                    List<Entity> found = new ArrayList<>();
+                    assertEquals(inRadius.size(),
+                            grid.findInRadius(type, x, y, z, radius, filter, found));
+                    assertEquals(new HashSet<>(inRadius), new HashSet<>(found));
+                    assertEquals(inRadius.size(),
+                            grid.countInRadius(type, x, y, z, radius, filter));
+                    found.clear();
+                    assertEquals(inBox.size(), grid.findInBox(type, box, filter, found));
+                    assertEquals(new HashSet<>(inBox), new HashSet<>(found));
+                    found.clear();
+                    assertEquals(nearest.size(),
+                            grid.findKNearest(type, x, y, z, radius, k, filter, found));
+                    assertEquals(nearest, found);
+                    if (inRadius.isEmpty()) {
+                        assertNull(grid.findNearest(type, x, y, z, radius, filter));
+                    } else {
+                        assertEquals(inRadius.get(0),
+                                grid.findNearest(type, x, y, z, radius, filter));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testEntitySnapshotKernelsMatchBruteForce() {
+        var random = new Random(24);
+        var snapshot = new EntityHelper.EntitySnapshot();
+        // The second capture shrinks the snapshot
+        for (int count : new int[] {500, 120}) {
+            List<Entity> entities = scatter(random, count);
+            turn(random, entities);
+            snapshot.capture(entities);
+            assertEquals(count, snapshot.size());
+            double[] values = new double[count];
+            int[] indices = new int[count];
+            for (int i = 0; i < count; i++) {
+                Entity entity = entities.get(i);
+                assertEquals(entity, snapshot.getEntity(i));
+                assertEquals(entity.getId(), snapshot.getId(i));
+                assertEquals(entity.getEyeY(), snapshot.getEyeY(i));
+            }
+            snapshot.speedsSquared(values);
+            for (int i = 0; i < count; i++) {
+                double speed = EntityHelper.getSpeed(entities.get(i));
+                assertEquals(speed * speed, values[i], 1.0E-9);
+            }
+            for (int query = 0; query < 100; query++) {
+                double x = random.nextDouble() * 120 - 60;
+                double y = random.nextDouble() * 60 - 30;
+                double z = random.nextDouble() * 120 - 60;
+                double radius = random.nextDouble() * 40;
+                double speed = random.nextDouble() * 2;
+                Set<Integer> within = new HashSet<>();
+                Set<Integer> faster = new HashSet<>();
+                snapshot.distancesSquared(x, y, z, values);
+                for (int i = 0; i < count; i++) {
+                    Entity entity = entities.get(i);
+                    assertEquals(entity.squaredDistanceTo(x, y, z), values[i], 1.0E-9);
+                    if (entity.squaredDistanceTo(x, y, z) <= radius * radius) {
+                        within.add(i);
+                    }
+                    if (EntityHelper.getSpeed(entity) > speed) {
+                        faster.add(i);
+                    }
+                }
+                assertEquals(within,
+                        selected(indices, snapshot.selectWithin(x, y, z, radius, indices)));
+                assertEquals(faster, selected(indices, snapshot.selectFasterThan(speed, indices)));
+            }
+            assertThrows(IllegalArgumentException.class,
+                    () -> snapshot.distancesSquared(0, 0, 0, new double[count - 1]));
+            assertThrows(IllegalArgumentException.class,
+                    () -> snapshot.selectWithin(0, 0, 0, 1, new int[count - 1]));
+        }
+    }
+
+    @Test
+    void testSelectLookingAtMatchesIsLooking() {
+        var random = new Random(24);
+        List<ArmorStandEntity> stands = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            var stand = new ArmorStandEntity(EntityType.ARMOR_STAND, null);
+            stand.setPosition(random.nextDouble() * 40 - 20, random.nextDouble() * 20 - 10,
+                    random.nextDouble() * 40 - 20);
+            stands.add(stand);
+        }
+        turn(random, stands);
+        var snapshot = new EntityHelper.EntitySnapshot();
+        snapshot.capture(stands);
+        int[] indices = new int[stands.size()];
+        // isLooking measures between feet and selectLookingAt from the eyes, so the target
+        // isLooking sees sits one eye height below the point
+        double eyeHeight = stands.get(0).getEyeY() - stands.get(0).getY();
+        var target = new MarkerEntity(EntityType.MARKER, null);
+        for (int query = 0; query < 200; query++) {
+            double x = random.nextDouble() * 60 - 30;
+            double y = random.nextDouble() * 30 - 15;
+            double z = random.nextDouble() * 60 - 30;
+            float maxAngle = random.nextFloat() * 180;
+            target.setPosition(x, y - eyeHeight, z);
+            Set<Integer> looking = new HashSet<>();
+            for (int i = 0; i < stands.size(); i++) {
+                if (EntityHelper.isLooking(stands.get(i), target, maxAngle)) {
+                    looking.add(i);
+                }
+            }
+            assertEquals(looking,
+                    selected(indices, snapshot.selectLookingAt(x, y, z, maxAngle, indices)),
+                    "angle " + maxAngle);
+        }
+    }
+
+    @Test
+    void testFindInViewMatchesBruteForce() {
+        var random = new Random(25);
+        var observers = new EntityHelper.EntitySnapshot();
+        var candidates = new EntityHelper.EntitySnapshot();
+        var view = new EntityHelper.ViewMatrix();
+        // Candidate counts around the 64-bit word size, shrinking so stale bits would show
+        for (int candidateCount : new int[] {150, 64, 1}) {
+            List<Entity> observerList = new ArrayList<>();
+            for (int i = 0; i < 70; i++) {
+                var stand = new ArmorStandEntity(EntityType.ARMOR_STAND, null);
+                stand.setPosition(random.nextDouble() * 40 - 20, random.nextDouble() * 20 - 10,
+                        random.nextDouble() * 40 - 20);
+                observerList.add(stand);
+            }
+            turn(random, observerList);
+            List<Entity> candidateList = scatter(random, candidateCount);
+            // Observers among the candidates must not see themselves
+            candidateList.set(0, observerList.get(0));
+            observers.capture(observerList);
+            candidates.capture(candidateList);
+            double maxDistance = 5 + random.nextDouble() * 40;
+            double[] maxAngles = new double[observerList.size()];
+            for (int i = 0; i < maxAngles.length; i++) {
+                maxAngles[i] = random.nextDouble() * 180;
+            }
+            double sharedAngle = random.nextDouble() * 90;
+
+            for (boolean perObserver : new boolean[] {false, true}) {
+                if (perObserver) {
+                    EntityHelper.findInView(observers, candidates, maxAngles, maxDistance, view);
+                } else {
+                    EntityHelper.findInView(observers, candidates, sharedAngle, maxDistance, view);
+                }
+                assertEquals(observerList.size(), view.getObserverCount());
+                assertEquals(candidateCount, view.getCandidateCount());
+                boolean[] seenByAny = new boolean[candidateCount];
+                int[] visible = new int[candidateCount];
+                for (int observer = 0; observer < observerList.size(); observer++) {
+                    double maxAngle = perObserver ? maxAngles[observer] : sharedAngle;
+                    List<Integer> expected = new ArrayList<>();
+                    for (int candidate = 0; candidate < candidateCount; candidate++) {
+                        boolean sees = canSee(observerList.get(observer),
+                                candidateList.get(candidate), maxAngle, maxDistance);
+                        assertEquals(sees, view.canSee(observer, candidate));
+                        if (sees) {
+                            expected.add(candidate);
+                            seenByAny[candidate] = true;
+                        }
+                    }
+                    assertEquals(expected.size(), view.countVisible(observer));
+                    int count = view.getVisible(observer, visible);
+                    List<Integer> actual = new ArrayList<>();
+                    for (int i = 0; i < count; i++) {
+                        actual.add(visible[i]);
+                    }
+                    assertEquals(expected, actual);
+                }
+                for (int candidate = 0; candidate < candidateCount; candidate++) {
+                    assertEquals(seenByAny[candidate], view.isSeenByAny(candidate));
+                }
+                assertFalse(view.canSee(0, 0));
+            }
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> EntityHelper.findInView(observers, candidates, new double[1], 10, view));
+    }
+}
@@ -0,0 +1,81 @@
+package dk.mosberg.util;
+
+import java.util.Random;
+import org.jetbrains.annotations.Nullable;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.block.LeverBlock;
+import net.minecraft.block.RepeaterBlock;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.fluid.FluidState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.RedstoneView;
+
+/**
+ * A fixed box of random redstone parts for tests and benchmarks that need a {@link RedstoneView}
+ * without a server: levers, torches, redstone blocks and repeaters among solid blocks, glass and
+ * air. The box spans from the origin to {@code sizeXZ} by {@code sizeY} by {@code sizeXZ}, and
+ * outside it is air. The registries must be bootstrapped before one is created.
+ *
+ * @since 1.0.0
+ */
+public final class RandomRedstoneView implements RedstoneView {
+    private final int sizeXZ;
+    private final int sizeY;
+    private final BlockState[] states;
+
+    /**
+     * Fills a box with random parts.
+     *
+     * @param random the source of the layout
+     * @param sizeXZ the box's width along x and z
+     * @param sizeY the box's height
+     */
+    public RandomRedstoneView(Random random, int sizeXZ, int sizeY) {
+        this.sizeXZ = sizeXZ;
+        this.sizeY = sizeY;
+        this.states = new BlockState[sizeXZ * sizeY * sizeXZ];
+        BlockState[] palette = {Blocks.STONE.getDefaultState(), Blocks.STONE.getDefaultState(),
+                Blocks.STONE.getDefaultState(), Blocks.GLASS.getDefaultState(),
+                Blocks.AIR.getDefaultState(), Blocks.AIR.getDefaultState(),
+                Blocks.AIR.getDefaultState(),
+                Blocks.LEVER.getDefaultState().with(LeverBlock.POWERED, true),
+                Blocks.REDSTONE_TORCH.getDefaultState(), Blocks.REDSTONE_BLOCK.getDefaultState(),
+                Blocks.REPEATER.getDefaultState().with(RepeaterBlock.POWERED, true)};
+        for (int i = 0; i < states.length; i++) {
+            states[i] = palette[random.nextInt(palette.length)];
+        }
+    }
+
+    @Override
+    public BlockState getBlockState(BlockPos pos) {
+        int x = pos.getX();
+        int y = pos.getY();
+        int z = pos.getZ();
+        if (x < 0 || y < 0 || z < 0 || x >= sizeXZ || y >= sizeY || z >= sizeXZ) {
+            return Blocks.AIR.getDefaultState();
+        }
+        return states[(x * sizeY + y) * sizeXZ + z];
+    }
+
+    @Override
+    @Nullable
+    public BlockEntity getBlockEntity(BlockPos pos) {
+        return null;
+    }
+
+    @Override
+    public FluidState getFluidState(BlockPos pos) {
+        return getBlockState(pos).getFluidState();
+    }
+
+    @Override
+    public int getHeight() {
+        return sizeY;
+    }
+
+    @Override
+    public int getBottomY() {
+        return 0;
+    }
+}
@@ -0,0 +1,73 @@
+package dk.mosberg.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import net.minecraft.util.math.Vec3d;
+
+/**
+ * Unit tests for {@link RaycastHelper} grid traversal.
+ *
+ * @since 1.0.0
+ */
+class RaycastHelperTest {
+
+    private static List<int[]> walk(double x0, double y0, double z0, double x1, double y1,
+            double z1) {
+        List<int[]> visited = new ArrayList<>();
+        assertTrue(RaycastHelper.traverse(x0, y0, z0, x1, y1, z1, (x, y, z) -> {
+            visited.add(new int[] {x, y, z});
+            return true;
+        }));
+        return visited;
+    }
+
+    @Test
+    void testTraverseSingleBlock() {
+        List<int[]> visited = walk(0.2, 0.2, 0.2, 0.8, 0.9, 0.1);
+        assertEquals(1, visited.size());
+        assertArrayEquals(new int[] {0, 0, 0}, visited.get(0));
+    }
+
+    @Test
+    void testTraverseAlongAxis() {
+        List<int[]> visited = walk(0.5, 0.5, 0.5, 5.5, 0.5, 0.5);
+        assertEquals(6, visited.size());
+        for (int i = 0; i < visited.size(); i++) {
+            assertArrayEquals(new int[] {i, 0, 0}, visited.get(i));
+        }
+    }
+
+    @Test
+    void testTraverseNegativeDirection() {
+        List<int[]> visited = walk(0.5, 0.5, 0.5, -2.5, 0.5, 0.5);
+        assertEquals(4, visited.size());
+        assertArrayEquals(new int[] {-3, 0, 0}, visited.get(3));
+    }
+
+    @Test
+    void testTraverseDiagonalIsFaceConnected() {
+        List<int[]> visited = walk(0.1, 0.3, 0.7, 7.9, -4.2, 3.4);
+        int[] last = visited.get(visited.size() - 1);
+        assertArrayEquals(new int[] {7, -5, 3}, last);
+        assertEquals(7 + 5 + 3 + 1, visited.size());
+        for (int i = 1; i < visited.size(); i++) {
+            int[] a = visited.get(i - 1);
+            int[] b = visited.get(i);
+            assertEquals(1, Math.abs(a[0] - b[0]) + Math.abs(a[1] - b[1]) + Math.abs(a[2] - b[2]));
+        }
+    }
+
+    @Test
+    void testTraverseEarlyExit() {
+        int[] count = {0};
+        boolean finished = RaycastHelper.traverse(new Vec3d(0.5, 0.5, 0.5),
+                new Vec3d(0.5, 20.5, 0.5), (x, y, z) -> ++count[0] < 3);
+        assertFalse(finished);
+        assertEquals(3, count[0]);
+    }
+}
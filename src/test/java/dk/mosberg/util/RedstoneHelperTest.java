@@ -0,0 +1,181 @@
+package dk.mosberg.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.world.RedstoneView;
+
+/**
+ * Unit tests for {@link RedstoneHelper} redstone networks and batched power evaluation, checked
+ * against brute force.
+ *
+ * @since 1.0.0
+ */
+class RedstoneHelperTest {
+    private static final int SIZE = 6;
+
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+    }
+
+    /**
+     * Floods a circuit from scratch: components link to the six beside them, and wire also to
+     * wire one step up or down in each horizontal direction.
+     */
+    private static Set<Long> floodCircuit(Map<Long, Boolean> components, long start) {
+        Set<Long> reached = new HashSet<>();
+        ArrayDeque<Long> queue = new ArrayDeque<>();
+        reached.add(start);
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            long packed = queue.poll();
+            int x = BlockPos.unpackLongX(packed);
+            int y = BlockPos.unpackLongY(packed);
+            int z = BlockPos.unpackLongZ(packed);
+            boolean wire = components.get(packed);
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dz = -1; dz <= 1; dz++) {
+                        int axes = Math.abs(dx) + Math.abs(dy) + Math.abs(dz);
+                        boolean face = axes == 1;
+                        boolean step = wire && axes == 2 && dy != 0;
+                        long neighbour = BlockPos.asLong(x + dx, y + dy, z + dz);
+                        Boolean neighbourWire = components.get(neighbour);
+                        if (neighbourWire != null && (face || step && neighbourWire)
+                                && reached.add(neighbour)) {
+                            queue.add(neighbour);
+                        }
+                    }
+                }
+            }
+        }
+        return reached;
+    }
+
+    private static Set<Long> toSet(LongOpenHashSet positions) {
+        Set<Long> set = new HashSet<>();
+        LongIterator iterator = positions.iterator();
+        while (iterator.hasNext()) {
+            set.add(iterator.nextLong());
+        }
+        return set;
+    }
+
+    private static int emitted(RedstoneView view, BlockPos pos) {
+        return Math.clamp(view.getEmittedRedstonePower(pos, null), 0, 15);
+    }
+
+    private static int received(RedstoneView view, BlockPos pos) {
+        int max = 0;
+        for (Direction direction : Direction.values()) {
+            max = Math.max(max, Math.clamp(
+                    view.getEmittedRedstonePower(pos.offset(direction), direction), 0, 15));
+        }
+        return max;
+    }
+
+    @Test
+    void testCircuitGraphMatchesBruteForce() {
+        var random = new Random(21);
+        var graph = new RedstoneHelper.CircuitGraph();
+        Map<Long, Boolean> components = new HashMap<>();
+        for (int step = 0; step < 3_000; step++) {
+            long packed = BlockPos.asLong(random.nextInt(SIZE) - SIZE / 2,
+                    random.nextInt(SIZE) - 70, random.nextInt(SIZE) - SIZE / 2);
+            if (components.remove(packed) != null) {
+                graph.remove(packed);
+            } else {
+                boolean wire = random.nextInt(3) > 0;
+                components.put(packed, wire);
+                graph.add(packed, wire);
+            }
+
+            Map<Long, Set<Long>> expected = new HashMap<>();
+            for (int x = -SIZE / 2; x < SIZE - SIZE / 2; x++) {
+                for (int y = -70; y < SIZE - 70; y++) {
+                    for (int z = -SIZE / 2; z < SIZE - SIZE / 2; z++) {
+                        long position = BlockPos.asLong(x, y, z);
+                        Boolean wire = components.get(position);
+                        if (wire == null) {
+                            assertNull(graph.getCircuit(position));
+                            assertFalse(graph.isComponent(position));
+                            continue;
+                        }
+                        assertEquals(wire.booleanValue(), graph.isWire(position));
+                        if (!expected.containsKey(position)) {
+                            Set<Long> circuit = floodCircuit(components, position);
+                            circuit.forEach(member -> expected.put(member, circuit));
+                        }
+                        assertEquals(expected.get(position), toSet(graph.getCircuit(position)),
+                                "step " + step);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testEvaluatePowerBoxMatchesPerPosition() {
+        var view = new RandomRedstoneView(new Random(22), 16, 12);
+        // Reaches past the view on every side, where everything reads as air
+        var from = new BlockPos(18, -2, -3);
+        var to = new BlockPos(-3, 13, 17);
+        var snapshot = RedstoneHelper.evaluatePower(view, from, to);
+        assertEquals(22 * 16 * 21, snapshot.size());
+        assertEquals(new BlockPos(-3, -2, -3), snapshot.getPos(0));
+        assertEquals(new BlockPos(18, 13, 17), snapshot.getPos(snapshot.size() - 1));
+        List<BlockPos> powered = new ArrayList<>();
+        for (int i = 0; i < snapshot.size(); i++) {
+            BlockPos pos = snapshot.getPos(i);
+            assertEquals(emitted(view, pos), snapshot.getEmittedPower(i), pos.toString());
+            assertEquals(received(view, pos), snapshot.getReceivedPower(i), pos.toString());
+            if (emitted(view, pos) > 0) {
+                powered.add(pos);
+            }
+        }
+        assertEquals(powered, snapshot.getPoweredPositions());
+    }
+
+    @Test
+    void testEvaluatePowerListMatchesPerPosition() {
+        var random = new Random(22);
+        var view = new RandomRedstoneView(random, 16, 12);
+        List<BlockPos> positions = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            positions.add(new BlockPos(random.nextInt(20) - 2, random.nextInt(16) - 2,
+                    random.nextInt(20) - 2));
+        }
+        positions.add(positions.get(0));
+        // Too far apart to buffer, so each position is read on its own
+        List<BlockPos> scattered = List.of(new BlockPos(3, 4, 5), new BlockPos(5_000, 6, 5_000),
+                new BlockPos(7, 8, 9), new BlockPos(3, 4, 5));
+        for (List<BlockPos> batch : List.of(positions, scattered, List.<BlockPos>of())) {
+            var snapshot = RedstoneHelper.evaluatePower(view, batch);
+            assertEquals(batch.size(), snapshot.size());
+            for (int i = 0; i < batch.size(); i++) {
+                BlockPos pos = batch.get(i);
+                assertEquals(pos, snapshot.getPos(i));
+                assertEquals(emitted(view, pos), snapshot.getEmittedPower(i), pos.toString());
+                assertEquals(received(view, pos), snapshot.getReceivedPower(i), pos.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package dk.mosberg.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link TickHelper} bindings.
+ *
+ * @since 1.0.0
+ */
+class TickHelperTest {
+
+    @Test
+    void testServerTickBindingRunsUntilUnbound() {
+        int[] ticks = {0};
+        var binding = TickHelper.bindToServerTicks(() -> ticks[0]++, null);
+        assertTrue(binding.isBound());
+        TickHelper.onServerTick();
+        TickHelper.onServerTick();
+        assertEquals(2, ticks[0]);
+
+        binding.unbind();
+        binding.unbind();
+        assertFalse(binding.isBound());
+        TickHelper.onServerTick();
+        assertEquals(2, ticks[0]);
+    }
+
+    @Test
+    void testRebindingAfterUnbindRunsAgain() {
+        int[] ticks = {0};
+        TickHelper.bindToServerTicks(() -> ticks[0]++, null).unbind();
+        var binding = TickHelper.bindToServerTicks(() -> ticks[0]++, null);
+        TickHelper.onServerTick();
+        assertEquals(1, ticks[0]);
+        binding.unbind();
+    }
+
+    @Test
+    void testFailingBindingDoesNotStopOthers() {
+        int[] ticks = {0};
+        var failing = TickHelper.bindToServerTicks(() -> {
+            throw new IllegalStateException("test");
+        }, null);
+        var counting = TickHelper.bindToServerTicks(() -> ticks[0]++, null);
+        TickHelper.onServerTick();
+        assertEquals(1, ticks[0]);
+        failing.unbind();
+        counting.unbind();
+    }
+
+    @Test
+    void testUnbindingDuringTickSkipsTheRest() {
+        int[] ticks = {0};
+        TickHelper.Binding[] second = new TickHelper.Binding[1];
+        var first = TickHelper.bindToServerTicks(() -> second[0].unbind(), null);
+        second[0] = TickHelper.bindToServerTicks(() -> ticks[0]++, null);
+        TickHelper.onServerTick();
+        assertEquals(0, ticks[0]);
+        first.unbind();
+    }
+}
@@ -0,0 +1,54 @@
+package dk.mosberg.util.benchmark;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * The timing harness shared by the benchmarks: each workload runs a number of rounds, and the
+ * best time and the fewest bytes allocated on the calling thread are reported per operation.
+ */
+final class BenchmarkSupport {
+    private BenchmarkSupport() {}
+
+    /**
+     * A workload that performs some number of operations.
+     */
+    interface Workload {
+        void run();
+    }
+
+    /**
+     * Prints the column headings for {@link #report} rows.
+     *
+     * @param label the heading of the name column
+     * @param unit what one operation is, such as {@code "op"}
+     */
+    static void header(String label, String unit) {
+        System.out.printf("%-22s %10s %14s%n", label, "ns/" + unit, "bytes/" + unit);
+    }
+
+    /**
+     * Runs a workload and prints its best time and allocation per operation.
+     *
+     * @param name the row name
+     * @param operations the number of operations one run of the workload performs
+     * @param rounds the number of runs to take the best of
+     * @param workload the workload
+     */
+    static void report(String name, int operations, int rounds, Workload workload) {
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        double bestNanos = Double.MAX_VALUE;
+        long bestBytes = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            workload.run();
+            long elapsed = System.nanoTime() - start;
+            long bytes = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+            bestNanos = Math.min(bestNanos, (double) elapsed / operations);
+            bestBytes = Math.min(bestBytes, bytes);
+        }
+        System.out.printf("%-22s %10.1f %14.1f%n", name, bestNanos,
+                (double) bestBytes / operations);
+    }
+}
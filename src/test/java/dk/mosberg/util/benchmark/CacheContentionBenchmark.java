@@ -0,0 +1,117 @@
+package dk.mosberg.util.benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import dk.mosberg.util.CacheHelper;
+
+/**
+ * Contention benchmark comparing {@link CacheHelper.ConcurrentTimedCache} against a
+ * {@link CacheHelper.TimedCache} guarded by a single lock (the pattern callers used before the
+ * concurrent variant existed).
+ *
+ * <p>
+ * Each thread performs a 90/10 read/write mix over a shared key space. Run with
+ * {@code ./gradlew benchmark -Pbench=CacheContentionBenchmark}.
+ */
+public final class CacheContentionBenchmark {
+    private static final int KEY_SPACE = 4096;
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32};
+    private static final long WARMUP_MS = 500;
+    private static final long MEASURE_MS = 2000;
+
+    private CacheContentionBenchmark() {}
+
+    /**
+     * Minimal cache surface shared by both contenders.
+     */
+    private interface Target {
+        Integer get(Integer key);
+
+        void set(Integer key, Integer value);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.printf("%-8s %18s %18s %8s%n", "threads", "synchronized ops/s",
+                "concurrent ops/s", "speedup");
+        for (int threads : THREAD_COUNTS) {
+            double locked = run(threads, lockedTarget());
+            double concurrent = run(threads, concurrentTarget());
+            System.out.printf("%-8d %18.0f %18.0f %7.2fx%n", threads, locked, concurrent,
+                    concurrent / locked);
+        }
+    }
+
+    private static Target lockedTarget() {
+        var cache = new CacheHelper.TimedCache<Integer, Integer>(60_000);
+        var lock = new Object();
+        return new Target() {
+            @Override
+            public Integer get(Integer key) {
+                synchronized (lock) {
+                    return cache.get(key);
+                }
+            }
+
+            @Override
+            public void set(Integer key, Integer value) {
+                synchronized (lock) {
+                    cache.set(key, value);
+                }
+            }
+        };
+    }
+
+    private static Target concurrentTarget() {
+        var cache = new CacheHelper.ConcurrentTimedCache<Integer, Integer>(60_000);
+        return new Target() {
+            @Override
+            public Integer get(Integer key) {
+                return cache.get(key);
+            }
+
+            @Override
+            public void set(Integer key, Integer value) {
+                cache.set(key, value);
+            }
+        };
+    }
+
+    private static double run(int threads, Target target) throws InterruptedException {
+        for (int i = 0; i < KEY_SPACE; i++) {
+            target.set(i, i);
+        }
+        var ops = new LongAdder();
+        var measuring = new AtomicBoolean();
+        var stop = new AtomicBoolean();
+        var done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            var worker = new Thread(() -> {
+                var random = ThreadLocalRandom.current();
+                long local = 0;
+                while (!stop.get()) {
+                    int key = random.nextInt(KEY_SPACE);
+                    if (random.nextInt(10) == 0) {
+                        target.set(key, key);
+                    } else {
+                        target.get(key);
+                    }
+                    if (measuring.get()) {
+                        local++;
+                    }
+                }
+                ops.add(local);
+                done.countDown();
+            });
+            worker.setDaemon(true);
+            worker.start();
+        }
+        Thread.sleep(WARMUP_MS);
+        measuring.set(true);
+        Thread.sleep(MEASURE_MS);
+        stop.set(true);
+        done.await();
+        return ops.sum() * 1000.0 / MEASURE_MS;
+    }
+}
@@ -0,0 +1,123 @@
+package dk.mosberg.util.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import dk.mosberg.util.CacheHelper;
+
+/**
+ * Trace-replay harness comparing the hit ratio of {@link CacheHelper.TinyLfuCache} against
+ * {@link CacheHelper.LRUCache}.
+ *
+ * <p>
+ * Without arguments a synthetic trace is generated: Zipf-distributed lookups over a hot key set,
+ * interrupted by long sequential scans of never-repeated keys (a player flying over new terrain or
+ * a full inventory scan). A recorded trace can be replayed by passing a file with one key per line
+ * (numeric keys are used as-is, others are hashed).
+ * Run with {@code ./gradlew benchmark -Pbench=CacheHitRatioBenchmark}.
+ */
+public final class CacheHitRatioBenchmark {
+    private static final int[] CACHE_SIZES = {256, 1024, 4096};
+    private static final int HOT_KEYS = 50_000;
+    private static final int TRACE_LENGTH = 2_000_000;
+    private static final int SCAN_EVERY = 100_000;
+    private static final int SCAN_LENGTH = 20_000;
+
+    private CacheHitRatioBenchmark() {}
+
+    public static void main(String[] args) throws IOException {
+        long[] trace = args.length > 0 ? readTrace(Path.of(args[0])) : syntheticTrace();
+        System.out.printf("trace: %d accesses%n", trace.length);
+        System.out.printf("%-8s %12s %12s%n", "size", "LRU hit %", "TinyLFU hit %");
+        for (int size : CACHE_SIZES) {
+            System.out.printf("%-8d %12.2f %12.2f%n", size, replayLru(trace, size),
+                    replayTinyLfu(trace, size));
+        }
+    }
+
+    private static double replayLru(long[] trace, int size) {
+        var cache = new CacheHelper.LRUCache<Long, Long>(size);
+        int hits = 0;
+        for (long key : trace) {
+            if (cache.get(key) != null) {
+                hits++;
+            } else {
+                cache.put(key, key);
+            }
+        }
+        return 100.0 * hits / trace.length;
+    }
+
+    private static double replayTinyLfu(long[] trace, int size) {
+        var cache = new CacheHelper.TinyLfuCache<Long, Long>(size);
+        int hits = 0;
+        for (long key : trace) {
+            if (cache.get(key) != null) {
+                hits++;
+            } else {
+                cache.put(key, key);
+            }
+        }
+        return 100.0 * hits / trace.length;
+    }
+
+    private static long[] syntheticTrace() {
+        var random = new Random(42);
+        double[] cumulative = zipfCumulative(HOT_KEYS, 0.9);
+        long[] trace = new long[TRACE_LENGTH];
+        long scanKey = Long.MAX_VALUE / 2;
+        int i = 0;
+        while (i < TRACE_LENGTH) {
+            if (i > 0 && i % SCAN_EVERY == 0) {
+                for (int j = 0; j < SCAN_LENGTH && i < TRACE_LENGTH; j++) {
+                    trace[i++] = scanKey++;
+                }
+            }
+            if (i < TRACE_LENGTH) {
+                trace[i++] = sampleZipf(cumulative, random.nextDouble());
+            }
+        }
+        return trace;
+    }
+
+    private static double[] zipfCumulative(int n, double skew) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int rank = 1; rank <= n; rank++) {
+            sum += 1.0 / Math.pow(rank, skew);
+            cumulative[rank - 1] = sum;
+        }
+        for (int rank = 0; rank < n; rank++) {
+            cumulative[rank] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static long sampleZipf(double[] cumulative, double u) {
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] < u) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static long[] readTrace(Path path) throws IOException {
+        return Files.readAllLines(path).stream().map(String::trim).filter(line -> !line.isEmpty())
+                .mapToLong(CacheHitRatioBenchmark::parseKey).toArray();
+    }
+
+    private static long parseKey(String line) {
+        try {
+            return Long.parseLong(line);
+        } catch (NumberFormatException e) {
+            return line.hashCode();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package dk.mosberg.util.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import dk.mosberg.util.EntityHelper;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.entity.EntityType;
+import net.minecraft.entity.MarkerEntity;
+
+/**
+ * Compares {@link EntityHelper.EntityGrid} queries against scanning every entity, at 5,000 and
+ * 20,000 entities, reporting time and bytes allocated per query.
+ *
+ * <p>
+ * The entities are marker entities that are never added to a world, scattered over a 192 by 64
+ * by 192 block volume. The grid is filled with
+ * {@link EntityHelper.EntityGrid#rebuild(Iterable)}, so no server is needed; the registries are
+ * bootstrapped for the entity type. The baseline is a loop over a {@code List} of the entities
+ * with a squared-distance test. It is not {@code World.getEntitiesByClass}: that needs a loaded
+ * server world, and the build has no server or game-test harness, so the comparison against it
+ * has not been measured. Run with {@code ./gradlew benchmark -Pbench=EntityGridBenchmark}.
+ */
+public final class EntityGridBenchmark {
+    private static final int[] COUNTS = {5_000, 20_000};
+    private static final int QUERIES = 2_000;
+    private static final int ROUNDS = 5;
+
+    private static volatile Object sink;
+
+    private EntityGridBenchmark() {}
+
+    public static void main(String[] args) {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        var random = new Random(23);
+        double[] centers = new double[QUERIES * 3];
+        for (int i = 0; i < centers.length; i += 3) {
+            centers[i] = random.nextDouble() * 192 - 96;
+            centers[i + 1] = random.nextDouble() * 64 - 32;
+            centers[i + 2] = random.nextDouble() * 192 - 96;
+        }
+        Predicate<MarkerEntity> even = marker -> (marker.getId() & 1) == 0;
+        List<MarkerEntity> found = new ArrayList<>();
+
+        for (int count : COUNTS) {
+            List<MarkerEntity> markers = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                var marker = new MarkerEntity(EntityType.MARKER, null);
+                marker.setPosition(random.nextDouble() * 192 - 96, random.nextDouble() * 64 - 32,
+                        random.nextDouble() * 192 - 96);
+                markers.add(marker);
+            }
+            var grid = new EntityHelper.EntityGrid(EntityHelper.EntityGrid.DEFAULT_CELL_SIZE);
+            System.out.printf("%,d markers, %,d queries:%n", count, QUERIES);
+            BenchmarkSupport.header("workload", "op");
+            BenchmarkSupport.report("grid rebuild", 1, ROUNDS, () -> grid.rebuild(markers));
+            for (Predicate<MarkerEntity> filter : Arrays.asList(null, even)) {
+                String suffix = filter == null ? "" : " filtered";
+                BenchmarkSupport.report("r16 scan" + suffix, QUERIES, ROUNDS, () -> {
+                    for (int i = 0; i < centers.length; i += 3) {
+                        found.clear();
+                        for (MarkerEntity marker : markers) {
+                            if (marker.squaredDistanceTo(centers[i], centers[i + 1],
+                                    centers[i + 2]) <= 256
+                                    && (filter == null || filter.test(marker))) {
+                                found.add(marker);
+                            }
+                        }
+                    }
+                });
+                BenchmarkSupport.report("r16 grid" + suffix, QUERIES, ROUNDS, () -> {
+                    for (int i = 0; i < centers.length; i += 3) {
+                        found.clear();
+                        grid.findInRadius(MarkerEntity.class, centers[i], centers[i + 1],
+                                centers[i + 2], 16, filter, found);
+                    }
+                });
+            }
+            BenchmarkSupport.report("k8 scan + sort", QUERIES, ROUNDS, () -> {
+                for (int i = 0; i < centers.length; i += 3) {
+                    double x = centers[i];
+                    double y = centers[i + 1];
+                    double z = centers[i + 2];
+                    found.clear();
+                    for (MarkerEntity marker : markers) {
+                        if (marker.squaredDistanceTo(x, y, z) <= 1024) {
+                            found.add(marker);
+                        }
+                    }
+                    found.sort(Comparator
+                            .comparingDouble(marker -> marker.squaredDistanceTo(x, y, z)));
+                    sink = found.subList(0, Math.min(8, found.size()));
+                }
+            });
+            BenchmarkSupport.report("k8 grid", QUERIES, ROUNDS, () -> {
+                for (int i = 0; i < centers.length; i += 3) {
+                    found.clear();
+                    grid.findKNearest(MarkerEntity.class, centers[i], centers[i + 1],
+                            centers[i + 2], 32, 8, null, found);
+                }
+            });
+            sink = found;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package dk.mosberg.util.benchmark;
+
+import java.util.Random;
+import dk.mosberg.util.CacheHelper;
+
+/**
+ * Compares the primitive long-keyed caches against the generic caches keyed by boxed
+ * {@code Long}, reporting lookup latency and bytes allocated per operation.
+ *
+ * <p>
+ * Keys are packed the same way as {@code BlockPos.asLong()}. Run with
+ * {@code ./gradlew benchmark -Pbench=LongCacheBenchmark}.
+ */
+public final class LongCacheBenchmark {
+    private static final int ENTRIES = 100_000;
+    private static final int OPERATIONS = 10_000_000;
+    private static final int ROUNDS = 5;
+
+    private static volatile Object sink;
+
+    private LongCacheBenchmark() {}
+
+    public static void main(String[] args) {
+        long[] positions = positions();
+        int[] order = new Random(7).ints(OPERATIONS, 0, ENTRIES).toArray();
+        BenchmarkSupport.header("cache", "op");
+        BenchmarkSupport.report("TimedCache<Long>", OPERATIONS, ROUNDS, () -> {
+            var cache = new CacheHelper.TimedCache<Long, Integer>(600_000);
+            for (int i = 0; i < positions.length; i++) {
+                cache.set(positions[i], i);
+            }
+            for (int i = 0; i < order.length; i++) {
+                sink = cache.get(positions[order[i]]);
+            }
+        });
+        BenchmarkSupport.report("LongTimedCache", OPERATIONS, ROUNDS, () -> {
+            var cache = new CacheHelper.LongTimedCache<Integer>(600_000);
+            for (int i = 0; i < positions.length; i++) {
+                cache.set(positions[i], i);
+            }
+            for (int i = 0; i < order.length; i++) {
+                sink = cache.get(positions[order[i]]);
+            }
+        });
+        BenchmarkSupport.report("LRUCache<Long>", OPERATIONS, ROUNDS, () -> {
+            var cache = new CacheHelper.LRUCache<Long, Integer>(ENTRIES / 2);
+            for (int i = 0; i < order.length; i++) {
+                long key = positions[order[i]];
+                if (cache.get(key) == null) {
+                    cache.put(key, order[i]);
+                }
+            }
+        });
+        BenchmarkSupport.report("LongLRUCache", OPERATIONS, ROUNDS, () -> {
+            var cache = new CacheHelper.LongLRUCache<Integer>(ENTRIES / 2);
+            for (int i = 0; i < order.length; i++) {
+                long key = positions[order[i]];
+                if (cache.get(key) == null) {
+                    cache.put(key, order[i]);
+                }
+            }
+        });
+    }
+
+    private static long[] positions() {
+        var random = new Random(3);
+        long[] positions = new long[ENTRIES];
+        for (int i = 0; i < ENTRIES; i++) {
+            positions[i] = pack(random.nextInt(2048) - 1024, random.nextInt(384) - 64,
+                    random.nextInt(2048) - 1024);
+        }
+        return positions;
+    }
+
+    /**
+     * Packs coordinates like {@code BlockPos.asLong()}.
+     */
+    private static long pack(int x, int y, int z) {
+        return ((long) x & 0x3FFFFFFL) << 38 | ((long) z & 0x3FFFFFFL) << 12 | (y & 0xFFFL);
+    }
+}
@@ -0,0 +1,74 @@
+package dk.mosberg.util.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import dk.mosberg.util.RandomRedstoneView;
+import dk.mosberg.util.RedstoneHelper;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.world.RedstoneView;
+
+/**
+ * Compares {@link RedstoneHelper#evaluatePower} against evaluating the same positions one at a
+ * time, reporting time and bytes allocated per evaluated position.
+ *
+ * <p>
+ * The per-position workload makes the same {@code getEmittedRedstonePower} calls as
+ * {@link RedstoneHelper#getRedstoneSignal} and {@link RedstoneHelper#getMaxAdjacentPower}, but
+ * against a {@link RandomRedstoneView} so no server is needed; the registries are
+ * bootstrapped for the vanilla block states. Run with
+ * {@code ./gradlew benchmark -Pbench=RedstonePowerBenchmark}.
+ */
+public final class RedstonePowerBenchmark {
+    private static final int SIZE_XZ = 64;
+    private static final int SIZE_Y = 32;
+    private static final int LIST_SIZE = 20_000;
+    private static final int ROUNDS = 10;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private static volatile Object sink;
+
+    private RedstonePowerBenchmark() {}
+
+    public static void main(String[] args) {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        var view = new RandomRedstoneView(new Random(11), SIZE_XZ, SIZE_Y);
+        var from = new BlockPos(2, 2, 2);
+        var to = new BlockPos(SIZE_XZ - 3, SIZE_Y - 3, SIZE_XZ - 3);
+        List<BlockPos> box = new ArrayList<>();
+        BlockPos.iterate(from, to).forEach(pos -> box.add(pos.toImmutable()));
+        var random = new Random(5);
+        List<BlockPos> list = new ArrayList<>();
+        for (int i = 0; i < LIST_SIZE; i++) {
+            list.add(box.get(random.nextInt(box.size())));
+        }
+
+        BenchmarkSupport.header("workload", "pos");
+        BenchmarkSupport.report("box per-position", box.size(), ROUNDS,
+                () -> sink = perPosition(view, box));
+        BenchmarkSupport.report("box batched", box.size(), ROUNDS,
+                () -> sink = RedstoneHelper.evaluatePower(view, from, to));
+        BenchmarkSupport.report("list per-position", list.size(), ROUNDS,
+                () -> sink = perPosition(view, list));
+        BenchmarkSupport.report("list batched", list.size(), ROUNDS,
+                () -> sink = RedstoneHelper.evaluatePower(view, list));
+    }
+
+    private static int perPosition(RedstoneView view, List<BlockPos> positions) {
+        int total = 0;
+        for (BlockPos pos : positions) {
+            total += Math.clamp(view.getEmittedRedstonePower(pos, null), 0, 15);
+            int max = 0;
+            for (Direction direction : DIRECTIONS) {
+                max = Math.max(max, Math.clamp(
+                        view.getEmittedRedstonePower(pos.offset(direction), direction), 0, 15));
+            }
+            total += max;
+        }
+        return total;
+    }
+}